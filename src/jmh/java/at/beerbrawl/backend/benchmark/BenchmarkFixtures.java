@@ -0,0 +1,134 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.benchmark;
+
+import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.QualificationMatch;
+import at.beerbrawl.backend.entity.Team;
+import at.beerbrawl.backend.util.BeerDateTime;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * In-memory tournaments for the benchmarks, built without a database.
+ * They are deterministic, so results of different releases can be compared.
+ */
+public final class BenchmarkFixtures {
+
+    private static final long SEED = 42;
+
+    private BenchmarkFixtures() {}
+
+    /**
+     * @param count number of teams, with ids 1 to count
+     */
+    public static List<Team> teams(int count) {
+        var teams = new ArrayList<Team>(count);
+        for (int i = 1; i <= count; i++) {
+            var team = new Team("Team %04d".formatted(i), null);
+            team.setId((long) i);
+            teams.add(team);
+        }
+        return teams;
+    }
+
+    /**
+     * Two qualification matches per team, like the generated draw. Two thirds of the first
+     * round is finished, the rest of it is being played, the second round is checked in.
+     *
+     * @param teams an even number of teams
+     */
+    public static List<QualificationMatch> qualificationMatches(List<Team> teams) {
+        var random = new Random(SEED);
+        var matches = new ArrayList<QualificationMatch>(teams.size());
+        var firstRound = teams.size() / 2;
+        for (int i = 0; i < firstRound; i++) {
+            var match = match(teams.get(2 * i), teams.get(2 * i + 1));
+            match.getTeams().forEach(Team::checkIn);
+            var start = BeerDateTime.nowUtc().minusMinutes(30);
+            match.setStartTime(start);
+            if (i < firstRound * 2 / 3) {
+                match.setEndTime(start.plusMinutes(10));
+                match.setWinner(match.getTeams().get(random.nextInt(2)));
+                match.setWinnerPoints((long) random.nextInt(1, 11));
+            }
+            matches.add(match);
+        }
+        for (int i = 0; i < firstRound; i++) {
+            matches.add(match(teams.get(2 * i + 1), teams.get((2 * i + 2) % teams.size())));
+        }
+        return matches;
+    }
+
+    private static QualificationMatch match(Team first, Team second) {
+        var match = new QualificationMatch(null, List.of(first, second));
+        // set by hibernate when persisting, the heuristic groups by it
+        match.getParticipations().forEach(p -> p.getId().setTeamId(p.getTeam().getId()));
+        return match;
+    }
+
+    /**
+     * A knock-out bracket with the given teams as initial participants. The first round is
+     * finished, so the second round is waiting to be played.
+     *
+     * @param teams a power of two of teams
+     * @return the finale
+     */
+    public static KoStanding koBracket(List<Team> teams) {
+        var round = new ArrayList<KoStanding>();
+        for (var team : teams) {
+            round.add(new KoStanding(null, null, team));
+        }
+        var depth = 0;
+        while (round.size() > 1) {
+            var next = new ArrayList<KoStanding>();
+            for (int i = 0; i < round.size(); i += 2) {
+                var preceding = List.of(round.get(i), round.get(i + 1));
+                KoStanding standing;
+                if (depth == 0) {
+                    standing = new KoStanding(null, preceding, preceding.getFirst().getTeam());
+                    var start = BeerDateTime.nowUtc().minusMinutes(30);
+                    standing.setStartTime(start);
+                    standing.setEndTime(start.plusMinutes(10));
+                } else {
+                    standing = new KoStanding(null, preceding, null);
+                }
+                next.add(standing);
+            }
+            round = next;
+            depth++;
+        }
+        return round.getFirst();
+    }
+
+    /**
+     * Implement a repository interface with fixed results, other methods are unsupported.
+     *
+     * @param type the repository interface
+     * @param results result by method name
+     */
+    public static <T> T repository(Class<T> type, Map<String, Object> results) {
+        return type.cast(
+            Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (
+                    proxy,
+                    method,
+                    args
+                ) -> {
+                    if (results.containsKey(method.getName())) {
+                        return results.get(method.getName());
+                    }
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "equals" -> proxy == args[0];
+                            default -> type.getSimpleName() + " fixture";
+                        };
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                })
+        );
+    }
+}
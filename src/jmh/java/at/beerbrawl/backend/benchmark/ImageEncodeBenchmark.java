@@ -0,0 +1,83 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.benchmark;
+
+import at.beerbrawl.backend.util.ImageBufferPool;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JPEG encode step of shared media uploads, with and without the {@link ImageBufferPool}, from
+ * concurrent uploads. Compare the allocation per upload in {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ImageEncodeBenchmark {
+
+    private BufferedImage image;
+    private ImageBufferPool pool;
+
+    @Setup
+    public void setUp() {
+        image = noiseImage(1_280, 960);
+        pool = new ImageBufferPool();
+    }
+
+    @Benchmark
+    public byte[] unpooled() throws IOException {
+        var out = new ByteArrayOutputStream();
+        encode(image, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] pooled() throws IOException {
+        try (var out = pool.newOutput(image.getWidth() * image.getHeight() / 2)) {
+            encode(image, out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void encode(BufferedImage image, OutputStream out) throws IOException {
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (var imageOut = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage noiseImage(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var random = new Random(7);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,56 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.benchmark;
+
+import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.KoStanding.KoStandingValidationResult;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation of a knock-out bracket. The knock-out phase always has 16 teams, the bracket is
+ * drawn from the given number of qualified teams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KoStandingBenchmark {
+
+    private static final int KO_TEAMS = 16;
+
+    @Param({ "16", "64", "256", "1024" })
+    public int teams;
+
+    private KoStanding finale;
+
+    @Setup
+    public void setUp() {
+        var teamList = BenchmarkFixtures.teams(teams);
+        // the best teams qualify, spread over the team ids like after the qualification
+        var step = teams / KO_TEAMS;
+        finale = BenchmarkFixtures.koBracket(
+            IntStream.range(0, KO_TEAMS)
+                .mapToObj(i -> teamList.get(i * step))
+                .toList()
+        );
+    }
+
+    @Benchmark
+    public KoStandingValidationResult evaluateValidity() {
+        return finale.evaluateValidity();
+    }
+}
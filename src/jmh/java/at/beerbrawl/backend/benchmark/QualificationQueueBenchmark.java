@@ -0,0 +1,85 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.benchmark;
+
+import at.beerbrawl.backend.config.DomainMetrics;
+import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.QualificationMatch;
+import at.beerbrawl.backend.entity.Tournament;
+import at.beerbrawl.backend.entity.domainservice.MatchDomainService;
+import at.beerbrawl.backend.repository.BeerPongTableRepository;
+import at.beerbrawl.backend.repository.KoStandingsRepository;
+import at.beerbrawl.backend.repository.QualificationMatchRepository;
+import at.beerbrawl.backend.repository.TournamentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ordering and queueing of matches, which runs whenever a table gets free.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualificationQueueBenchmark {
+
+    private static final long TOURNAMENT_ID = 1L;
+
+    @Param({ "16", "64", "256", "1024" })
+    public int teams;
+
+    private List<QualificationMatch> qualificationMatches;
+    private MatchDomainService matchDomainService;
+
+    @Setup
+    public void setUp() {
+        var teamList = BenchmarkFixtures.teams(teams);
+        qualificationMatches = BenchmarkFixtures.qualificationMatches(teamList);
+        KoStanding finale = BenchmarkFixtures.koBracket(teamList);
+        matchDomainService = new MatchDomainService(
+            BenchmarkFixtures.repository(
+                QualificationMatchRepository.class,
+                Map.of("findAllByTournamentId", qualificationMatches)
+            ),
+            BenchmarkFixtures.repository(
+                KoStandingsRepository.class,
+                Map.of("findFinaleByTournamentIdAndNextStandingIsNull", Optional.of(finale))
+            ),
+            BenchmarkFixtures.repository(BeerPongTableRepository.class, Map.of()),
+            BenchmarkFixtures.repository(TournamentRepository.class, Map.of()),
+            event -> {},
+            new DomainMetrics(new SimpleMeterRegistry())
+        );
+    }
+
+    @Benchmark
+    public List<QualificationMatch> copySortedByHeuristic() {
+        return Tournament.Utils.copySortedByHeuristic(qualificationMatches);
+    }
+
+    @Benchmark
+    public List<QualificationMatch> qualificationMatchQueue() {
+        return matchDomainService.getQualificationMatchQueue(TOURNAMENT_ID);
+    }
+
+    @Benchmark
+    public List<KoStanding> koMatchQueue() {
+        return matchDomainService.getKoMatchQueue(TOURNAMENT_ID);
+    }
+}
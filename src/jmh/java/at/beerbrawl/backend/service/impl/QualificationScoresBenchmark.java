@@ -0,0 +1,51 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service.impl;
+
+import at.beerbrawl.backend.benchmark.BenchmarkFixtures;
+import at.beerbrawl.backend.entity.QualificationMatch;
+import at.beerbrawl.backend.entity.Team;
+import at.beerbrawl.backend.service.models.QualificationTeamScoreModel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ranking of the qualification score table, computed for every score request and live update.
+ * Lives in this package for access to {@code calculateScores}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualificationScoresBenchmark {
+
+    @Param({ "16", "64", "256", "1024" })
+    public int teams;
+
+    private List<Team> teamList;
+    private List<QualificationMatch> qualificationMatches;
+
+    @Setup
+    public void setUp() {
+        teamList = BenchmarkFixtures.teams(teams);
+        qualificationMatches = BenchmarkFixtures.qualificationMatches(teamList);
+    }
+
+    @Benchmark
+    public List<QualificationTeamScoreModel> calculateScores() {
+        return TournamentQualificationServiceImpl.calculateScores(teamList, qualificationMatches);
+    }
+}
@@ -0,0 +1,98 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Sampled access log, written from a thread of its own so requests never wait for the appender.
+ * Server errors are always logged, every other request with the probability
+ * {@code beerbrawl.access-log.sample-rate}. When the writer falls behind, entries are dropped
+ * and counted as {@code beerbrawl.http.access-log.dropped}.
+ */
+public class AccessLog implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final double sampleRate;
+    private final ThreadPoolTaskExecutor writer;
+
+    /**
+     * A request as it was answered, with the MDC it was handled under.
+     */
+    public record Entry(
+        String method,
+        String uri,
+        String query,
+        int status,
+        long nanos,
+        String requestId,
+        String ip,
+        String user
+    ) {}
+
+    public AccessLog(double sampleRate, MeterRegistry meterRegistry) {
+        this.sampleRate = sampleRate;
+        var dropped = Counter.builder("beerbrawl.http.access-log.dropped")
+            .description("Access log entries dropped because the writer fell behind")
+            .register(meterRegistry);
+        this.writer = new ThreadPoolTaskExecutor();
+        this.writer.setCorePoolSize(1);
+        this.writer.setMaxPoolSize(1);
+        this.writer.setQueueCapacity(QUEUE_CAPACITY);
+        this.writer.setDaemon(true);
+        this.writer.setThreadNamePrefix("access-log-");
+        this.writer.setRejectedExecutionHandler((task, executor) -> dropped.increment());
+        this.writer.initialize();
+    }
+
+    /**
+     * Whether a request answered with this status should be logged, decided before building
+     * the entry so unsampled requests cost nothing.
+     */
+    public boolean sample(int status) {
+        return status >= 500 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    public void log(Entry entry) {
+        writer.execute(() -> write(entry));
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+    }
+
+    private static void write(Entry entry) {
+        MDC.put("r", entry.requestId());
+        MDC.put("ip", entry.ip());
+        MDC.put("u", entry.user());
+        try {
+            var message = "{} {}{} status={} time={}ms";
+            var args = new Object[] {
+                entry.method(),
+                entry.uri(),
+                entry.query() == null ? "" : "?" + entry.query(),
+                entry.status(),
+                TimeUnit.NANOSECONDS.toMicros(entry.nanos()) / 1000.0,
+            };
+            switch (entry.status() / 100) {
+                case 2, 3 -> LOG.info(message, args);
+                case 1, 4 -> LOG.warn(message, args);
+                default -> LOG.error(message, args);
+            }
+        } finally {
+            MDC.clear();
+        }
+    }
+}
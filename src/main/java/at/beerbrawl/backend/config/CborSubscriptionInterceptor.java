@@ -0,0 +1,137 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Lets STOMP clients receive a subscription in CBOR instead of JSON, by subscribing with the
+ * header {@code x-encoding: cbor}. Such messages are sent as binary frames with
+ * {@code content-type: application/octet-stream} and {@code x-encoding: cbor}.
+ * Only works on plain WebSockets, the SockJS fallback has no binary frames.
+ * The broker hands the same payload to every subscriber, so each payload is converted once
+ * and the ratio of CBOR to JSON size is recorded as {@code beerbrawl.websocket.encoding.ratio}.
+ */
+@Component
+public class CborSubscriptionInterceptor implements ChannelInterceptor {
+
+    public static final String ENCODING_HEADER = "x-encoding";
+    public static final String CBOR = "cbor";
+
+    /**
+     * Converted payloads kept for the other subscribers of the same message.
+     * Arrays compare by identity, so this only matches the very same payload.
+     */
+    private static final int CACHED_PAYLOADS = 64;
+
+    private final ObjectMapper jsonMapper;
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final Map<String, Set<String>> cborSubscriptions = new ConcurrentHashMap<>();
+    private final Map<byte[], byte[]> converted = Collections.synchronizedMap(
+        new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<byte[], byte[]> eldest) {
+                return size() > CACHED_PAYLOADS;
+            }
+        }
+    );
+    private final DistributionSummary ratio;
+    private final Counter jsonBytes;
+    private final Counter cborBytes;
+
+    public CborSubscriptionInterceptor(ObjectMapper jsonMapper, MeterRegistry meterRegistry) {
+        this.jsonMapper = jsonMapper;
+        this.ratio = DistributionSummary.builder("beerbrawl.websocket.encoding.ratio")
+            .description("Size of a CBOR encoded payload relative to its JSON")
+            .tag("encoding", CBOR)
+            .register(meterRegistry);
+        this.jsonBytes = Counter.builder("beerbrawl.websocket.encoding.input")
+            .baseUnit("bytes")
+            .description("JSON payload bytes converted to a binary encoding")
+            .tag("encoding", CBOR)
+            .register(meterRegistry);
+        this.cborBytes = Counter.builder("beerbrawl.websocket.encoding.output")
+            .baseUnit("bytes")
+            .description("Payload bytes produced by a binary encoding")
+            .tag("encoding", CBOR)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        var accessor = SimpMessageHeaderAccessor.wrap(message);
+        var sessionId = accessor.getSessionId();
+        var type = accessor.getMessageType();
+        if (sessionId == null || type == null) {
+            return message;
+        }
+
+        switch (type) {
+            case SUBSCRIBE -> {
+                if (CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(ENCODING_HEADER))) {
+                    cborSubscriptions
+                        .computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet())
+                        .add(accessor.getSubscriptionId());
+                }
+            }
+            case UNSUBSCRIBE -> {
+                var subscriptions = cborSubscriptions.get(sessionId);
+                if (subscriptions != null) {
+                    subscriptions.remove(accessor.getSubscriptionId());
+                }
+            }
+            case DISCONNECT -> cborSubscriptions.remove(sessionId);
+            case MESSAGE -> {
+                var subscriptions = cborSubscriptions.get(sessionId);
+                if (
+                    subscriptions != null &&
+                    subscriptions.contains(accessor.getSubscriptionId()) &&
+                    message.getPayload() instanceof byte[] payload
+                ) {
+                    return toCbor(payload, accessor);
+                }
+            }
+            default -> {}
+        }
+        return message;
+    }
+
+    private Message<byte[]> toCbor(byte[] json, SimpMessageHeaderAccessor accessor) {
+        var cbor = converted.computeIfAbsent(json, this::convert);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(ENCODING_HEADER, CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    private byte[] convert(byte[] json) {
+        try {
+            var cbor = cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+            jsonBytes.increment(json.length);
+            cborBytes.increment(cbor.length);
+            if (json.length > 0) {
+                ratio.record((double) cbor.length / json.length);
+            }
+            return cbor;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
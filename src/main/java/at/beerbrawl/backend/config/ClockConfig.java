@@ -0,0 +1,38 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config;
+
+import java.time.Clock;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.validation.ValidationConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The clock the tournament flow reads the current time from, and the random numbers it draws.
+ * Replaced by a virtual clock in simulations. With a {@code beerbrawl.random-seed} the teams are
+ * drawn alike on every run, so that captured requests replay to the same tournament.
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+
+    /**
+     * Lets {@code @Future} and {@code @Past} check against the same clock.
+     */
+    @Bean
+    public ValidationConfigurationCustomizer validationClock(Clock clock) {
+        return configuration -> configuration.clockProvider(() -> clock);
+    }
+
+    @Bean
+    public RandomGenerator random(@Value("${beerbrawl.random-seed:#{null}}") Long seed) {
+        return seed == null ? new Random() : new Random(seed);
+    }
+}
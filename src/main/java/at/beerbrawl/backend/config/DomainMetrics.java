@@ -0,0 +1,190 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config;
+
+import at.beerbrawl.backend.service.models.TournamentClosedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Meters of the tournament domain, all named {@code beerbrawl.*} and scraped by Prometheus on the
+ * management port. The meters are registered once here, so the services only record into them.
+ * The table load of a tournament is published as gauges tagged with the tournament id, updated
+ * whenever the scheduler runs for that tournament and removed once it is finished or deleted.
+ */
+@Component
+public class DomainMetrics {
+
+    public enum Phase {
+        QUALIFICATION,
+        KO;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Phase, Timer> scheduling = new EnumMap<>(Phase.class);
+    private final Map<Phase, DistributionSummary> queueLength = new EnumMap<>(Phase.class);
+    private final Map<Phase, Counter> assignments = new EnumMap<>(Phase.class);
+    private final Timer scoreTable;
+    private final Timer koTree;
+    private final Timer imageProcessing;
+    private final DistributionSummary uploadSize;
+    private final DistributionSummary storedSize;
+    private final Timer validToken;
+    private final Timer invalidToken;
+    private final Map<Long, TableLoad> tableLoads = new ConcurrentHashMap<>();
+
+    public DomainMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (var phase : Phase.values()) {
+            scheduling.put(
+                phase,
+                Timer.builder("beerbrawl.scheduling")
+                    .description("Time to assign the queued matches to the free tables")
+                    .tag("phase", phase.tag())
+                    .register(meterRegistry)
+            );
+            queueLength.put(
+                phase,
+                DistributionSummary.builder("beerbrawl.scheduling.queue")
+                    .description("Matches ready to be played when the scheduler runs")
+                    .tag("phase", phase.tag())
+                    .register(meterRegistry)
+            );
+            assignments.put(
+                phase,
+                Counter.builder("beerbrawl.scheduling.assignments")
+                    .description("Matches assigned to a table")
+                    .tag("phase", phase.tag())
+                    .register(meterRegistry)
+            );
+        }
+        this.scoreTable = Timer.builder("beerbrawl.qualification.scores")
+            .description("Time to compute the qualification score table")
+            .register(meterRegistry);
+        this.koTree = Timer.builder("beerbrawl.ko.tree")
+            .description("Time to assemble the KO standings tree")
+            .register(meterRegistry);
+        this.imageProcessing = Timer.builder("beerbrawl.media.processing")
+            .description("Time to decode, convert and re-encode an uploaded image")
+            .register(meterRegistry);
+        this.uploadSize = DistributionSummary.builder("beerbrawl.media.size")
+            .baseUnit("bytes")
+            .description("Size of a shared image")
+            .tag("stage", "upload")
+            .register(meterRegistry);
+        this.storedSize = DistributionSummary.builder("beerbrawl.media.size")
+            .baseUnit("bytes")
+            .description("Size of a shared image")
+            .tag("stage", "stored")
+            .register(meterRegistry);
+        this.validToken = Timer.builder("beerbrawl.jwt.verification")
+            .description("Time to verify the JWT of a request")
+            .tag("outcome", "valid")
+            .register(meterRegistry);
+        this.invalidToken = Timer.builder("beerbrawl.jwt.verification")
+            .description("Time to verify the JWT of a request")
+            .tag("outcome", "invalid")
+            .register(meterRegistry);
+    }
+
+    public Timer scheduling(Phase phase) {
+        return scheduling.get(phase);
+    }
+
+    /**
+     * Record a run of the scheduler and the table load it left behind.
+     *
+     * @param queued matches that were ready to be played
+     * @param assigned matches that got a table
+     * @param teamsWaiting teams of the ready matches that are still without a table
+     */
+    public void recordScheduling(
+        Phase phase,
+        long tournamentId,
+        int queued,
+        int assigned,
+        int tables,
+        int freeTables,
+        int teamsWaiting
+    ) {
+        queueLength.get(phase).record(queued);
+        assignments.get(phase).increment(assigned);
+        var load = tableLoads.computeIfAbsent(tournamentId, this::registerTableLoad);
+        load.free().set(freeTables);
+        load.inUse().set(tables - freeTables);
+        load.teamsWaiting().set(teamsWaiting);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTournamentClosed(TournamentClosedEvent event) {
+        var load = tableLoads.remove(event.tournamentId());
+        if (load != null) {
+            load.gauges().forEach(meterRegistry::remove);
+        }
+    }
+
+    public Timer scoreTable() {
+        return scoreTable;
+    }
+
+    public Timer koTree() {
+        return koTree;
+    }
+
+    public Timer imageProcessing() {
+        return imageProcessing;
+    }
+
+    public void recordImageSize(long uploadBytes, long storedBytes) {
+        uploadSize.record(uploadBytes);
+        storedSize.record(storedBytes);
+    }
+
+    public Timer jwtVerification(boolean valid) {
+        return valid ? validToken : invalidToken;
+    }
+
+    private record TableLoad(
+        AtomicInteger free,
+        AtomicInteger inUse,
+        AtomicInteger teamsWaiting,
+        List<Gauge> gauges
+    ) {}
+
+    private TableLoad registerTableLoad(long tournamentId) {
+        var free = new AtomicInteger();
+        var inUse = new AtomicInteger();
+        var teamsWaiting = new AtomicInteger();
+        var tournament = String.valueOf(tournamentId);
+        var gauges = List.of(
+            Gauge.builder("beerbrawl.tables", free, AtomicInteger::get)
+                .description("Tables of a tournament, by whether a match is assigned to them")
+                .tags("tournament", tournament, "state", "free")
+                .register(meterRegistry),
+            Gauge.builder("beerbrawl.tables", inUse, AtomicInteger::get)
+                .description("Tables of a tournament, by whether a match is assigned to them")
+                .tags("tournament", tournament, "state", "in_use")
+                .register(meterRegistry),
+            Gauge.builder("beerbrawl.teams.waiting", teamsWaiting, AtomicInteger::get)
+                .description("Teams ready to play a match that has no table yet")
+                .tag("tournament", tournament)
+                .register(meterRegistry)
+        );
+        return new TableLoad(free, inUse, teamsWaiting, gauges);
+    }
+}
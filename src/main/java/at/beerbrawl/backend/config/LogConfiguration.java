@@ -2,6 +2,17 @@
 
 package at.beerbrawl.backend.config;
 
+import at.beerbrawl.backend.config.capture.RequestCapture;
+import at.beerbrawl.backend.config.capture.RequestCaptureFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,11 +23,56 @@ import org.springframework.web.filter.OncePerRequestFilter;
 public class LogConfiguration {
 
     @Bean
-    public FilterRegistrationBean<OncePerRequestFilter> logFilter() {
-        var reg = new FilterRegistrationBean<OncePerRequestFilter>(new LogFilter());
+    public FilterRegistrationBean<OncePerRequestFilter> logFilter(
+        MeterRegistry meterRegistry,
+        ObjectProvider<AccessLog> accessLog
+    ) {
+        var reg = new FilterRegistrationBean<OncePerRequestFilter>(
+            new LogFilter(meterRegistry, accessLog.getIfAvailable())
+        );
         reg.addUrlPatterns("/*");
         reg.setName("logFilter");
         reg.setOrder(Ordered.LOWEST_PRECEDENCE);
         return reg;
     }
+
+    /**
+     * Only there with a {@code beerbrawl.access-log.sample-rate} above zero, e.g. {@code 0.05}
+     * to log every 20th request.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("${beerbrawl.access-log.sample-rate:0} > 0")
+    public AccessLog accessLog(
+        @Value("${beerbrawl.access-log.sample-rate}") double sampleRate,
+        MeterRegistry meterRegistry
+    ) {
+        return new AccessLog(sampleRate, meterRegistry);
+    }
+
+    /**
+     * Only there with a {@code beerbrawl.request-capture.file} to capture to, see
+     * {@link RequestCaptureFilter}.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty("beerbrawl.request-capture.file")
+    public RequestCapture requestCapture(@Value("${beerbrawl.request-capture.file}") Path file)
+        throws IOException {
+        return new RequestCapture(file);
+    }
+
+    @Bean
+    @ConditionalOnProperty("beerbrawl.request-capture.file")
+    public FilterRegistrationBean<OncePerRequestFilter> requestCaptureFilter(
+        RequestCapture requestCapture,
+        Clock clock,
+        ObjectMapper objectMapper
+    ) {
+        var reg = new FilterRegistrationBean<OncePerRequestFilter>(
+            new RequestCaptureFilter(requestCapture, clock, objectMapper)
+        );
+        reg.addUrlPatterns("/*");
+        reg.setName("requestCaptureFilter");
+        reg.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return reg;
+    }
 }
@@ -2,93 +2,183 @@
 
 package at.beerbrawl.backend.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.lang.invoke.MethodHandles;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.slf4j.MDC;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
 /**
- * ServletFilter to log every request.
+ * ServletFilter to time every request and hand a sample of them to the {@link AccessLog}.
+ * Latencies are recorded as {@code beerbrawl.http.requests}, a histogram with percentiles per
+ * route template, method and status. The timers are looked up without allocating, so timing
+ * costs nothing per request once a route has been seen.
+ * Asynchronous requests, e.g. long polls and event streams, are recorded once they complete, with
+ * their final status; their async dispatches run with the MDC of the request.
  */
 public class LogFilter extends OncePerRequestFilter {
 
-    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-
-    private static final DecimalFormat REQUEST_RUNTIME_FORMAT = new DecimalFormat(
-        "#.###",
-        DecimalFormatSymbols.getInstance(Locale.ENGLISH)
-    );
-    private static final Long NANOSECONDS_PER_MS = 1000_000L;
     private static final List<String> MUTED_PATHS = Arrays.asList("/swagger-ui/", "/swagger.yaml");
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+    private static final String MDC_ATTRIBUTE = LogFilter.class.getName() + ".MDC";
+
+    private final MeterRegistry meterRegistry;
+    private final AccessLog accessLog;
+    private final Map<String, Map<String, AtomicReferenceArray<Timer>>> timers =
+        new ConcurrentHashMap<>();
+
+    /**
+     * @param accessLog where to log the sampled requests, or {@code null} to log none
+     */
+    public LogFilter(MeterRegistry meterRegistry, AccessLog accessLog) {
+        this.meterRegistry = meterRegistry;
+        this.accessLog = accessLog;
+    }
 
     @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
     public void doFilterInternal(
         HttpServletRequest request,
         HttpServletResponse response,
         FilterChain filterChain
-    ) {
-        var runtime = -1L;
-        var shouldLog = shouldLog(request);
-        if (shouldLog) {
-            populateMdc(request);
-            beforeRequest(request);
+    ) throws ServletException, IOException {
+        var asyncMdc = (Map<String, String>) request.getAttribute(MDC_ATTRIBUTE);
+        if (asyncMdc != null) {
+            // an async dispatch, recorded by the listener once the request completes
+            MDC.setContextMap(asyncMdc);
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                MDC.clear();
+            }
+            return;
         }
+
+        populateMdc(request);
+        var start = System.nanoTime();
+        // exceptions escaping the chain are turned into a 500 by the container, not on response
+        var failed = true;
         try {
-            //keep timestamp
-            runtime = System.nanoTime();
-            //do the work
             filterChain.doFilter(request, response);
-        } catch (ServletException | IOException e) {
-            throw new RuntimeException(e);
+            failed = false;
         } finally {
-            //runtime = end - start
-            runtime = System.nanoTime() - runtime;
-            if (shouldLog) {
-                afterRequest(request, response, runtime);
+            if (!failed && request.isAsyncStarted()) {
+                var mdc = MDC.getCopyOfContextMap();
+                request.setAttribute(MDC_ATTRIBUTE, mdc);
+                request
+                    .getAsyncContext()
+                    .addListener(new Completion(request, response, start, mdc));
+            } else {
+                var status = failed
+                    ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                    : response.getStatus();
+                record(
+                    request,
+                    status,
+                    System.nanoTime() - start,
+                    MDC.get("r"),
+                    MDC.get("ip"),
+                    MDC.get("u")
+                );
             }
             MDC.clear();
         }
     }
 
-    private void beforeRequest(HttpServletRequest request) {
-        var b = getUrlString(">>> ", request);
-        var agent = request.getHeader("User-Agent");
-        if (agent != null) {
-            b.append(" UA=").append(agent);
+    private void record(
+        HttpServletRequest request,
+        int status,
+        long runtime,
+        String requestId,
+        String ip,
+        String user
+    ) {
+        timer(route(request, status), request.getMethod(), status).record(
+            runtime,
+            TimeUnit.NANOSECONDS
+        );
+        if (accessLog != null && accessLog.sample(status) && !isMuted(request)) {
+            accessLog.log(
+                new AccessLog.Entry(
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    request.getQueryString(),
+                    status,
+                    runtime,
+                    requestId,
+                    ip,
+                    user
+                )
+            );
         }
-        logWithRightCategory(200, b.toString());
     }
 
-    private void afterRequest(
-        HttpServletRequest request,
-        HttpServletResponse response,
-        Long runtime
-    ) {
-        var b = getUrlString("<<< ", request);
-        var logStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
-        if (response != null) {
-            logStatus = response.getStatus();
-            MDC.put("status", "" + logStatus);
-            b.append(" status=").append(logStatus);
-        } else {
-            b.append(" NO RESPONSE");
+    /**
+     * Records an asynchronous request once it completed, whether it was answered by an async
+     * dispatch, completed by its emitter or timed out.
+     */
+    private final class Completion implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long start;
+        private final Map<String, String> mdc;
+
+        private Completion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            long start,
+            Map<String, String> mdc
+        ) {
+            this.request = request;
+            this.response = response;
+            this.start = start;
+            this.mdc = mdc;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(
+                request,
+                response.getStatus(),
+                System.nanoTime() - start,
+                mdc.get("r"),
+                mdc.get("ip"),
+                mdc.get("u")
+            );
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {}
+
+        @Override
+        public void onError(AsyncEvent event) {}
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // listeners are dropped when an async dispatch starts async processing again
+            event.getAsyncContext().addListener(this);
         }
-        var time = REQUEST_RUNTIME_FORMAT.format(runtime / NANOSECONDS_PER_MS);
-        MDC.put("duration", time);
-        b.append(" time=").append(time).append("ms");
-        logWithRightCategory(logStatus, b.toString());
     }
 
     private void populateMdc(HttpServletRequest request) {
@@ -99,10 +189,6 @@ public class LogFilter extends OncePerRequestFilter {
         if (MDC.get("r") == null) {
             MDC.put("r", generateRequestId());
         }
-        MDC.put("http_request_method", request.getMethod());
-        MDC.put("http_request_url", request.getRequestURI());
-        MDC.put("http_request_query", request.getQueryString());
-        MDC.put("http_request_ua", request.getHeader("User-Agent"));
     }
 
     private String generateRequestId() {
@@ -111,35 +197,48 @@ public class LogFilter extends OncePerRequestFilter {
         return uuid;
     }
 
-    private StringBuilder getUrlString(String prefix, HttpServletRequest request) {
-        var b = new StringBuilder(prefix)
-            .append(request.getMethod())
-            .append(" ")
-            .append(request.getRequestURI());
-        var qs = request.getQueryString();
-        if (qs != null) {
-            b.append("?").append(qs);
+    /**
+     * The route template the request was mapped to, so the tags stay bounded however many
+     * tournaments and teams are requested.
+     */
+    private static String route(HttpServletRequest request, int status) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof String route) {
+            return route;
+        }
+        if (status == HttpServletResponse.SC_NOT_FOUND) {
+            return "NOT_FOUND";
         }
-        return b;
+        if (status / 100 == 3) {
+            return "REDIRECTION";
+        }
+        return "UNKNOWN";
     }
 
-    private boolean shouldLog(HttpServletRequest request) {
-        //Log everything in TRACE
-        if (LOG.isTraceEnabled()) {
-            return true;
+    private Timer timer(String route, String method, int status) {
+        var byStatus = timers
+            .computeIfAbsent(route, r -> new ConcurrentHashMap<>())
+            .computeIfAbsent(
+                method,
+                m -> new AtomicReferenceArray<Timer>(MAX_STATUS - MIN_STATUS + 1)
+            );
+        var index = Math.clamp(status, MIN_STATUS, MAX_STATUS) - MIN_STATUS;
+        var timer = byStatus.get(index);
+        if (timer == null) {
+            // registering returns the already registered timer on a race, so either one wins
+            timer = Timer.builder("beerbrawl.http.requests")
+                .description("Time to answer an HTTP request")
+                .tags("uri", route, "method", method, "status", String.valueOf(status))
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+            byStatus.set(index, timer);
         }
-
-        //is the url muted?
-        var url = request.getRequestURI();
-        return MUTED_PATHS.stream().noneMatch(url::startsWith);
+        return timer;
     }
 
-    private void logWithRightCategory(int status, String logMsg) {
-        var x = status / 100;
-        switch (x) {
-            case 2, 3 -> LOG.info(logMsg);
-            case 1, 4 -> LOG.warn(logMsg);
-            default -> LOG.error(logMsg);
-        }
+    private static boolean isMuted(HttpServletRequest request) {
+        var url = request.getRequestURI();
+        return MUTED_PATHS.stream().anyMatch(url::startsWith);
     }
 }
@@ -0,0 +1,76 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config;
+
+import at.beerbrawl.backend.exception.BadTournamentPublicAccessTokenException;
+import at.beerbrawl.backend.exception.NotFoundException;
+import at.beerbrawl.backend.service.TournamentService;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guards the live tournament views on the broker like their REST counterparts: subscribing to a
+ * destination under {@code /tournament/{id}} needs the public access token of that tournament in
+ * the header {@code token}. Rejected subscriptions are answered with an ERROR frame.
+ * The simple broker matches subscriptions as patterns, so destinations with anything but a single
+ * tournament id, e.g. {@code /tournament/*}{@code /matches}, are rejected as well.
+ */
+@Component
+public class TournamentSubscriptionInterceptor implements ChannelInterceptor {
+
+    public static final String TOKEN_HEADER = "token";
+
+    private static final String PREFIX = "/tournament";
+    private static final Pattern TOURNAMENT_DESTINATION = Pattern.compile(
+        "^/tournament/(\\d{1,18})(/[\\w-]+)*$"
+    );
+
+    private final TournamentService tournamentService;
+
+    public TournamentSubscriptionInterceptor(TournamentService tournamentService) {
+        this.tournamentService = tournamentService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        var accessor = SimpMessageHeaderAccessor.wrap(message);
+        var destination = accessor.getDestination();
+        if (
+            accessor.getMessageType() != SimpMessageType.SUBSCRIBE ||
+            destination == null ||
+            !destination.startsWith(PREFIX)
+        ) {
+            return message;
+        }
+
+        var matcher = TOURNAMENT_DESTINATION.matcher(destination);
+        if (!matcher.matches()) {
+            throw new MessageDeliveryException(message, "Unknown destination " + destination);
+        }
+        var token = accessor.getFirstNativeHeader(TOKEN_HEADER);
+        try {
+            tournamentService.assertAccessTokenIsCorrect(
+                Long.parseLong(matcher.group(1)),
+                UUID.fromString(token == null ? "" : token)
+            );
+        } catch (
+            IllegalArgumentException
+            | BadTournamentPublicAccessTokenException
+            | NotFoundException e
+        ) {
+            throw new MessageDeliveryException(
+                message,
+                "Subscribing to " + destination + " needs the tournament's public access token",
+                e
+            );
+        }
+        return message;
+    }
+}
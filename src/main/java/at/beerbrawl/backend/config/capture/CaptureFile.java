@@ -0,0 +1,249 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.capture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The append-only file requests are captured to. After a magic number, every request is a record
+ * of its own, prefixed with its length. Capturing again appends to the requests captured before,
+ * after cutting off a last record that a crash left incomplete.
+ * Strings are stored in modified UTF-8, absent ones as the empty string.
+ */
+public final class CaptureFile {
+
+    /**
+     * {@code BBC} and the version of the format.
+     */
+    static final int MAGIC = 0x42424301;
+
+    private CaptureFile() {}
+
+    /**
+     * Open the file for appending, starting it if it is new.
+     *
+     * @throws IllegalStateException if the file holds something else than captured requests
+     */
+    public static Writer append(Path file) throws IOException {
+        var existing = Files.exists(file) && Files.size(file) > 0;
+        if (existing) {
+            truncateIncompleteRecord(file);
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        var out = new DataOutputStream(
+            new BufferedOutputStream(
+                Files.newOutputStream(
+                    file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND,
+                    StandardOpenOption.WRITE
+                )
+            )
+        );
+        if (!existing) {
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+        return new Writer(out);
+    }
+
+    public static Reader read(Path file) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            checkMagic(in.readInt(), file);
+        } catch (IOException | IllegalStateException e) {
+            in.close();
+            throw e;
+        }
+        return new Reader(in);
+    }
+
+    private static void truncateIncompleteRecord(Path file) throws IOException {
+        try (
+            var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        ) {
+            var header = ByteBuffer.allocate(Integer.BYTES);
+            if (channel.read(header, 0) < Integer.BYTES) {
+                throw new IllegalStateException("%s is not a request capture".formatted(file));
+            }
+            checkMagic(header.getInt(0), file);
+            long complete = Integer.BYTES;
+            while (complete + Integer.BYTES <= channel.size()) {
+                header.clear();
+                channel.read(header, complete);
+                var end = complete + Integer.BYTES + header.getInt(0);
+                if (end > channel.size()) {
+                    break;
+                }
+                complete = end;
+            }
+            if (complete < channel.size()) {
+                channel.truncate(complete);
+            }
+        }
+    }
+
+    private static void checkMagic(int magic, Path file) {
+        if (magic != MAGIC) {
+            throw new IllegalStateException("%s is not a request capture".formatted(file));
+        }
+    }
+
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Append a request and flush it, so it survives the process.
+         */
+        public void write(CapturedRequest request) throws IOException {
+            var record = new ByteArrayOutputStream(
+                256 + request.body().length + request.response().length
+            );
+            var data = new DataOutputStream(record);
+            data.writeLong(request.startedAt().getEpochSecond());
+            data.writeInt(request.startedAt().getNano());
+            data.writeLong(request.nanos());
+            data.writeUTF(request.method());
+            data.writeUTF(request.path());
+            writeNullable(data, request.query());
+            writeNullable(data, request.contentType());
+            writeNullable(data, request.user());
+            data.writeShort(request.roles().size());
+            for (var role : request.roles()) {
+                data.writeUTF(role);
+            }
+            data.writeShort(request.status());
+            writeBytes(data, request.body());
+            data.writeShort(request.parts().size());
+            for (var part : request.parts()) {
+                data.writeUTF(part.name());
+                writeNullable(data, part.filename());
+                writeNullable(data, part.contentType());
+                writeBytes(data, part.content());
+            }
+            writeBytes(data, request.response());
+
+            out.writeInt(record.size());
+            record.writeTo(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private static void writeNullable(DataOutputStream data, String value) throws IOException {
+            data.writeUTF(value == null ? "" : value);
+        }
+
+        private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next request, or empty at the end of the file or at a record cut short
+         */
+        public Optional<CapturedRequest> next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return Optional.empty();
+            }
+            var record = in.readNBytes(length);
+            if (record.length < length) {
+                return Optional.empty();
+            }
+            var data = new DataInputStream(new ByteArrayInputStream(record));
+            var startedAt = Instant.ofEpochSecond(data.readLong(), data.readInt());
+            var nanos = data.readLong();
+            var method = data.readUTF();
+            var path = data.readUTF();
+            var query = readNullable(data);
+            var contentType = readNullable(data);
+            var user = readNullable(data);
+            var roles = new ArrayList<String>();
+            for (int i = data.readShort(); i > 0; i--) {
+                roles.add(data.readUTF());
+            }
+            var status = data.readShort();
+            var body = readBytes(data);
+            var parts = new ArrayList<CapturedRequest.Part>();
+            for (int i = data.readShort(); i > 0; i--) {
+                parts.add(
+                    new CapturedRequest.Part(
+                        data.readUTF(),
+                        readNullable(data),
+                        readNullable(data),
+                        readBytes(data)
+                    )
+                );
+            }
+            var response = readBytes(data);
+            return Optional.of(
+                new CapturedRequest(
+                    startedAt,
+                    nanos,
+                    method,
+                    path,
+                    query,
+                    contentType,
+                    user,
+                    List.copyOf(roles),
+                    status,
+                    body,
+                    List.copyOf(parts),
+                    response
+                )
+            );
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private static String readNullable(DataInputStream data) throws IOException {
+            var value = data.readUTF();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static byte[] readBytes(DataInputStream data) throws IOException {
+            return data.readNBytes(data.readInt());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.capture;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A mutating request as it was answered, with secrets already redacted.
+ *
+ * @param startedAt when the request came in, read from the clock the tournament flow uses
+ * @param nanos how long it took to answer
+ * @param query the query string, or {@code null}
+ * @param contentType the content type of the body, or {@code null}
+ * @param user the authenticated user, or {@code null} for anonymous requests
+ * @param roles the authorities of {@code user}
+ * @param body the body, empty for multipart requests
+ * @param parts the parts of a multipart request
+ * @param response the JSON body of a successful response, empty otherwise
+ */
+public record CapturedRequest(
+    Instant startedAt,
+    long nanos,
+    String method,
+    String path,
+    String query,
+    String contentType,
+    String user,
+    List<String> roles,
+    int status,
+    byte[] body,
+    List<Part> parts,
+    byte[] response
+) {
+    /**
+     * @param filename the name of an uploaded file, or {@code null}
+     * @param contentType the content type of the part, or {@code null}
+     */
+    public record Part(String name, String filename, String contentType, byte[] content) {}
+
+    public boolean isMultipart() {
+        return !parts.isEmpty();
+    }
+}
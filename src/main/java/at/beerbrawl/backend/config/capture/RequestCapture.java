@@ -0,0 +1,54 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.capture;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends the captured requests to {@code beerbrawl.request-capture.file}, one at a time in the
+ * order they were answered. Requests are written on the thread that answered them, after they
+ * were timed, so a replay never misses one. Failing to write is logged, never passed on to the
+ * request.
+ */
+public class RequestCapture implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final Path file;
+    private final CaptureFile.Writer writer;
+    private boolean closed;
+
+    public RequestCapture(Path file) throws IOException {
+        this.file = file;
+        this.writer = CaptureFile.append(file);
+        LOG.info("Capturing mutating requests to {}", file.toAbsolutePath());
+    }
+
+    public synchronized void append(CapturedRequest request) {
+        if (closed) {
+            return;
+        }
+        try {
+            writer.write(request);
+        } catch (IOException e) {
+            LOG.warn("Could not capture {} {} to {}", request.method(), request.path(), file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close the request capture {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * ServletFilter to capture every mutating request for a later replay, see {@link RequestCapture}.
+ * Secrets are redacted before anything is written: the authorization header is never kept, only
+ * the user it authenticated, and JSON fields named like a password as well as the {@code token}
+ * query parameter are replaced by {@value #REDACTED}. Only JSON responses of successful requests
+ * are kept, so the replay can map the ids they handed out.
+ */
+public class RequestCaptureFilter extends OncePerRequestFilter {
+
+    public static final String REDACTED = "<redacted>";
+
+    private static final Set<String> CAPTURED_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final Set<String> SECRET_PARAMETERS = Set.of("token");
+    private static final int MAX_RESPONSE_BYTES = 64 * 1024;
+
+    private final RequestCapture capture;
+    private final Clock clock;
+    private final ObjectMapper objectMapper;
+
+    public RequestCaptureFilter(RequestCapture capture, Clock clock, ObjectMapper objectMapper) {
+        this.capture = capture;
+        this.clock = clock;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !CAPTURED_METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        FilterChain filterChain
+    ) throws ServletException, IOException {
+        var startedAt = clock.instant();
+        // the parts are gone once the dispatcher cleaned up, so they are read up front
+        var parts = isMultipart(request) ? readParts(request) : List.<CapturedRequest.Part>of();
+        var cachingRequest = new ContentCachingRequestWrapper(request);
+        var cachingResponse = new ContentCachingResponseWrapper(response);
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        var start = System.nanoTime();
+        var failed = true;
+        try {
+            filterChain.doFilter(cachingRequest, cachingResponse);
+            failed = false;
+        } finally {
+            var nanos = System.nanoTime() - start;
+            var status = failed
+                ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                : cachingResponse.getStatus();
+            var authenticated =
+                authentication != null &&
+                authentication.isAuthenticated() &&
+                !(authentication instanceof AnonymousAuthenticationToken);
+            var body = parts.isEmpty()
+                ? redactBody(request.getContentType(), cachingRequest.getContentAsByteArray())
+                : new byte[0];
+            capture.append(
+                new CapturedRequest(
+                    startedAt,
+                    nanos,
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    redactQuery(request.getQueryString()),
+                    request.getContentType(),
+                    authenticated ? authentication.getName() : null,
+                    authenticated
+                        ? authentication
+                            .getAuthorities()
+                            .stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .toList()
+                        : List.of(),
+                    status,
+                    body,
+                    parts,
+                    keptResponse(status, cachingResponse)
+                )
+            );
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        var contentType = request.getContentType();
+        return (
+            contentType != null &&
+            contentType.toLowerCase(Locale.ROOT).startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)
+        );
+    }
+
+    private List<CapturedRequest.Part> readParts(HttpServletRequest request) throws IOException {
+        var parts = new ArrayList<CapturedRequest.Part>();
+        try {
+            for (var part : request.getParts()) {
+                byte[] content;
+                try (var in = part.getInputStream()) {
+                    content = in.readAllBytes();
+                }
+                parts.add(
+                    new CapturedRequest.Part(
+                        part.getName(),
+                        part.getSubmittedFileName(),
+                        part.getContentType(),
+                        redactBody(part.getContentType(), content)
+                    )
+                );
+            }
+        } catch (ServletException | IllegalStateException e) {
+            // not parseable, the dispatcher fails the request and the failure is captured
+            return List.of();
+        }
+        return parts;
+    }
+
+    private static String redactQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        return Arrays.stream(query.split("&"))
+            .map(parameter -> {
+                var name = URLDecoder.decode(
+                    parameter.substring(0, Math.max(parameter.indexOf('='), 0)),
+                    StandardCharsets.UTF_8
+                );
+                return SECRET_PARAMETERS.contains(name) ? name + "=" + REDACTED : parameter;
+            })
+            .collect(Collectors.joining("&"));
+    }
+
+    /**
+     * Redact a JSON body, drop it if it isn't valid JSON as it could hide a secret anywhere.
+     * Other bodies are kept as they are.
+     */
+    private byte[] redactBody(String contentType, byte[] body) {
+        if (body.length == 0 || !isJson(contentType)) {
+            return body;
+        }
+        try {
+            var json = objectMapper.readTree(body);
+            redact(json);
+            return objectMapper.writeValueAsBytes(json);
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * The redacted response if it is a JSON object or array, so no bare token is ever kept.
+     */
+    private byte[] keptResponse(int status, ContentCachingResponseWrapper response) {
+        var body = response.getContentAsByteArray();
+        if (
+            status / 100 != 2 ||
+            !isJson(response.getContentType()) ||
+            body.length > MAX_RESPONSE_BYTES
+        ) {
+            return new byte[0];
+        }
+        try {
+            var json = objectMapper.readTree(body);
+            if (!json.isContainerNode()) {
+                return new byte[0];
+            }
+            redact(json);
+            return objectMapper.writeValueAsBytes(json);
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    private static void redact(JsonNode json) {
+        if (json instanceof ObjectNode object) {
+            var names = new ArrayList<String>();
+            object.fieldNames().forEachRemaining(names::add);
+            for (var name : names) {
+                if (name.toLowerCase(Locale.ROOT).contains("password")) {
+                    object.put(name, REDACTED);
+                } else {
+                    redact(object.get(name));
+                }
+            }
+        } else if (json != null && json.isArray()) {
+            json.forEach(RequestCaptureFilter::redact);
+        }
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            var type = MediaType.parseMediaType(contentType);
+            return (
+                type.isCompatibleWith(MediaType.APPLICATION_JSON) ||
+                type.getSubtype().endsWith("+json")
+            );
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Decoding, converting and re-encoding of an uploaded image, with its duration.
+ */
+@Name("at.beerbrawl.ImageProcessing")
+@Label("Image Processing")
+@Category({ "BeerBrawl", "Media" })
+@Description("An uploaded image decoded and re-encoded as JPEG")
+@StackTrace(false)
+public class ImageProcessingEvent extends Event {
+
+    @Label("Tournament")
+    public long tournamentId;
+
+    @Label("Upload Size")
+    @DataAmount
+    public long uploadBytes;
+
+    @Label("Stored Size")
+    @DataAmount
+    public long storedBytes;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Succeeded")
+    @Description("False if the image could not be decoded or its resolution was rejected")
+    public boolean succeeded;
+}
@@ -0,0 +1,205 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.diagnostics;
+
+import at.beerbrawl.backend.util.BeerDateTime;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Collects what Hibernate did on behalf of which service method, and the slowest SQL statements.
+ * Work is attributed to the outermost transactional method of this application; work outside of
+ * such a transaction to the closest caller of this application on the stack.
+ * Fed by {@link QueryStatistics}, read through the {@code queries} actuator endpoint.
+ */
+public class QueryDiagnostics {
+
+    private static final String APPLICATION_PACKAGE = "at.beerbrawl.backend.";
+    private static final String UNKNOWN_CALLER = "unknown";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final int slowestCapacity;
+    private final Map<String, Counters> byMethod = new ConcurrentHashMap<>();
+    private final PriorityQueue<SlowQuery> slowest = new PriorityQueue<>(
+        Comparator.comparingLong(SlowQuery::millis)
+    );
+
+    /**
+     * @param slowestCapacity how many of the slowest statements to keep
+     */
+    public QueryDiagnostics(int slowestCapacity) {
+        this.slowestCapacity = slowestCapacity;
+    }
+
+    public enum Kind {
+        STATEMENT,
+        QUERY,
+        ENTITY_LOAD,
+        ENTITY_FETCH,
+        COLLECTION_LOAD,
+        COLLECTION_FETCH,
+        CACHE_HIT,
+        CACHE_MISS,
+    }
+
+    /**
+     * What Hibernate did for one service method since the last reset.
+     *
+     * @param statements JDBC statements prepared
+     * @param queries HQL and native queries executed
+     * @param queryMillis time spent executing those queries
+     */
+    public record MethodStatistics(
+        String method,
+        long statements,
+        long queries,
+        long queryMillis,
+        long entityLoads,
+        long entityFetches,
+        long collectionLoads,
+        long collectionFetches,
+        long secondLevelCacheHits,
+        long secondLevelCacheMisses
+    ) {}
+
+    /**
+     * A slow statement. The SQL is as prepared, so its {@code ?} placeholders show the shape of
+     * the bind parameters, e.g. how long an {@code in} list was, but never their values.
+     */
+    public record SlowQuery(
+        String sql,
+        int parameters,
+        long millis,
+        String method,
+        LocalDateTime executedAt
+    ) {}
+
+    public record Report(List<MethodStatistics> methods, List<SlowQuery> slowest) {}
+
+    public void record(Kind kind) {
+        byMethod.computeIfAbsent(caller(), method -> new Counters()).add(kind, 0);
+    }
+
+    public void queryExecuted(long millis) {
+        byMethod.computeIfAbsent(caller(), method -> new Counters()).add(Kind.QUERY, millis);
+    }
+
+    public void slowQuery(String sql, long millis) {
+        synchronized (slowest) {
+            if (slowest.size() >= slowestCapacity) {
+                if (slowest.peek().millis() >= millis) {
+                    return;
+                }
+                slowest.poll();
+            }
+            slowest.add(
+                new SlowQuery(sql, parameters(sql), millis, caller(), BeerDateTime.nowUtc())
+            );
+        }
+    }
+
+    /**
+     * @return the methods that ran the most statements first, the slowest statements first
+     */
+    public Report report() {
+        var methods = byMethod
+            .entrySet()
+            .stream()
+            .map(e -> e.getValue().toStatistics(e.getKey()))
+            .sorted(Comparator.comparingLong(MethodStatistics::statements).reversed())
+            .toList();
+        List<SlowQuery> slow;
+        synchronized (slowest) {
+            slow = slowest
+                .stream()
+                .sorted(Comparator.comparingLong(SlowQuery::millis).reversed())
+                .toList();
+        }
+        return new Report(methods, slow);
+    }
+
+    public void reset() {
+        byMethod.clear();
+        synchronized (slowest) {
+            slowest.clear();
+        }
+    }
+
+    private static String caller() {
+        var transaction = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (transaction != null && transaction.startsWith(APPLICATION_PACKAGE)) {
+            return shorten(transaction);
+        }
+        // repository transactions or none at all, only walk the stack then
+        return STACK_WALKER.walk(frames ->
+            frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE))
+                .filter(frame -> !frame.getClassName().contains(".config.diagnostics."))
+                .filter(frame -> !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> shorten(frame.getClassName() + "." + frame.getMethodName()))
+                .orElse(UNKNOWN_CALLER)
+        );
+    }
+
+    /**
+     * {@code at.beerbrawl.backend.service.impl.TeamServiceImpl.create} to
+     * {@code TeamServiceImpl.create}.
+     */
+    private static String shorten(String qualifiedMethod) {
+        var methodStart = qualifiedMethod.lastIndexOf('.');
+        return qualifiedMethod.substring(qualifiedMethod.lastIndexOf('.', methodStart - 1) + 1);
+    }
+
+    private static int parameters(String sql) {
+        var count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class Counters {
+
+        private final LongAdder[] counts = new LongAdder[Kind.values().length];
+        private final LongAdder queryMillis = new LongAdder();
+
+        Counters() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void add(Kind kind, long millis) {
+            counts[kind.ordinal()].increment();
+            queryMillis.add(millis);
+        }
+
+        MethodStatistics toStatistics(String method) {
+            return new MethodStatistics(
+                method,
+                count(Kind.STATEMENT),
+                count(Kind.QUERY),
+                queryMillis.sum(),
+                count(Kind.ENTITY_LOAD),
+                count(Kind.ENTITY_FETCH),
+                count(Kind.COLLECTION_LOAD),
+                count(Kind.COLLECTION_FETCH),
+                count(Kind.CACHE_HIT),
+                count(Kind.CACHE_MISS)
+            );
+        }
+
+        private long count(Kind kind) {
+            return counts[kind.ordinal()].sum();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.diagnostics;
+
+import java.time.Duration;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on Hibernate statistics and reports them per service method, instead of {@code show-sql}.
+ * Statements slower than {@code beerbrawl.query-diagnostics.slow-query-threshold} compete for the
+ * {@code beerbrawl.query-diagnostics.slowest} places of the slow query list.
+ * Can be switched off with {@code beerbrawl.query-diagnostics.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(
+    name = "beerbrawl.query-diagnostics.enabled",
+    havingValue = "true",
+    matchIfMissing = true
+)
+public class QueryDiagnosticsConfig {
+
+    @Bean
+    public QueryDiagnostics queryDiagnostics(
+        @Value("${beerbrawl.query-diagnostics.slowest:50}") int slowest
+    ) {
+        return new QueryDiagnostics(slowest);
+    }
+
+    @Bean
+    public QueryDiagnosticsEndpoint queryDiagnosticsEndpoint(QueryDiagnostics diagnostics) {
+        return new QueryDiagnosticsEndpoint(diagnostics);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryStatisticsCustomizer(
+        QueryDiagnostics diagnostics,
+        @Value("${beerbrawl.query-diagnostics.slow-query-threshold:5ms}") Duration threshold
+    ) {
+        StatisticsFactory statistics = sessionFactory ->
+            new QueryStatistics(sessionFactory, diagnostics);
+        return properties -> {
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(AvailableSettings.STATS_BUILDER, statistics);
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, threshold.toMillis());
+        };
+    }
+}
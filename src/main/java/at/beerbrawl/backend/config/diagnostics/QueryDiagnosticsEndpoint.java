@@ -0,0 +1,31 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.diagnostics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@code /actuator/queries} on the management port: Hibernate statistics per service method and
+ * the slowest SQL statements since the start or the last {@code DELETE}.
+ */
+@Endpoint(id = "queries")
+public class QueryDiagnosticsEndpoint {
+
+    private final QueryDiagnostics diagnostics;
+
+    public QueryDiagnosticsEndpoint(QueryDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @ReadOperation
+    public QueryDiagnostics.Report queries() {
+        return diagnostics.report();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        diagnostics.reset();
+    }
+}
@@ -0,0 +1,88 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.diagnostics;
+
+import at.beerbrawl.backend.config.diagnostics.QueryDiagnostics.Kind;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.model.domain.NavigableRole;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Hibernate's own statistics, additionally reporting to {@link QueryDiagnostics} on the thread
+ * that did the work, so it can be attributed to the calling service method.
+ */
+public class QueryStatistics extends StatisticsImpl {
+
+    private final QueryDiagnostics diagnostics;
+
+    public QueryStatistics(SessionFactoryImplementor sessionFactory, QueryDiagnostics diagnostics) {
+        super(sessionFactory);
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public void prepareStatement() {
+        super.prepareStatement();
+        diagnostics.record(Kind.STATEMENT);
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        diagnostics.queryExecuted(time);
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        diagnostics.record(Kind.ENTITY_LOAD);
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        diagnostics.record(Kind.ENTITY_FETCH);
+    }
+
+    @Override
+    public void loadCollection(String role) {
+        super.loadCollection(role);
+        diagnostics.record(Kind.COLLECTION_LOAD);
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        diagnostics.record(Kind.COLLECTION_FETCH);
+    }
+
+    @Override
+    public void entityCacheHit(NavigableRole entityName, String regionName) {
+        super.entityCacheHit(entityName, regionName);
+        diagnostics.record(Kind.CACHE_HIT);
+    }
+
+    @Override
+    public void entityCacheMiss(NavigableRole entityName, String regionName) {
+        super.entityCacheMiss(entityName, regionName);
+        diagnostics.record(Kind.CACHE_MISS);
+    }
+
+    @Override
+    public void collectionCacheHit(NavigableRole collectionRole, String regionName) {
+        super.collectionCacheHit(collectionRole, regionName);
+        diagnostics.record(Kind.CACHE_HIT);
+    }
+
+    @Override
+    public void collectionCacheMiss(NavigableRole collectionRole, String regionName) {
+        super.collectionCacheMiss(collectionRole, regionName);
+        diagnostics.record(Kind.CACHE_MISS);
+    }
+
+    @Override
+    public void slowQuery(String sql, long executionTime) {
+        super.slowQuery(sql, executionTime);
+        diagnostics.slowQuery(sql, executionTime);
+    }
+}
@@ -0,0 +1,37 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A pass of the scheduler over the queued matches of a tournament, with its duration.
+ */
+@Name("at.beerbrawl.Scheduling")
+@Label("Scheduling Pass")
+@Category({ "BeerBrawl", "Scheduling" })
+@Description("Queued matches assigned to the free tables of a tournament")
+@StackTrace(false)
+public class SchedulingEvent extends Event {
+
+    @Label("Tournament")
+    public long tournamentId;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Queued Matches")
+    public int queued;
+
+    @Label("Free Tables")
+    @Description("Tables without a match before the pass")
+    public int freeTables;
+
+    @Label("Assignments")
+    public int assigned;
+}
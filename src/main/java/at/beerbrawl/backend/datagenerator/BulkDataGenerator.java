@@ -0,0 +1,652 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.datagenerator;
+
+import at.beerbrawl.backend.BackendApplication;
+import at.beerbrawl.backend.enums.MediaState;
+import at.beerbrawl.backend.util.BeerDateTime;
+import at.beerbrawl.backend.util.ContentHash;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.PostgresSequenceMaxValueIncrementer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills a database with years of tournament history through JDBC batch inserts, to try queries
+ * and indexes against realistic volumes. Bypasses the services and their validation: the rows
+ * are written as the services would have left them once everything was played, organizers with
+ * their tournaments, teams and tables, qualification and KO matches with results and the shared
+ * pictures.
+ * The generator hands out the ids itself, above everything already in the database, and moves
+ * the sequences and identity columns past them when it's done, so that the application keeps
+ * inserting next to the generated rows. Works on H2 and PostgreSQL, for the latter add
+ * {@code reWriteBatchedInserts=true} to the JDBC URL to send every batch as one statement.
+ */
+public class BulkDataGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+        MethodHandles.lookup().lookupClass()
+    );
+    public static final String ORGANIZER_PASSWORD = "bulk_organizer_password";
+
+    private static final int KO_TEAMS = 16;
+    /**
+     * Left free after the generated ids, beyond any block Hibernate's pooled optimizer derives
+     * from the restarted sequences.
+     */
+    private static final long ID_GAP = 1_000;
+    private static final String TOURNAMENT_SEQUENCE = "tournament_seq";
+    private static final String MATCH_SEQUENCE = "match_seq";
+    // tables whose ids are drawn from the tournament sequence, or are identity columns
+    private static final List<String> ID_TABLES = List.of(
+        "application_user",
+        "tournament",
+        "team",
+        "beer_pong_table",
+        "shared_media"
+    );
+
+    private static final List<String> TOURNAMENT_NAMES = List.of(
+        "Semesterclosing",
+        "Ferienturnier",
+        "Sommerfest",
+        "Erstsemestrigen Cup",
+        "Wintercup",
+        "Pfeilheim Open",
+        "Maibaum Masters",
+        "Oktoberpong"
+    );
+    private static final List<String> TEAM_NAMES = List.of(
+        "Pongmeister",
+        "Bierathleten",
+        "Becherstürmer",
+        "Hopfenhüpfer",
+        "PongProfis",
+        "Bierbuddies",
+        "Schaumjäger",
+        "Ponghelden",
+        "Becherritter",
+        "Bierwerfer",
+        "Malzmagier",
+        "Zielwasser",
+        "Gerstengang",
+        "Kronkorken",
+        "Treffsicher",
+        "Bechertreter"
+    );
+    private static final List<String> AUTHORS = List.of(
+        "Anna Huber",
+        "Lukas Gruber",
+        "Lena Wagner",
+        "David Bauer",
+        "Sophie Pichler",
+        "Felix Moser"
+    );
+    private static final List<String> TITLES = List.of(
+        "Siegerehrung",
+        "Letzter Becher",
+        "Das Finale",
+        "Unser Tisch",
+        "Trickshot",
+        "Gruppenfoto"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+
+    public BulkDataGenerator(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        PasswordEncoder passwordEncoder
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    /**
+     * Rows inserted per table, and how long it took.
+     */
+    public record Report(Map<String, Long> rows, Duration took) {
+        public long total() {
+            return rows.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            return "%d rows in %d ms (%.0f rows/s): %s".formatted(
+                    total(),
+                    took.toMillis(),
+                    total() / Math.max(took.toNanos() / 1e9, 1e-9),
+                    rows
+                );
+        }
+    }
+
+    public Report generate(BulkDataParameters parameters) {
+        return new Run(parameters).generate();
+    }
+
+    /**
+     * Pending rows of one table, inserted as a single batch.
+     */
+    private class Rows {
+
+        private final String table;
+        private final String sql;
+        private final int[] types;
+        private List<Object[]> pending = new ArrayList<>();
+        private long inserted;
+
+        Rows(String table, String columns, int... types) {
+            this.table = table;
+            this.sql = "INSERT INTO %s (%s) VALUES (%s)".formatted(
+                    table,
+                    columns,
+                    String.join(", ", Collections.nCopies(types.length, "?"))
+                );
+            this.types = types;
+        }
+
+        void add(Object... values) {
+            pending.add(values);
+        }
+
+        int size() {
+            return pending.size();
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(sql, pending, types);
+            inserted += pending.size();
+            pending = new ArrayList<>();
+        }
+    }
+
+    private class Run {
+
+        private final BulkDataParameters parameters;
+        private final Random random;
+        private final LocalDateTime now = BeerDateTime.nowUtc();
+        private final byte[] image = loadImage();
+        private final String imageHash = ContentHash.sha256Hex(image);
+        private final String passwordHash = passwordEncoder.encode(ORGANIZER_PASSWORD);
+        private long nextId;
+        private long nextMatchId;
+
+        // in the order of the foreign keys between them
+        private final Rows users = new Rows(
+            "application_user",
+            "id, admin, password, username",
+            Types.BIGINT,
+            Types.BOOLEAN,
+            Types.VARCHAR,
+            Types.VARCHAR
+        );
+        private final Rows tournaments = new Rows(
+            "tournament",
+            "id, max_participants, organizer_id, registration_end, public_access_token, " +
+            "description, name",
+            Types.BIGINT,
+            Types.BIGINT,
+            Types.BIGINT,
+            Types.TIMESTAMP,
+            SqlTypeValue.TYPE_UNKNOWN,
+            Types.VARCHAR,
+            Types.VARCHAR
+        );
+        private final Rows teams = new Rows(
+            "team",
+            "id, checked_in, available_since, tournament_id, name",
+            Types.BIGINT,
+            Types.BOOLEAN,
+            Types.TIMESTAMP,
+            Types.BIGINT,
+            Types.VARCHAR
+        );
+        private final Rows tables = new Rows(
+            "beer_pong_table",
+            "id, current_match_id, tournament_id, version, name",
+            Types.BIGINT,
+            Types.BIGINT,
+            Types.BIGINT,
+            Types.TIMESTAMP_WITH_TIMEZONE,
+            Types.VARCHAR
+        );
+        private final Rows matches = new Rows(
+            "match",
+            "id, start_time, end_time, tournament_id",
+            Types.BIGINT,
+            Types.TIMESTAMP,
+            Types.TIMESTAMP,
+            Types.BIGINT
+        );
+        private final Rows qualificationMatches = new Rows(
+            "qualification_match",
+            "id, winner_id, winner_points",
+            Types.BIGINT,
+            Types.BIGINT,
+            Types.BIGINT
+        );
+        private final Rows participations = new Rows(
+            "qualification_participation",
+            "drinks_collected, qualification_match_id, team_id",
+            Types.BOOLEAN,
+            Types.BIGINT,
+            Types.BIGINT
+        );
+        private final Rows koStandings = new Rows(
+            "ko_standing",
+            "id, drinks_collected, next_standing_id, team_id",
+            Types.BIGINT,
+            Types.BOOLEAN,
+            Types.BIGINT,
+            Types.BIGINT
+        );
+        private final Rows media = new Rows(
+            "shared_media",
+            "id, tournament_id, author, title, image, state, content_hash, upload_hash, " +
+            "uploaded_at",
+            Types.BIGINT,
+            Types.BIGINT,
+            Types.VARCHAR,
+            Types.VARCHAR,
+            SqlTypeValue.TYPE_UNKNOWN,
+            Types.VARCHAR,
+            Types.VARCHAR,
+            Types.VARCHAR,
+            Types.TIMESTAMP
+        );
+        private final List<Rows> allRows = List.of(
+            users,
+            tournaments,
+            teams,
+            tables,
+            matches,
+            qualificationMatches,
+            participations,
+            koStandings,
+            media
+        );
+
+        Run(BulkDataParameters parameters) {
+            this.parameters = parameters;
+            this.random = new Random(parameters.seed());
+        }
+
+        Report generate() {
+            var start = System.nanoTime();
+            nextId = firstFreeId(TOURNAMENT_SEQUENCE, ID_TABLES);
+            nextMatchId = firstFreeId(MATCH_SEQUENCE, List.of("match"));
+
+            for (int o = 0; o < parameters.organizers(); o++) {
+                var organizerId = nextId++;
+                users.add(organizerId, false, passwordHash, "organizer" + organizerId);
+                for (int t = 0; t < parameters.tournamentsPerOrganizer(); t++) {
+                    tournament(organizerId);
+                    if (allRows.stream().mapToInt(Rows::size).sum() >= parameters.batchSize()) {
+                        flush();
+                    }
+                }
+                if ((o + 1) % 100 == 0) {
+                    LOGGER.info("Generated the history of {} organizers", o + 1);
+                }
+            }
+            flush();
+            moveGeneratorsPast(nextId, nextMatchId);
+
+            var inserted = new LinkedHashMap<String, Long>();
+            allRows.forEach(rows -> inserted.put(rows.table, rows.inserted));
+            return new Report(inserted, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        /**
+         * Everything pending in one transaction, parents before their children.
+         */
+        private void flush() {
+            transactionTemplate.executeWithoutResult(status -> allRows.forEach(Rows::flush));
+        }
+
+        private void tournament(long organizerId) {
+            var tournamentId = nextId++;
+            var played = random.nextDouble() < parameters.playedShare();
+            var eventStart = played
+                ? LocalDate.from(now)
+                    .minusDays(1 + random.nextInt(parameters.years() * 365))
+                    .atTime(LocalTime.of(19, 0))
+                : LocalDate.from(now).plusDays(2 + random.nextInt(60)).atTime(LocalTime.of(19, 0));
+            var name = "%s %d".formatted(pick(TOURNAMENT_NAMES), eventStart.getYear());
+            tournaments.add(
+                tournamentId,
+                (long) parameters.teamsPerTournament(),
+                organizerId,
+                eventStart.minusDays(1),
+                new UUID(random.nextLong(), random.nextLong()),
+                "Beerpongturnier von Organisator %d".formatted(organizerId),
+                name
+            );
+
+            var teamCount = played
+                ? parameters.teamsPerTournament()
+                : 2 + random.nextInt(parameters.teamsPerTournament() - 1);
+            var teamIds = new ArrayList<Long>();
+            for (int i = 0; i < teamCount; i++) {
+                teamIds.add(nextId++);
+            }
+            var tableIds = new ArrayList<Long>();
+            for (int i = 0; i < parameters.tablesPerTournament(); i++) {
+                var tableId = nextId++;
+                tableIds.add(tableId);
+                tables.add(
+                    tableId,
+                    null,
+                    tournamentId,
+                    OffsetDateTime.of(eventStart, ZoneOffset.UTC),
+                    "Tisch " + (i + 1)
+                );
+            }
+
+            var availableSince = played
+                ? play(tournamentId, eventStart, teamIds)
+                : Map.<Long, LocalDateTime>of();
+            for (int i = 0; i < teamIds.size(); i++) {
+                var teamId = teamIds.get(i);
+                teams.add(teamId, played, availableSince.get(teamId), tournamentId, teamName(i));
+            }
+
+            if (played) {
+                pictures(tournamentId, eventStart);
+            }
+        }
+
+        /**
+         * Play the qualification and the KO phase on the tables of the tournament.
+         *
+         * @return when each team played its last match
+         */
+        private Map<Long, LocalDateTime> play(
+            long tournamentId,
+            LocalDateTime eventStart,
+            List<Long> teamIds
+        ) {
+            var tableFree = new LocalDateTime[parameters.tablesPerTournament()];
+            Arrays.fill(tableFree, eventStart);
+            var teamFree = new HashMap<Long, LocalDateTime>();
+            teamIds.forEach(teamId -> teamFree.put(teamId, eventStart));
+            var wins = new HashMap<Long, Integer>();
+
+            // every team plays its neighbours, like the qualification service draws them
+            var drawn = new ArrayList<>(teamIds);
+            Collections.shuffle(drawn, random);
+            for (int i = 0; i < drawn.size(); i++) {
+                var home = drawn.get(i);
+                var away = drawn.get(Math.floorMod(i - 1, drawn.size()));
+                var matchId = nextMatchId++;
+                var times = schedule(tableFree, teamFree, home, away);
+                var winner = random.nextBoolean() ? home : away;
+                wins.merge(winner, 1, Integer::sum);
+                matches.add(matchId, times[0], times[1], tournamentId);
+                qualificationMatches.add(matchId, winner, 1L + random.nextInt(10));
+                participations.add(true, matchId, home);
+                participations.add(true, matchId, away);
+            }
+
+            if (teamIds.size() >= KO_TEAMS) {
+                koPhase(tournamentId, tableFree, teamFree, wins, teamIds);
+            }
+            return teamFree;
+        }
+
+        /**
+         * A KO tree of the best 16 teams, cross-matched like the KO phase service does it and
+         * played round by round.
+         */
+        private void koPhase(
+            long tournamentId,
+            LocalDateTime[] tableFree,
+            Map<Long, LocalDateTime> teamFree,
+            Map<Long, Integer> wins,
+            List<Long> teamIds
+        ) {
+            // most wins first, ties in random order
+            var ranked = new ArrayList<>(teamIds);
+            Collections.shuffle(ranked, random);
+            ranked.sort(Comparator.comparingInt(teamId -> -wins.getOrDefault(teamId, 0)));
+            var qualified = ranked.subList(0, KO_TEAMS);
+
+            // layers from the leaves to the final, a standing holds the team that reached it
+            var layers = new ArrayList<long[]>();
+            var layerTeams = new ArrayList<long[]>();
+            var layerTimes = new ArrayList<LocalDateTime[][]>();
+            var leaves = new long[KO_TEAMS];
+            var leafTeams = new long[KO_TEAMS];
+            for (int i = 0; i < KO_TEAMS / 2; i++) {
+                leafTeams[i * 2] = qualified.get(i);
+                leafTeams[i * 2 + 1] = qualified.get(KO_TEAMS - 1 - i);
+            }
+            for (int i = 0; i < KO_TEAMS; i++) {
+                leaves[i] = nextMatchId++;
+            }
+            layers.add(leaves);
+            layerTeams.add(leafTeams);
+            layerTimes.add(new LocalDateTime[KO_TEAMS][]);
+
+            var roundStart = Arrays.stream(tableFree)
+                .max(Comparator.naturalOrder())
+                .orElseThrow()
+                .plusMinutes(20);
+            while (layers.getLast().length > 1) {
+                var previousTeams = layerTeams.getLast();
+                var ids = new long[previousTeams.length / 2];
+                var teamsOfLayer = new long[ids.length];
+                var times = new LocalDateTime[ids.length][];
+                Arrays.fill(tableFree, roundStart);
+                for (int i = 0; i < ids.length; i++) {
+                    var home = previousTeams[i * 2];
+                    var away = previousTeams[i * 2 + 1];
+                    ids[i] = nextMatchId++;
+                    times[i] = schedule(tableFree, teamFree, home, away);
+                    teamsOfLayer[i] = random.nextBoolean() ? home : away;
+                }
+                layers.add(ids);
+                layerTeams.add(teamsOfLayer);
+                layerTimes.add(times);
+                roundStart = Arrays.stream(tableFree).max(Comparator.naturalOrder()).orElseThrow();
+            }
+
+            // the final first, a standing refers to the one it leads to
+            for (int layer = layers.size() - 1; layer >= 0; layer--) {
+                var ids = layers.get(layer);
+                for (int i = 0; i < ids.length; i++) {
+                    var times = layerTimes.get(layer)[i];
+                    var isFinal = layer == layers.size() - 1;
+                    matches.add(
+                        ids[i],
+                        times == null ? null : times[0],
+                        times == null ? null : times[1],
+                        tournamentId
+                    );
+                    koStandings.add(
+                        ids[i],
+                        !isFinal,
+                        isFinal ? null : layers.get(layer + 1)[i / 2],
+                        layerTeams.get(layer)[i]
+                    );
+                }
+            }
+        }
+
+        /**
+         * Put a match on the table that gets free first, once both teams are there and got their
+         * drinks.
+         *
+         * @return start and end of the match
+         */
+        private LocalDateTime[] schedule(
+            LocalDateTime[] tableFree,
+            Map<Long, LocalDateTime> teamFree,
+            long home,
+            long away
+        ) {
+            var table = 0;
+            for (int i = 1; i < tableFree.length; i++) {
+                if (tableFree[i].isBefore(tableFree[table])) {
+                    table = i;
+                }
+            }
+            var ready = latest(tableFree[table], latest(teamFree.get(home), teamFree.get(away)));
+            var start = ready.plusSeconds(60 + random.nextInt(300));
+            var end = start.plusSeconds(8 * 60 + random.nextInt(12 * 60));
+            tableFree[table] = end;
+            teamFree.put(home, end);
+            teamFree.put(away, end);
+            return new LocalDateTime[] { start, end };
+        }
+
+        private void pictures(long tournamentId, LocalDateTime eventStart) {
+            for (int i = 0; i < parameters.mediaPerTournament(); i++) {
+                var mediaId = nextId++;
+                var state = switch (random.nextInt(20)) {
+                    case 16, 17 -> MediaState.PENDING;
+                    case 18 -> MediaState.REJECTED;
+                    case 19 -> MediaState.DELETED;
+                    default -> MediaState.APPROVED;
+                };
+                // all pictures share the bytes of one image, but every picture was taken on its
+                // own: neither the picture nor the upload is a duplicate of another one
+                media.add(
+                    mediaId,
+                    tournamentId,
+                    pick(AUTHORS),
+                    pick(TITLES),
+                    image,
+                    state.name(),
+                    ContentHash.sha256Hex(
+                        ("content " + imageHash + mediaId).getBytes(StandardCharsets.UTF_8)
+                    ),
+                    ContentHash.sha256Hex(
+                        (imageHash + mediaId).getBytes(StandardCharsets.UTF_8)
+                    ),
+                    eventStart.plusMinutes(random.nextInt(6 * 60))
+                );
+            }
+        }
+
+        private String teamName(int index) {
+            var name = TEAM_NAMES.get(index % TEAM_NAMES.size());
+            return index < TEAM_NAMES.size() ? name : name + " " + (index / TEAM_NAMES.size() + 1);
+        }
+
+        private String pick(List<String> values) {
+            return values.get(random.nextInt(values.size()));
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * The first id above everything in the tables and above the sequence, whose next value is
+     * drawn and thereby kept from the application.
+     */
+    private long firstFreeId(String sequence, List<String> tables) {
+        var next = incrementer(sequence).nextLongValue();
+        for (var table : tables) {
+            var max = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM " + table,
+                Long.class
+            );
+            next = Math.max(next, max + 1);
+        }
+        return next;
+    }
+
+    private DataFieldMaxValueIncrementer incrementer(String sequence) {
+        var dataSource = jdbcTemplate.getDataSource();
+        var product = jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName()
+        );
+        return switch (product) {
+            case "H2" -> new H2SequenceMaxValueIncrementer(dataSource, sequence);
+            case "PostgreSQL" -> new PostgresSequenceMaxValueIncrementer(dataSource, sequence);
+            default -> throw new IllegalStateException(
+                "Bulk data can only be generated into H2 or PostgreSQL, not " + product
+            );
+        };
+    }
+
+    /**
+     * Restart the sequences, and the identity columns of schemas Hibernate created, after the
+     * generated ids.
+     */
+    private void moveGeneratorsPast(long nextId, long nextMatchId) {
+        jdbcTemplate.execute(
+            "ALTER SEQUENCE %s RESTART WITH %d".formatted(TOURNAMENT_SEQUENCE, nextId + ID_GAP)
+        );
+        jdbcTemplate.execute(
+            "ALTER SEQUENCE %s RESTART WITH %d".formatted(MATCH_SEQUENCE, nextMatchId + ID_GAP)
+        );
+        for (var table : ID_TABLES) {
+            var identity = jdbcTemplate.queryForObject(
+                """
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE LOWER(table_name) = ? AND LOWER(column_name) = 'id' AND is_identity = 'YES'
+                """,
+                Integer.class,
+                table
+            );
+            if (identity > 0) {
+                jdbcTemplate.execute(
+                    "ALTER TABLE %s ALTER COLUMN id RESTART WITH %d".formatted(
+                            table,
+                            nextId + ID_GAP
+                        )
+                );
+            }
+        }
+    }
+
+    private static byte[] loadImage() {
+        try (
+            var in = BackendApplication.class.getClassLoader().getResourceAsStream("testimage.png")
+        ) {
+            return in == null ? new byte[0] : in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
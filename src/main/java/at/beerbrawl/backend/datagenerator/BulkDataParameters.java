@@ -0,0 +1,53 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.datagenerator;
+
+/**
+ * How much history the {@link BulkDataGenerator} fills a database with.
+ *
+ * @param organizers users that organize tournaments
+ * @param tournamentsPerOrganizer tournaments of every organizer
+ * @param teamsPerTournament teams signed up for a tournament, it needs 16 for a KO phase
+ * @param tablesPerTournament beer pong tables of every tournament
+ * @param playedShare share of the tournaments that were played through to the final, the others
+ *     are still open for signups
+ * @param mediaPerTournament pictures shared in every played tournament
+ * @param years how far back the played tournaments are spread
+ * @param batchSize rows inserted per JDBC batch
+ * @param seed of the random draws, the same seed fills the same history
+ */
+public record BulkDataParameters(
+    int organizers,
+    int tournamentsPerOrganizer,
+    int teamsPerTournament,
+    int tablesPerTournament,
+    double playedShare,
+    int mediaPerTournament,
+    int years,
+    int batchSize,
+    long seed
+) {
+    public BulkDataParameters {
+        if (
+            organizers < 0 ||
+            tournamentsPerOrganizer < 0 ||
+            teamsPerTournament < 2 ||
+            tablesPerTournament < 1 ||
+            mediaPerTournament < 0
+        ) {
+            throw new IllegalArgumentException(
+                "Tournaments need at least two teams and a table, counts can't be negative"
+            );
+        }
+        if (playedShare < 0 || playedShare > 1) {
+            throw new IllegalArgumentException("The played share must be between 0 and 1");
+        }
+        if (years < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Years and batch size must be positive");
+        }
+    }
+
+    public long tournaments() {
+        return (long) organizers * tournamentsPerOrganizer;
+    }
+}
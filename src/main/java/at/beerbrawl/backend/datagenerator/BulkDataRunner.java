@@ -0,0 +1,66 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.datagenerator;
+
+import java.lang.invoke.MethodHandles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Fills the database with a history of {@code beerbrawl.bulk-data.*} size once the application
+ * started, see {@link BulkDataGenerator}. The defaults make about a million and a half rows.
+ */
+@Profile("generateBulkData")
+@Component
+public class BulkDataRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+        MethodHandles.lookup().lookupClass()
+    );
+
+    private final BulkDataGenerator generator;
+    private final BulkDataParameters parameters;
+
+    public BulkDataRunner(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        PasswordEncoder passwordEncoder,
+        @Value("${beerbrawl.bulk-data.organizers:200}") int organizers,
+        @Value("${beerbrawl.bulk-data.tournaments-per-organizer:25}") int tournamentsPerOrganizer,
+        @Value("${beerbrawl.bulk-data.teams-per-tournament:48}") int teamsPerTournament,
+        @Value("${beerbrawl.bulk-data.tables-per-tournament:6}") int tablesPerTournament,
+        @Value("${beerbrawl.bulk-data.played-share:0.9}") double playedShare,
+        @Value("${beerbrawl.bulk-data.media-per-tournament:20}") int mediaPerTournament,
+        @Value("${beerbrawl.bulk-data.years:5}") int years,
+        @Value("${beerbrawl.bulk-data.batch-size:5000}") int batchSize,
+        @Value("${beerbrawl.bulk-data.seed:42}") long seed
+    ) {
+        this.generator = new BulkDataGenerator(jdbcTemplate, transactionManager, passwordEncoder);
+        this.parameters = new BulkDataParameters(
+            organizers,
+            tournamentsPerOrganizer,
+            teamsPerTournament,
+            tablesPerTournament,
+            playedShare,
+            mediaPerTournament,
+            years,
+            batchSize,
+            seed
+        );
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LOGGER.info("Generating bulk data {}", parameters);
+        var report = generator.generate(parameters);
+        LOGGER.info("Generated {}", report);
+    }
+}
@@ -24,6 +24,7 @@ import at.beerbrawl.backend.service.TournamentQualificationService;
 import at.beerbrawl.backend.service.TournamentService;
 import at.beerbrawl.backend.service.TournamentTeamService;
 import at.beerbrawl.backend.util.BeerDateTime;
+import at.beerbrawl.backend.util.ContentHash;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
@@ -198,6 +199,8 @@ public class TestDataGenerator {
         sharedMedia.setAuthor(author);
         sharedMedia.setTitle(title);
         sharedMedia.setImage(imageBytes);
+        sharedMedia.setContentHash(imageBytes == null ? null : ContentHash.sha256Hex(imageBytes));
+        sharedMedia.setUploadedAt(BeerDateTime.nowUtc());
         sharedMedia.setTournament(tournament);
         sharedMedia.setState(MediaState.PENDING);
 
@@ -0,0 +1,132 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint;
+
+import at.beerbrawl.backend.endpoint.dto.LiveMatchDto;
+import at.beerbrawl.backend.endpoint.dto.TeamNextMatchDto;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The next match of every team, derived from the live match view instead of querying the matches
+ * per request. The queue follows {@code MatchDomainService#getQualificationMatchQueue}.
+ */
+public final class TeamNextMatchIndex {
+
+    private TeamNextMatchIndex() {}
+
+    /**
+     * Build the index from the live match rows.
+     *
+     * @param matches the qualification matches ordered by expected start
+     * @param tableNames table names by table id
+     * @return the next match of every team that has qualification matches, by team id
+     */
+    public static Map<Long, TeamNextMatchDto> build(
+        Collection<LiveMatchDto> matches,
+        Map<Long, String> tableNames
+    ) {
+        var busyTeams = new HashSet<Long>();
+        for (var match : matches) {
+            if (isRunning(match.status())) {
+                busyTeams.addAll(match.teamIds());
+            }
+        }
+
+        // matches waiting for a table: all teams checked in, none playing or queued already
+        var queuePositions = new HashMap<Long, Integer>();
+        var queuedTeams = new HashSet<Long>();
+        for (var match : matches) {
+            if (
+                match.status() == MatchStatus.TEAMS_CHECKED_IN &&
+                match.teamIds().stream().noneMatch(busyTeams::contains) &&
+                match.teamIds().stream().noneMatch(queuedTeams::contains)
+            ) {
+                queuedTeams.addAll(match.teamIds());
+                queuePositions.put(match.id(), queuePositions.size() + 1);
+            }
+        }
+
+        var index = new HashMap<Long, TeamNextMatchDto>();
+        // a team plays one match at a time, if it is at a table that match comes first
+        for (var match : matches) {
+            if (isRunning(match.status())) {
+                for (var teamId : match.teamIds()) {
+                    index.putIfAbsent(teamId, view(teamId, match, tableNames, queuePositions));
+                }
+            }
+        }
+        // a queued match is played before earlier ones that wait for a busy team
+        for (var match : matches) {
+            if (queuePositions.containsKey(match.id())) {
+                for (var teamId : match.teamIds()) {
+                    index.putIfAbsent(teamId, view(teamId, match, tableNames, queuePositions));
+                }
+            }
+        }
+        for (var match : matches) {
+            if (match.status() != MatchStatus.FINISHED) {
+                for (var teamId : match.teamIds()) {
+                    index.putIfAbsent(teamId, view(teamId, match, tableNames, queuePositions));
+                }
+            }
+        }
+        for (var match : matches) {
+            for (var teamId : match.teamIds()) {
+                index.putIfAbsent(teamId, TeamNextMatchDto.none(teamId));
+            }
+        }
+        return index;
+    }
+
+    private static TeamNextMatchDto view(
+        long teamId,
+        LiveMatchDto match,
+        Map<Long, String> tableNames,
+        Map<Long, Integer> queuePositions
+    ) {
+        var opponents = new ArrayList<Long>();
+        for (var id : match.teamIds()) {
+            if (id != teamId) {
+                opponents.add(id);
+            }
+        }
+        return new TeamNextMatchDto(
+            teamId,
+            match.id(),
+            match.status(),
+            List.copyOf(opponents),
+            match.tableId(),
+            match.tableId() == null ? null : tableNames.get(match.tableId()),
+            queuePositions.get(match.id()),
+            match.drinksCollectedTeamIds().contains(teamId),
+            !opponents.isEmpty() && match.drinksCollectedTeamIds().containsAll(opponents)
+        );
+    }
+
+    /**
+     * Compare two indexes.
+     *
+     * @return the views that are new or differ from the previous index
+     */
+    public static List<TeamNextMatchDto> changed(
+        Map<Long, TeamNextMatchDto> previous,
+        Map<Long, TeamNextMatchDto> current
+    ) {
+        return current
+            .values()
+            .stream()
+            .filter(view -> !Objects.equals(previous.get(view.teamId()), view))
+            .toList();
+    }
+
+    private static boolean isRunning(MatchStatus status) {
+        return status == MatchStatus.QUEUED_COLLECTING_DRINKS || status == MatchStatus.PLAYING;
+    }
+}
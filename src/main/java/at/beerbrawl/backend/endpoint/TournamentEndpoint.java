@@ -24,6 +24,7 @@ import at.beerbrawl.backend.exception.BadTournamentPublicAccessTokenException;
 import at.beerbrawl.backend.service.TournamentQualificationService;
 import at.beerbrawl.backend.service.TournamentService;
 import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.annotation.security.PermitAll;
@@ -52,6 +53,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 @RequestMapping(value = TournamentEndpoint.BASE_ENDPOINT)
@@ -69,6 +71,7 @@ public class TournamentEndpoint {
     private final QualificationTeamScoreMapper qualificationTeamScoreMapper;
     private final MatchDomainService matchDomainService;
     private final TournamentOverviewMapper tournamentOverviewMapper;
+    private final TournamentLongPolling tournamentLongPolling;
 
     @Secured("ROLE_USER")
     @ResponseStatus(HttpStatus.OK)
@@ -173,10 +176,9 @@ public class TournamentEndpoint {
     }
 
     @PermitAll
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping(value = "{id}/qualification-matches/public")
     @Operation(summary = "Get qualification matches for tournament")
-    public List<TournamentQualificationMatchDto> getQualificationMatchesPublic(
+    public ResponseEntity<List<TournamentQualificationMatchDto>> getQualificationMatchesPublic(
         @PathVariable(name = "id") Long tournamentId,
         @RequestParam(name = "token") Optional<UUID> token
     ) {
@@ -191,11 +193,45 @@ public class TournamentEndpoint {
 
         tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
 
-        var queuedQualiMatches = matchDomainService.getQualificationMatchesByExpectedStart(
-            tournamentId
+        return tournamentLongPolling.get(tournamentId, Topic.MATCHES, () ->
+            getQualificationMatchDtos(tournamentId)
         );
+    }
 
-        return queuedQualiMatches
+    @PermitAll
+    @GetMapping(value = "{id}/qualification-matches/public", params = "since")
+    @Operation(
+        summary = "Wait until the qualification matches changed after version `since`, " +
+        "then get them. Answers 304 if nothing changed within the polling timeout."
+    )
+    public DeferredResult<
+        ResponseEntity<List<TournamentQualificationMatchDto>>
+    > awaitQualificationMatchesPublic(
+        @PathVariable(name = "id") Long tournamentId,
+        @RequestParam(name = "since") long since,
+        @RequestParam(name = "token") Optional<UUID> token
+    ) {
+        LOG.info(
+            "GET {}/{}/qualification-matches/public?since={}",
+            BASE_ENDPOINT,
+            tournamentId,
+            since
+        );
+
+        if (token.isEmpty()) {
+            throw new BadTournamentPublicAccessTokenException();
+        }
+
+        tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
+
+        return tournamentLongPolling.awaitChange(tournamentId, Topic.MATCHES, since, () ->
+            getQualificationMatchDtos(tournamentId)
+        );
+    }
+
+    private List<TournamentQualificationMatchDto> getQualificationMatchDtos(long tournamentId) {
+        return matchDomainService
+            .getQualificationMatchesByExpectedStart(tournamentId)
             .stream()
             .map(tournamentMapper::qualificationMatchEntityToDto)
             .toList();
@@ -300,10 +336,11 @@ public class TournamentEndpoint {
     }
 
     @PermitAll
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping(value = "{id}/qualification-phase/scores/public")
     @Operation(summary = "Get the score list of the qualification phase of a tournament")
-    public List<QualificationTeamScoreDto> getTournamentQualificationScoreTablePublic(
+    public ResponseEntity<
+        List<QualificationTeamScoreDto>
+    > getTournamentQualificationScoreTablePublic(
         @PathVariable(name = "id") Long tournamentId,
         @RequestParam(name = "token") Optional<UUID> token
     ) {
@@ -318,6 +355,43 @@ public class TournamentEndpoint {
 
         tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
 
+        return tournamentLongPolling.get(tournamentId, Topic.SCORES, () ->
+            getQualificationScoreDtos(tournamentId)
+        );
+    }
+
+    @PermitAll
+    @GetMapping(value = "{id}/qualification-phase/scores/public", params = "since")
+    @Operation(
+        summary = "Wait until the score list changed after version `since`, then get it. " +
+        "Answers 304 if nothing changed within the polling timeout."
+    )
+    public DeferredResult<
+        ResponseEntity<List<QualificationTeamScoreDto>>
+    > awaitTournamentQualificationScoreTablePublic(
+        @PathVariable(name = "id") Long tournamentId,
+        @RequestParam(name = "since") long since,
+        @RequestParam(name = "token") Optional<UUID> token
+    ) {
+        LOG.info(
+            "GET {}/{}/qualification-phase/scores/public?since={}",
+            BASE_ENDPOINT,
+            tournamentId,
+            since
+        );
+
+        if (token.isEmpty()) {
+            throw new BadTournamentPublicAccessTokenException();
+        }
+
+        tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
+
+        return tournamentLongPolling.awaitChange(tournamentId, Topic.SCORES, since, () ->
+            getQualificationScoreDtos(tournamentId)
+        );
+    }
+
+    private List<QualificationTeamScoreDto> getQualificationScoreDtos(long tournamentId) {
         return qualificationService
             .getTournamentQualificationScoreTable(tournamentId)
             .stream()
@@ -0,0 +1,211 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint;
+
+import at.beerbrawl.backend.endpoint.dto.TournamentDeltaDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentSnapshotDto;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Registry of the Server-Sent Events streams of the live tournament views, for clients that
+ * can't use STOMP. Each event is serialized once and the same JSON is queued for every stream
+ * subscribed to its topic. Streams are opened through
+ * {@link TournamentUpdateBroadcaster#openEventStream(long, Set)}, which queues the snapshots first.
+ * Writing to a stream blocks on its client, so every stream is drained by a virtual thread of its
+ * own and publishing never waits for a connection. A stream with more than
+ * {@code beerbrawl.event-streams.max-pending-events} events queued has fallen behind and is
+ * completed, its client reconnects and starts over from fresh snapshots.
+ */
+@Component
+public class TournamentEventStreams {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /**
+     * Streams are closed after this long, {@code EventSource} clients reconnect on their own
+     * and get fresh snapshots.
+     */
+    static final Duration STREAM_TIMEOUT = Duration.ofMinutes(30);
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String DELTA_EVENT = "delta";
+
+    private final ObjectMapper objectMapper;
+    private final int maxPendingEvents;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    public TournamentEventStreams(
+        ObjectMapper objectMapper,
+        @Value("${beerbrawl.event-streams.max-pending-events:64}") int maxPendingEvents
+    ) {
+        this.objectMapper = objectMapper;
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private record Event(String name, long sequence, String json) {}
+
+    /**
+     * A stream and the events queued for it.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<Topic> topics;
+        private final ArrayDeque<Event> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        private Subscriber(SseEmitter emitter, Set<Topic> topics) {
+            this.emitter = emitter;
+            this.topics = topics;
+        }
+
+        /**
+         * Queue an event without waiting for the client.
+         *
+         * @return false if the stream is closed, or fell behind and was completed
+         */
+        private synchronized boolean offer(Event event) {
+            if (closed) {
+                return false;
+            }
+            if (pending.size() >= maxPendingEvents) {
+                LOG.debug("Completing event stream with {} events pending", pending.size());
+                close();
+                // completing waits for a send that may be stuck on the client
+                senders.execute(emitter::complete);
+                return false;
+            }
+            pending.addLast(event);
+            if (!sending) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+            return true;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            pending.clear();
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = closed ? null : pending.pollFirst();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                if (!send(emitter, event)) {
+                    close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Open a stream and queue the snapshots of its topics. The caller must make sure that no delta
+     * of these topics is published in between, otherwise the stream could miss it.
+     */
+    SseEmitter open(long tournamentId, Set<Topic> topics, List<TournamentSnapshotDto> snapshots) {
+        var emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        var subscriber = new Subscriber(emitter, topics);
+        Runnable remove = () -> {
+            subscriber.close();
+            subscribers.computeIfPresent(tournamentId, (id, list) -> {
+                list.remove(subscriber);
+                return list.isEmpty() ? null : list;
+            });
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        for (var snapshot : snapshots) {
+            var event = new Event(SNAPSHOT_EVENT, snapshot.sequence(), serialize(snapshot));
+            if (!subscriber.offer(event)) {
+                return emitter;
+            }
+        }
+        subscribers
+            .computeIfAbsent(tournamentId, id -> new CopyOnWriteArrayList<>())
+            .add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Queue a delta for all streams of the tournament subscribed to its topic.
+     */
+    void publish(long tournamentId, Topic topic, TournamentDeltaDto delta) {
+        var streams = subscribers.get(tournamentId);
+        if (streams == null) {
+            return;
+        }
+        Event event = null;
+        for (var subscriber : streams) {
+            if (!subscriber.topics.contains(topic)) {
+                continue;
+            }
+            if (event == null) {
+                event = new Event(DELTA_EVENT, delta.sequence(), serialize(delta));
+            }
+            if (!subscriber.offer(event)) {
+                streams.remove(subscriber);
+            }
+        }
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize live tournament event", e);
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, Event event) {
+        try {
+            emitter.send(
+                SseEmitter.event()
+                    .name(event.name())
+                    .id(Long.toString(event.sequence()))
+                    .data(event.json(), MediaType.APPLICATION_JSON)
+            );
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // the client went away, the emitter callbacks clean up after it
+            LOG.debug("Dropping event stream", e);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint;
+
+import at.beerbrawl.backend.endpoint.dto.TeamNextMatchDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentSnapshotDto;
+import at.beerbrawl.backend.exception.BadTournamentPublicAccessTokenException;
+import at.beerbrawl.backend.exception.NotFoundException;
+import at.beerbrawl.backend.service.TournamentService;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.annotation.security.PermitAll;
+import java.lang.invoke.MethodHandles;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping(value = TournamentLiveEndpoint.BASE_ENDPOINT)
+@AllArgsConstructor
+public class TournamentLiveEndpoint {
+
+    public static final String BASE_ENDPOINT = "/api/v1/tournaments/{id}/live";
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final TournamentService tournamentService;
+    private final TournamentUpdateBroadcaster tournamentUpdateBroadcaster;
+
+    @PermitAll
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping(value = "{topic}")
+    @Operation(
+        summary = "Get the state of a live view (matches, scores, tables, ko) for resyncing. " +
+        "Returns only the missed deltas if `since` is recent enough."
+    )
+    public TournamentSnapshotDto getSnapshot(
+        @PathVariable(name = "id") Long tournamentId,
+        @PathVariable(name = "topic") String topicPath,
+        @RequestParam(name = "since", required = false) Long since,
+        @RequestParam(name = "token") Optional<UUID> token
+    ) {
+        LOG.info("GET /api/v1/tournaments/{}/live/{}?since={}", tournamentId, topicPath, since);
+
+        // Explicitly use an `Optional<>` and check it here, so we can return
+        // the appropriate error
+        if (token.isEmpty()) {
+            throw new BadTournamentPublicAccessTokenException();
+        }
+        tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
+
+        var topic = Topic.fromPath(topicPath).orElseThrow(
+            () -> new NotFoundException("Unknown live view " + topicPath)
+        );
+        return tournamentUpdateBroadcaster.snapshot(tournamentId, topic, since);
+    }
+
+    @PermitAll
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping(value = "teams/{teamId}/next-match")
+    @Operation(
+        summary = "Get the next qualification match of a team, with its table, queue position " +
+        "and drinks status. Updates are sent to `/tournament/{id}/teams/{teamId}/next-match`."
+    )
+    public TeamNextMatchDto getNextMatch(
+        @PathVariable(name = "id") Long tournamentId,
+        @PathVariable(name = "teamId") Long teamId,
+        @RequestParam(name = "token") Optional<UUID> token
+    ) {
+        LOG.info("GET /api/v1/tournaments/{}/live/teams/{}/next-match", tournamentId, teamId);
+
+        if (token.isEmpty()) {
+            throw new BadTournamentPublicAccessTokenException();
+        }
+        tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
+
+        return tournamentUpdateBroadcaster
+            .nextMatch(tournamentId, teamId)
+            .orElseThrow(() -> new NotFoundException("Team has no qualification matches"));
+    }
+
+    @PermitAll
+    @GetMapping(value = "stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream live views as Server-Sent Events, for clients without STOMP. " +
+        "Sends a `snapshot` event per view, then `delta` events."
+    )
+    public SseEmitter stream(
+        @PathVariable(name = "id") Long tournamentId,
+        @RequestParam(
+            name = "topics",
+            defaultValue = "matches,scores,tables,ko"
+        ) List<String> topicPaths,
+        @RequestParam(name = "token") Optional<UUID> token
+    ) {
+        LOG.info("GET /api/v1/tournaments/{}/live/stream?topics={}", tournamentId, topicPaths);
+
+        if (token.isEmpty()) {
+            throw new BadTournamentPublicAccessTokenException();
+        }
+        tournamentService.assertAccessTokenIsCorrect(tournamentId, token.get());
+
+        var topics = EnumSet.noneOf(Topic.class);
+        for (var topicPath : topicPaths) {
+            topics.add(
+                Topic.fromPath(topicPath).orElseThrow(
+                    () -> new NotFoundException("Unknown live view " + topicPath)
+                )
+            );
+        }
+        return tournamentUpdateBroadcaster.openEventStream(tournamentId, topics);
+    }
+}
@@ -0,0 +1,84 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint;
+
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Long polling on the public tournament views, for clients without WebSockets.
+ * A request with {@code since=<version>} is parked without holding a thread until the view
+ * moves past that version, or answered with 304 once {@code beerbrawl.long-polling.timeout}
+ * expired. Responses carry the version of their data in {@link #VERSION_HEADER}.
+ */
+@Component
+public class TournamentLongPolling {
+
+    public static final String VERSION_HEADER = "X-Live-Version";
+
+    private final TournamentUpdateBroadcaster broadcaster;
+    private final Duration timeout;
+    // loading the data blocks on the database, so it runs on a virtual thread
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TournamentLongPolling(
+        TournamentUpdateBroadcaster broadcaster,
+        @Value("${beerbrawl.long-polling.timeout:30s}") Duration timeout
+    ) {
+        this.broadcaster = broadcaster;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Load a view right away, along with its version.
+     * The version is taken before loading, so it is never newer than the data.
+     */
+    public <T> ResponseEntity<T> get(long tournamentId, Topic topic, Supplier<T> load) {
+        var version = broadcaster.version(tournamentId, topic);
+        return ResponseEntity.ok().header(VERSION_HEADER, Long.toString(version)).body(load.get());
+    }
+
+    /**
+     * Load a view once it moved past {@code since}.
+     */
+    public <T> DeferredResult<ResponseEntity<T>> awaitChange(
+        long tournamentId,
+        Topic topic,
+        long since,
+        Supplier<T> load
+    ) {
+        var result = new DeferredResult<ResponseEntity<T>>(timeout.toMillis());
+        var cancel = broadcaster.awaitChange(tournamentId, topic, since, () ->
+            loader.execute(() -> {
+                try {
+                    result.setResult(get(tournamentId, topic, load));
+                } catch (RuntimeException e) {
+                    result.setErrorResult(e);
+                }
+            })
+        );
+        result.onTimeout(() ->
+            result.setResult(
+                ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(VERSION_HEADER, Long.toString(since))
+                    .build()
+            )
+        );
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,644 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint;
+
+import at.beerbrawl.backend.endpoint.dto.LiveKoStandingDto;
+import at.beerbrawl.backend.endpoint.dto.LiveMatchDto;
+import at.beerbrawl.backend.endpoint.dto.LiveTableDto;
+import at.beerbrawl.backend.endpoint.dto.TeamNextMatchDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentDeltaDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentSnapshotDto;
+import at.beerbrawl.backend.endpoint.mapper.QualificationTeamScoreMapper;
+import at.beerbrawl.backend.entity.domainservice.MatchDomainService;
+import at.beerbrawl.backend.repository.BeerPongTableRepository;
+import at.beerbrawl.backend.repository.KoStandingsRepository;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import at.beerbrawl.backend.service.models.TournamentClosedEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
+import jakarta.annotation.PreDestroy;
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes changes of the live views of a tournament to its STOMP topics
+ * ({@code /tournament/{id}/matches|scores|tables|ko}) and its {@link TournamentEventStreams}
+ * as {@link TournamentDeltaDto}s.
+ * Updates are only taken into account after their transaction committed, so subscribers never see
+ * rolled back state. Committed updates of a tournament are collected for a short window
+ * ({@code beerbrawl.live-updates.batch-window}) and then sent from a dedicated scheduler as at most
+ * one delta per topic, so the cascade of changes caused by a single result turns into one message.
+ * The last state of every topic is kept to compute the deltas and to serve snapshots for resyncs.
+ * Once a player asked for it, the next match of every team is kept as well, derived from the match
+ * and table views, and sent as a whole to {@code /tournament/{id}/teams/{teamId}/next-match}
+ * whenever it changed.
+ * The state of a tournament is dropped after its last updates once it was deleted or finished,
+ * it is loaded again if anyone still asks for it.
+ * Subscribing to any of these needs the public access token of the tournament, see
+ * {@link at.beerbrawl.backend.config.TournamentSubscriptionInterceptor}.
+ */
+@Component
+public class TournamentUpdateBroadcaster {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /**
+     * Deltas kept per topic, so clients that missed a few can catch up without a full snapshot.
+     */
+    static final int RETAINED_DELTAS = 64;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TournamentEventStreams eventStreams;
+    private final MatchDomainService matchDomainService;
+    private final TournamentQualificationService qualificationService;
+    private final BeerPongTableRepository beerPongTableRepository;
+    private final KoStandingsRepository koStandingsRepository;
+    private final QualificationTeamScoreMapper qualificationTeamScoreMapper;
+    private final TransactionTemplate readTransaction;
+    private final Duration batchWindow;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Map<Long, LiveTournament> liveTournaments = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Topic>> pendingTopics = new ConcurrentHashMap<>();
+    private final Set<Long> closedTournaments = ConcurrentHashMap.newKeySet();
+    /**
+     * Shared by all tournaments, so a tournament that is loaded again after it was dropped never
+     * hands out a sequence a client still knows.
+     */
+    private final AtomicLong sequences = new AtomicLong();
+
+    public TournamentUpdateBroadcaster(
+        SimpMessagingTemplate messagingTemplate,
+        TournamentEventStreams eventStreams,
+        MatchDomainService matchDomainService,
+        TournamentQualificationService qualificationService,
+        BeerPongTableRepository beerPongTableRepository,
+        KoStandingsRepository koStandingsRepository,
+        QualificationTeamScoreMapper qualificationTeamScoreMapper,
+        PlatformTransactionManager transactionManager,
+        @Value("${beerbrawl.live-updates.batch-window:100ms}") Duration batchWindow
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.eventStreams = eventStreams;
+        this.matchDomainService = matchDomainService;
+        this.qualificationService = qualificationService;
+        this.beerPongTableRepository = beerPongTableRepository;
+        this.koStandingsRepository = koStandingsRepository;
+        this.qualificationTeamScoreMapper = qualificationTeamScoreMapper;
+        // the publishing transaction has already completed, so rows are read in their own
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.batchWindow = batchWindow;
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(2);
+        this.scheduler.setThreadNamePrefix("live-updates-");
+        this.scheduler.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        scheduler.shutdown();
+    }
+
+    @EventListener
+    public void onTournamentUpdate(TournamentUpdateEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event.tournamentId(), event.topics());
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        var pending = (Map<Long, Set<Topic>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            final Map<Long, Set<Topic>> collected = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, collected);
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResource(
+                            TournamentUpdateBroadcaster.this
+                        );
+                        if (status == STATUS_COMMITTED) {
+                            collected.forEach(TournamentUpdateBroadcaster.this::enqueue);
+                        }
+                    }
+                }
+            );
+            pending = collected;
+        }
+        pending
+            .computeIfAbsent(event.tournamentId(), id -> EnumSet.noneOf(Topic.class))
+            .addAll(event.topics());
+    }
+
+    @EventListener
+    public void onTournamentClosed(TournamentClosedEvent event) {
+        Runnable close = () -> {
+            closedTournaments.add(event.tournamentId());
+            // dropped by the broadcast, after the updates of the same window
+            enqueue(event.tournamentId(), EnumSet.noneOf(Topic.class));
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            close.run();
+            return;
+        }
+        // registered after the synchronization of the updates, so it runs after theirs
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        close.run();
+                    }
+                }
+            }
+        );
+    }
+
+    /**
+     * Get the current state of a live view.
+     *
+     * @param tournamentId the tournament
+     * @param topic the live view
+     * @param since the last sequence the client saw on this topic, if any
+     * @return the missed deltas if all of them are still retained, the full state otherwise
+     */
+    public TournamentSnapshotDto snapshot(long tournamentId, Topic topic, Long since) {
+        var tournament = liveTournament(tournamentId);
+        loadMissingRows(tournamentId, tournament, EnumSet.of(topic));
+        synchronized (tournament) {
+            return snapshot(tournamentId, tournament, topic, since);
+        }
+    }
+
+    /**
+     * Get the next qualification match of a team, from the index kept along with the live views.
+     *
+     * @param tournamentId the tournament
+     * @param teamId the team
+     * @return the next match, empty if the team has no qualification matches in this tournament
+     */
+    public Optional<TeamNextMatchDto> nextMatch(long tournamentId, long teamId) {
+        var tournament = liveTournament(tournamentId);
+        synchronized (tournament) {
+            if (tournament.nextMatches != null) {
+                return Optional.ofNullable(tournament.nextMatches.get(teamId));
+            }
+        }
+        loadMissingRows(tournamentId, tournament, EnumSet.of(Topic.MATCHES, Topic.TABLES));
+        synchronized (tournament) {
+            var index = tournament.nextMatches == null
+                ? buildNextMatches(tournament)
+                : tournament.nextMatches;
+            return Optional.ofNullable(index.get(teamId));
+        }
+    }
+
+    /**
+     * Destination of the next match view of a team.
+     *
+     * @param tournamentId the tournament
+     * @param teamId the team
+     * @return the destination, receiving the whole view whenever it changed
+     */
+    public static String teamDestination(long tournamentId, long teamId) {
+        return "/tournament/" + tournamentId + "/teams/" + teamId + "/next-match";
+    }
+
+    /**
+     * Get the version of a live view, which is the sequence of its last delta.
+     *
+     * @param tournamentId the tournament
+     * @param topic the live view
+     * @return the version, 0 if the view did not change since the server started
+     */
+    public long version(long tournamentId, Topic topic) {
+        var tournament = liveTournaments.get(tournamentId);
+        if (tournament == null) {
+            return 0;
+        }
+        synchronized (tournament) {
+            var state = tournament.topics.get(topic);
+            return state == null ? 0 : state.sequence;
+        }
+    }
+
+    /**
+     * Run a callback once a live view moved past a version, right away if it already did.
+     * The callback may run while the view is locked, so it should only hand off work.
+     *
+     * @param tournamentId the tournament
+     * @param topic the live view
+     * @param since the version the caller knows
+     * @param callback the callback to run once
+     * @return a handle to drop the callback if it did not run yet
+     */
+    public Runnable awaitChange(long tournamentId, Topic topic, long since, Runnable callback) {
+        var tournament = liveTournament(tournamentId);
+        synchronized (tournament) {
+            var state = tournament.topic(topic);
+            if (state.sequence != since) {
+                callback.run();
+                return () -> {};
+            }
+            state.waiters.add(callback);
+            return () -> {
+                synchronized (tournament) {
+                    state.waiters.remove(callback);
+                }
+            };
+        }
+    }
+
+    /**
+     * Open a Server-Sent Events stream of live views, starting with their snapshots.
+     *
+     * @param tournamentId the tournament
+     * @param topics the live views to stream
+     * @return the stream, sending a {@code snapshot} event per view and then {@code delta} events
+     */
+    public SseEmitter openEventStream(long tournamentId, Set<Topic> topics) {
+        var tournament = liveTournament(tournamentId);
+        loadMissingRows(tournamentId, tournament, topics);
+        // no delta can be queued between the snapshots and the registration
+        synchronized (tournament) {
+            var snapshots = topics
+                .stream()
+                .map(topic -> snapshot(tournamentId, tournament, topic, null))
+                .toList();
+            return eventStreams.open(tournamentId, topics, snapshots);
+        }
+    }
+
+    /**
+     * Send all pending updates right away instead of waiting for their window to end.
+     * Returns once they have been sent, including those a scheduler thread is already sending.
+     * Event streams are written by senders of their own, they only got the deltas queued.
+     */
+    public void flush() {
+        for (var tournamentId : List.copyOf(pendingTopics.keySet())) {
+            broadcast(tournamentId);
+        }
+    }
+
+    private void enqueue(long tournamentId, Set<Topic> topics) {
+        pendingTopics.compute(tournamentId, (id, pending) -> {
+            if (pending == null) {
+                pending = EnumSet.noneOf(Topic.class);
+                scheduler.schedule(() -> broadcast(id), Instant.now().plus(batchWindow));
+            }
+            pending.addAll(topics);
+            return pending;
+        });
+    }
+
+    /**
+     * Load the pending topics of a tournament and send what changed. The rows are loaded and the
+     * messages sent without holding the tournament, only diffing them takes its lock, so readers
+     * of the live views never wait for the database or the subscribers.
+     */
+    private void broadcast(long tournamentId) {
+        var tournament = liveTournament(tournamentId);
+        Set<Topic> topics = null;
+        try {
+            // one broadcast of a tournament at a time keeps the deltas in commit order
+            synchronized (tournament.broadcasting) {
+                // taken here, so a flush waits for a window that is already being sent
+                topics = pendingTopics.remove(tournamentId);
+                if (topics == null) {
+                    return;
+                }
+                long ticket;
+                synchronized (tournament) {
+                    ticket = ++tournament.loads;
+                }
+                var loaded = loadRows(tournamentId, topics);
+
+                var deltas = new EnumMap<Topic, TournamentDeltaDto>(Topic.class);
+                var waiters = new ArrayList<Runnable>();
+                var changedViews = List.<TeamNextMatchDto>of();
+                synchronized (tournament) {
+                    loaded.forEach((topic, rows) -> {
+                        var delta = tournament.apply(tournamentId, topic, rows, ticket);
+                        if (delta != null) {
+                            deltas.put(topic, delta);
+                            eventStreams.publish(tournamentId, topic, delta);
+                            waiters.addAll(tournament.topic(topic).takeWaiters());
+                        }
+                    });
+                    // the index is built by the first request for a team's view, and kept up
+                    // from then
+                    var matchesOrTablesChanged =
+                        deltas.containsKey(Topic.MATCHES) || deltas.containsKey(Topic.TABLES);
+                    if (tournament.nextMatches != null && matchesOrTablesChanged) {
+                        var previous = tournament.nextMatches;
+                        changedViews = TeamNextMatchIndex.changed(
+                            previous,
+                            buildNextMatches(tournament)
+                        );
+                    }
+                }
+
+                deltas.forEach((topic, delta) ->
+                    messagingTemplate.convertAndSend(topic.destination(tournamentId), delta)
+                );
+                for (var view : changedViews) {
+                    messagingTemplate.convertAndSend(
+                        teamDestination(tournamentId, view.teamId()),
+                        view
+                    );
+                }
+                wake(waiters);
+
+                if (closedTournaments.remove(tournamentId)) {
+                    drop(tournamentId, tournament);
+                }
+            }
+        } catch (RuntimeException e) {
+            // the change itself is committed, subscribers catch up with the next delta or a resync
+            LOG.warn("Failed to broadcast {} of tournament {}", topics, tournamentId, e);
+        }
+    }
+
+    /**
+     * Forget a tournament. Long polls still waiting on it are answered right away.
+     * Must be called while broadcasting the tournament.
+     */
+    private void drop(long tournamentId, LiveTournament tournament) {
+        var waiters = new ArrayList<Runnable>();
+        synchronized (tournament) {
+            liveTournaments.remove(tournamentId, tournament);
+            for (var state : tournament.topics.values()) {
+                waiters.addAll(state.takeWaiters());
+            }
+        }
+        wake(waiters);
+    }
+
+    private LiveTournament liveTournament(long tournamentId) {
+        return liveTournaments.computeIfAbsent(tournamentId, id -> new LiveTournament(sequences));
+    }
+
+    /**
+     * The state of a live view. Must be called with the tournament locked and its rows loaded.
+     */
+    private static TournamentSnapshotDto snapshot(
+        long tournamentId,
+        LiveTournament tournament,
+        Topic topic,
+        Long since
+    ) {
+        var state = tournament.topic(topic);
+        if (since != null) {
+            var missed = state.deltasSince(since);
+            if (missed != null) {
+                return new TournamentSnapshotDto(
+                    tournamentId,
+                    topic.path(),
+                    state.sequence,
+                    null,
+                    missed
+                );
+            }
+        }
+        return new TournamentSnapshotDto(
+            tournamentId,
+            topic.path(),
+            state.sequence,
+            List.copyOf(state.rows.values()),
+            null
+        );
+    }
+
+    /**
+     * Rebuild the next match of every team from the live match and table views.
+     * Must be called with the tournament locked and both views loaded.
+     */
+    private static Map<Long, TeamNextMatchDto> buildNextMatches(LiveTournament tournament) {
+        var matches = new ArrayList<LiveMatchDto>();
+        for (var row : tournament.topic(Topic.MATCHES).rows.values()) {
+            matches.add((LiveMatchDto) row);
+        }
+        var tableNames = new HashMap<Long, String>();
+        for (var row : tournament.topic(Topic.TABLES).rows.values()) {
+            var table = (LiveTableDto) row;
+            tableNames.put(table.id(), table.name());
+        }
+        tournament.nextMatches = TeamNextMatchIndex.build(matches, tableNames);
+        return tournament.nextMatches;
+    }
+
+    /**
+     * Load the views that have no rows yet, without holding the tournament.
+     * Rows installed by a broadcast or another reader in the meantime are kept, they are as new.
+     */
+    private void loadMissingRows(long tournamentId, LiveTournament tournament, Set<Topic> topics) {
+        var missing = EnumSet.noneOf(Topic.class);
+        long ticket;
+        synchronized (tournament) {
+            for (var topic : topics) {
+                if (tournament.topic(topic).rows == null) {
+                    missing.add(topic);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+            ticket = ++tournament.loads;
+        }
+        var loaded = loadRows(tournamentId, missing);
+        synchronized (tournament) {
+            for (var entry : loaded.entrySet()) {
+                var state = tournament.topic(entry.getKey());
+                if (state.rows == null) {
+                    state.rows = entry.getValue();
+                    state.loadedAt = ticket;
+                }
+            }
+        }
+    }
+
+    private EnumMap<Topic, LinkedHashMap<Long, Object>> loadRows(
+        long tournamentId,
+        Set<Topic> topics
+    ) {
+        return readTransaction.execute(status -> {
+            var rows = new EnumMap<Topic, LinkedHashMap<Long, Object>>(Topic.class);
+            for (var topic : topics) {
+                rows.put(topic, loadRows(tournamentId, topic));
+            }
+            return rows;
+        });
+    }
+
+    private LinkedHashMap<Long, Object> loadRows(long tournamentId, Topic topic) {
+        var rows = new LinkedHashMap<Long, Object>();
+        switch (topic) {
+            case MATCHES -> matchDomainService
+                .getQualificationMatchesByExpectedStart(tournamentId)
+                .stream()
+                .map(LiveMatchDto::fromMatch)
+                .forEach(row -> rows.put(row.id(), row));
+            case SCORES -> qualificationService
+                .getTournamentQualificationScoreTable(tournamentId)
+                .stream()
+                .map(qualificationTeamScoreMapper::modelToDto)
+                .forEach(row -> rows.put(row.id(), row));
+            case TABLES -> beerPongTableRepository
+                .findAllByTournamentId(tournamentId)
+                .stream()
+                .map(LiveTableDto::fromTable)
+                .forEach(row -> rows.put(row.id(), row));
+            case KO -> koStandingsRepository
+                .getAllByTournamentId(tournamentId)
+                .stream()
+                .map(LiveKoStandingDto::fromStanding)
+                .forEach(row -> rows.put(row.id(), row));
+        }
+        return rows;
+    }
+
+    private static void wake(List<Runnable> waiters) {
+        for (var waiter : waiters) {
+            try {
+                waiter.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to notify a waiter for a live view change", e);
+            }
+        }
+    }
+
+    /**
+     * The live views of a tournament. Its monitor guards the state, {@link #broadcasting} orders
+     * the broadcasts.
+     */
+    private static final class LiveTournament {
+
+        private final Object broadcasting = new Object();
+        private final AtomicLong sequences;
+        /**
+         * Tickets of the loads, taken before reading so a newer ticket has seen newer data.
+         */
+        private long loads;
+        private final Map<Topic, LiveTopic> topics = new EnumMap<>(Topic.class);
+        private Map<Long, TeamNextMatchDto> nextMatches;
+
+        private LiveTournament(AtomicLong sequences) {
+            this.sequences = sequences;
+        }
+
+        private LiveTopic topic(Topic topic) {
+            return topics.computeIfAbsent(topic, t -> new LiveTopic());
+        }
+
+        /**
+         * Diff the new rows of a topic against the last known ones.
+         *
+         * @param ticket of the load that read the rows
+         * @return the delta to send, or null if nothing changed
+         */
+        private TournamentDeltaDto apply(
+            long tournamentId,
+            Topic topic,
+            LinkedHashMap<Long, Object> rows,
+            long ticket
+        ) {
+            var state = topic(topic);
+            if (ticket < state.loadedAt) {
+                // a reader loaded the view later, its rows already contain these changes
+                return null;
+            }
+            state.loadedAt = ticket;
+            var previous = state.rows == null ? Map.<Long, Object>of() : state.rows;
+
+            var changed = new ArrayList<Object>();
+            rows.forEach((id, row) -> {
+                if (!Objects.equals(previous.get(id), row)) {
+                    changed.add(row);
+                }
+            });
+            var removed = previous.keySet().stream().filter(id -> !rows.containsKey(id)).toList();
+            state.rows = rows;
+            if (changed.isEmpty() && removed.isEmpty()) {
+                return null;
+            }
+
+            var delta = new TournamentDeltaDto(
+                tournamentId,
+                topic.path(),
+                sequences.incrementAndGet(),
+                state.sequence,
+                changed,
+                removed
+            );
+            state.sequence = delta.sequence();
+            state.recent.addLast(delta);
+            if (state.recent.size() > RETAINED_DELTAS) {
+                state.recent.removeFirst();
+            }
+            return delta;
+        }
+    }
+
+    private static final class LiveTopic {
+
+        private long sequence;
+        private LinkedHashMap<Long, Object> rows;
+        private long loadedAt;
+        private final ArrayDeque<TournamentDeltaDto> recent = new ArrayDeque<>();
+        private final List<Runnable> waiters = new ArrayList<>();
+
+        private List<Runnable> takeWaiters() {
+            var woken = List.copyOf(waiters);
+            waiters.clear();
+            return woken;
+        }
+
+        /**
+         * @return the deltas after {@code since}, or null if some of them are no longer retained
+         */
+        private List<TournamentDeltaDto> deltasSince(long since) {
+            if (since == sequence) {
+                return List.of();
+            }
+            var missed = new ArrayList<TournamentDeltaDto>();
+            var found = false;
+            for (var delta : recent) {
+                found = found || delta.previousSequence() == since;
+                if (found) {
+                    missed.add(delta);
+                }
+            }
+            return found ? missed : null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import at.beerbrawl.backend.entity.KoStanding;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+/**
+ * Compact live view of a single node of the KO tree; the tree is rebuilt via {@code nextStandingId}.
+ */
+public record LiveKoStandingDto(
+    Long id,
+    Long nextStandingId,
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'") // UTC format
+    LocalDateTime startTime,
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'") // UTC format
+    LocalDateTime endTime,
+    Long teamId,
+    boolean drinksCollected,
+    Long tableId
+) {
+    public static LiveKoStandingDto fromStanding(KoStanding standing) {
+        return new LiveKoStandingDto(
+            standing.getId(),
+            standing.getNextStanding() == null ? null : standing.getNextStanding().getId(),
+            standing.getStartTime(),
+            standing.getEndTime(),
+            standing.getTeam() == null ? null : standing.getTeam().getId(),
+            standing.isDrinksCollected(),
+            standing.getTable() == null ? null : standing.getTable().getId()
+        );
+    }
+}
@@ -0,0 +1,52 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import at.beerbrawl.backend.entity.QualificationMatch;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Compact live view of a qualification match, sent as row of match deltas.
+ */
+public record LiveMatchDto(
+    Long id,
+    MatchStatus status,
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'") // UTC format
+    LocalDateTime startTime,
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'") // UTC format
+    LocalDateTime endTime,
+    Long tableId,
+    List<Long> teamIds,
+    List<Long> readyTeamIds,
+    List<Long> drinksCollectedTeamIds,
+    Long winnerTeamId,
+    Long winnerPoints
+) {
+    public static LiveMatchDto fromMatch(QualificationMatch match) {
+        return new LiveMatchDto(
+            match.getId(),
+            match.getStatus(),
+            match.getStartTime(),
+            match.getEndTime(),
+            match.getTable() == null ? null : match.getTable().getId(),
+            match.getParticipations().stream().map(p -> p.getTeam().getId()).toList(),
+            match
+                .getParticipations()
+                .stream()
+                .filter(p -> p.getTeam().getCheckedIn())
+                .map(p -> p.getTeam().getId())
+                .toList(),
+            match
+                .getParticipations()
+                .stream()
+                .filter(p -> p.isDrinksCollected())
+                .map(p -> p.getTeam().getId())
+                .toList(),
+            match.getWinner() == null ? null : match.getWinner().getId(),
+            match.getWinnerPoints()
+        );
+    }
+}
@@ -0,0 +1,18 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import at.beerbrawl.backend.entity.BeerPongTable;
+
+/**
+ * Compact live view of a beer pong table and the match currently assigned to it.
+ */
+public record LiveTableDto(Long id, String name, Long matchId) {
+    public static LiveTableDto fromTable(BeerPongTable table) {
+        return new LiveTableDto(
+            table.getId(),
+            table.getName(),
+            table.getCurrentMatch() == null ? null : table.getCurrentMatch().getId()
+        );
+    }
+}
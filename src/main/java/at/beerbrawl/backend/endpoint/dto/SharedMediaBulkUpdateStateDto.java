@@ -0,0 +1,14 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import at.beerbrawl.backend.enums.MediaState;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record SharedMediaBulkUpdateStateDto(
+    @NotEmpty @Size(max = 1000) List<@NotNull Long> ids,
+    @NotNull MediaState state
+) {}
@@ -0,0 +1,31 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import java.util.List;
+
+/**
+ * Live view of the next qualification match of a team, for its players.
+ * All match fields are null once the team has played all of its matches.
+ *
+ * @param queuePosition 1-based position in the queue for the next free table, null if the match
+ *     isn't waiting for one
+ * @param drinksCollected whether the team has collected its drinks at the table
+ * @param opponentDrinksCollected whether all opponents have collected their drinks
+ */
+public record TeamNextMatchDto(
+    long teamId,
+    Long matchId,
+    MatchStatus status,
+    List<Long> opponentTeamIds,
+    Long tableId,
+    String tableName,
+    Integer queuePosition,
+    boolean drinksCollected,
+    boolean opponentDrinksCollected
+) {
+    public static TeamNextMatchDto none(long teamId) {
+        return new TeamNextMatchDto(teamId, null, null, List.of(), null, null, null, false, false);
+    }
+}
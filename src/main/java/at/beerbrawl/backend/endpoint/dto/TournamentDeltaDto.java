@@ -0,0 +1,23 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import java.util.List;
+
+/**
+ * Changes of one live view of a tournament.
+ * {@code sequence} is unique and increasing per tournament, {@code previousSequence} is the
+ * sequence of the last delta on the same topic. Clients that last saw another sequence on this
+ * topic missed an update and should resync via the snapshot endpoint.
+ *
+ * @param changed rows that were added or changed, see the {@code Live*Dto} records
+ * @param removed ids of rows that no longer exist
+ */
+public record TournamentDeltaDto(
+    long tournamentId,
+    String topic,
+    long sequence,
+    long previousSequence,
+    List<Object> changed,
+    List<Long> removed
+) {}
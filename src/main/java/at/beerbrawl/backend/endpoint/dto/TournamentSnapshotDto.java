@@ -0,0 +1,18 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.endpoint.dto;
+
+import java.util.List;
+
+/**
+ * State of one live view of a tournament as of {@code sequence}.
+ * Either {@code rows} holds the full state, or, if the client's last known sequence was
+ * recent enough, {@code deltas} holds only the missed deltas.
+ */
+public record TournamentSnapshotDto(
+    long tournamentId,
+    String topic,
+    long sequence,
+    List<Object> rows,
+    List<TournamentDeltaDto> deltas
+) {}
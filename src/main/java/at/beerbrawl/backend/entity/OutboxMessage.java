@@ -0,0 +1,65 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A message to the broker, written in the same transaction as the change it is about
+ * and relayed once that transaction has committed.
+ */
+@Entity
+@Table(
+    indexes = @Index(name = "idx_outbox_message_published_at_id", columnList = "published_at, id")
+)
+@Setter(value = AccessLevel.PRIVATE)
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class OutboxMessage {
+
+    @Getter
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Sent along with the message, a message can be delivered more than once.
+     */
+    @Getter
+    @Column(nullable = false, unique = true, length = 36)
+    private String messageId;
+
+    @Getter
+    @Column(nullable = false)
+    private String destination;
+
+    @Getter
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Getter
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Getter
+    @Setter
+    private LocalDateTime publishedAt;
+
+    public OutboxMessage(String destination, String payload, LocalDateTime createdAt) {
+        this.messageId = UUID.randomUUID().toString();
+        this.destination = destination;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+}
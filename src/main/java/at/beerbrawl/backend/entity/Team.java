@@ -83,12 +83,20 @@ public class Team {
     }
 
     public void checkIn() {
+        checkIn(BeerDateTime.nowUtc());
+    }
+
+    public void checkIn(LocalDateTime now) {
         this.checkedIn = true;
-        markAvailable();
+        markAvailable(now);
     }
 
     public void markAvailable() {
-        this.availableSince = BeerDateTime.nowUtc();
+        markAvailable(BeerDateTime.nowUtc());
+    }
+
+    public void markAvailable(LocalDateTime now) {
+        this.availableSince = now;
     }
 
     /**
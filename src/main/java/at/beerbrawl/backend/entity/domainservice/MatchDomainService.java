@@ -2,7 +2,11 @@
 
 package at.beerbrawl.backend.entity.domainservice;
 
+import at.beerbrawl.backend.config.DomainMetrics;
+import at.beerbrawl.backend.config.DomainMetrics.Phase;
+import at.beerbrawl.backend.config.diagnostics.SchedulingEvent;
 import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.Match;
 import at.beerbrawl.backend.entity.Match.MatchStatus;
 import at.beerbrawl.backend.entity.QualificationMatch;
 import at.beerbrawl.backend.entity.Team;
@@ -10,6 +14,10 @@ import at.beerbrawl.backend.entity.Tournament;
 import at.beerbrawl.backend.repository.BeerPongTableRepository;
 import at.beerbrawl.backend.repository.KoStandingsRepository;
 import at.beerbrawl.backend.repository.QualificationMatchRepository;
+import at.beerbrawl.backend.repository.TournamentRepository;
+import at.beerbrawl.backend.service.models.MatchTransitionEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
 import java.lang.invoke.MethodHandles;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -18,6 +26,7 @@ import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +42,9 @@ public class MatchDomainService {
     private QualificationMatchRepository qualificationMatchRepository;
     private KoStandingsRepository koStandingsRepository;
     private BeerPongTableRepository beerPongTableRepository;
+    private TournamentRepository tournamentRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private DomainMetrics domainMetrics;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(
         MethodHandles.lookup().lookupClass()
@@ -45,7 +57,12 @@ public class MatchDomainService {
     }
 
     public List<QualificationMatch> getQualificationMatchQueue(long tournamentId) {
-        final var qmsSortedByExpectedStart = getQualificationMatchesByExpectedStart(tournamentId);
+        return getQualificationMatchQueue(getQualificationMatchesByExpectedStart(tournamentId));
+    }
+
+    private List<QualificationMatch> getQualificationMatchQueue(
+        List<QualificationMatch> qmsSortedByExpectedStart
+    ) {
         final var runningMatches = qmsSortedByExpectedStart
             .stream()
             .filter(
@@ -121,6 +138,17 @@ public class MatchDomainService {
     }
 
     // region Scheduling
+    /**
+     * Serialize everything that assigns or frees the tables of a tournament. Scheduling reads the
+     * free tables and the queue and then writes both, two transactions doing so at once hand out
+     * the same match or table twice. Has to be the first statement of the transaction, anything
+     * loaded before the lock was granted may already be outdated.
+     */
+    @Transactional
+    public void lockForScheduling(long tournamentId) {
+        tournamentRepository.findByIdForUpdate(tournamentId);
+    }
+
     /*
      * Had to make a method for each concrete type of match, as hibernate somehow
      * does not allow setting up the currentMatch relationship with a compile-time
@@ -128,44 +156,108 @@ public class MatchDomainService {
      */
     @Transactional
     public void scheduleQualiMatches(long tournamentId) {
-        final var queuedQms = getQualificationMatchQueue(tournamentId);
-        final var freeTables = beerPongTableRepository.findByTournamentIdAndCurrentMatchIsNull(
-            tournamentId
-        );
-        if (freeTables.isEmpty()) {
-            LOGGER.debug("No free tables found for tournament with id {}", tournamentId);
-            return;
-        }
+        scheduleQualiMatches(tournamentId, null);
+    }
 
-        for (final var match : queuedQms) {
-            if (freeTables.size() == 0) {
-                break;
-            }
-            var table = freeTables.removeFirst();
-            table.setCurrentMatch(match);
-            beerPongTableRepository.save(table);
-        }
+    /**
+     * Schedules the qualification matches once {@code checkedIn} checked in. Its matches that
+     * became ready to be played are taken from the matches loaded for scheduling anyway.
+     */
+    @Transactional
+    public void scheduleQualiMatchesAfterCheckIn(long tournamentId, Team checkedIn) {
+        scheduleQualiMatches(tournamentId, checkedIn);
+    }
+
+    private void scheduleQualiMatches(long tournamentId, Team checkedIn) {
+        lockForScheduling(tournamentId);
+        domainMetrics
+            .scheduling(Phase.QUALIFICATION)
+            .record(() -> {
+                var matches = getQualificationMatchesByExpectedStart(tournamentId);
+                if (checkedIn != null && MatchTransitionEvent.isRecorded()) {
+                    matches
+                        .stream()
+                        .filter(qm -> qm.getStatus() == MatchStatus.TEAMS_CHECKED_IN)
+                        .filter(qm -> qm.getTeams().stream().anyMatch(checkedIn::equals))
+                        .forEach(qm ->
+                            MatchTransitionEvent.transition(
+                                qm,
+                                MatchStatus.NOT_CHECKED_IN_YET,
+                                MatchStatus.TEAMS_CHECKED_IN
+                            )
+                        );
+                }
+                schedule(
+                    Phase.QUALIFICATION,
+                    tournamentId,
+                    getQualificationMatchQueue(matches),
+                    Topic.MATCHES
+                );
+            });
     }
 
     @Transactional
     public void scheduleKoMatches(long tournamentId) {
-        final var freeTables = beerPongTableRepository.findByTournamentIdAndCurrentMatchIsNull(
-            tournamentId
-        );
+        lockForScheduling(tournamentId);
+        domainMetrics
+            .scheduling(Phase.KO)
+            .record(() ->
+                schedule(Phase.KO, tournamentId, getKoMatchQueue(tournamentId), Topic.KO)
+            );
+    }
+
+    private void schedule(
+        Phase phase,
+        long tournamentId,
+        List<? extends Match> queue,
+        Topic topic
+    ) {
+        var event = new SchedulingEvent();
+        event.begin();
+        final var tables = beerPongTableRepository.findAllByTournamentId(tournamentId);
+        final var freeTables = tables
+            .stream()
+            .filter(table -> table.getCurrentMatch() == null)
+            .collect(Collectors.toCollection(LinkedList::new));
+        event.freeTables = freeTables.size();
         if (freeTables.isEmpty()) {
             LOGGER.debug("No free tables found for tournament with id {}", tournamentId);
-            return;
         }
 
-        final var queuedKoMatches = getKoMatchQueue(tournamentId);
-        for (final var match : queuedKoMatches) {
+        var assigned = 0;
+        for (final var match : queue) {
             if (freeTables.size() == 0) {
                 break;
             }
             var table = freeTables.removeFirst();
+            MatchTransitionEvent.transition(match, MatchStatus.QUEUED_COLLECTING_DRINKS);
             table.setCurrentMatch(match);
             beerPongTableRepository.save(table);
+            assigned++;
+        }
+        if (assigned > 0) {
+            eventPublisher.publishEvent(
+                TournamentUpdateEvent.of(tournamentId, Topic.TABLES, topic)
+            );
         }
+
+        // every match has two teams and no team is queued twice
+        var teamsWaiting = (queue.size() - assigned) * 2;
+        domainMetrics.recordScheduling(
+            phase,
+            tournamentId,
+            queue.size(),
+            assigned,
+            tables.size(),
+            freeTables.size(),
+            teamsWaiting
+        );
+
+        event.tournamentId = tournamentId;
+        event.phase = phase.tag();
+        event.queued = queue.size();
+        event.assigned = assigned;
+        event.commit();
     }
     // endregion
 }
@@ -0,0 +1,42 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.repository;
+
+import at.beerbrawl.backend.entity.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+    /**
+     * Find the oldest messages that have not been published yet and lock them.
+     * Rows locked by another relay are skipped, so several instances can relay side by side.
+     *
+     * @param limit Maximum number of messages to return
+     * @return the unpublished messages, in the order they were written
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT om FROM OutboxMessage om WHERE om.publishedAt IS NULL ORDER BY om.id ASC")
+    List<OutboxMessage> findUnpublishedForUpdate(Limit limit);
+
+    /**
+     * Delete messages that were published before the given time.
+     *
+     * @param before Exclusive upper bound of the publishing time
+     * @return the number of deleted messages
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxMessage om WHERE om.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -4,8 +4,14 @@ package at.beerbrawl.backend.repository;
 
 import at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto;
 import at.beerbrawl.backend.entity.SharedMedia;
+import at.beerbrawl.backend.enums.MediaState;
+import at.beerbrawl.backend.service.models.SharedMediaImageModel;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,33 +19,55 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface SharedMediaRepository extends JpaRepository<SharedMedia, Long> {
     /**
-     * Find all shared media by a specific tournament id without the image field.
+     * Find a page of shared media by a specific tournament id without the image field.
+     * Keyset pagination: entries are ordered by id, and only ids greater than {@code sinceId} are returned.
      *
      * @param tournamentId The tournament id
+     * @param sinceId Exclusive lower bound of the returned ids, 0 to start from the beginning
+     * @param limit Maximum number of entries to return
      * @return List of shared media entries for the given tournament without the image field
      */
     @Query(
         "SELECT new at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto(sm.id, sm.author, sm.title, sm.state, sm.tournament.id) " +
-        "FROM SharedMedia sm WHERE sm.tournament.id = :tournamentId"
+        "FROM SharedMedia sm WHERE sm.tournament.id = :tournamentId AND sm.id > :sinceId ORDER BY sm.id ASC"
     )
     List<SharedMediaMetadataDto> findAllByTournamentIdWithoutImage(
-        @Param("tournamentId") Long tournamentId
+        @Param("tournamentId") Long tournamentId,
+        @Param("sinceId") Long sinceId,
+        Limit limit
     );
 
     /**
-     * Find all shared media by a specific tournament id without the image field.
+     * Find a page of approved shared media by a specific tournament id without the image field.
+     * Keyset pagination: entries are ordered by id, and only ids greater than {@code sinceId} are returned.
      *
      * @param tournamentId The tournament id
+     * @param sinceId Exclusive lower bound of the returned ids, 0 to start from the beginning
+     * @param limit Maximum number of entries to return
      * @return List of shared media entries for the given tournament without the image field
      */
     @Query(
         "SELECT new at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto(sm.id, sm.author, sm.title, sm.state, sm.tournament.id) " +
-        "FROM SharedMedia sm WHERE sm.tournament.id = :tournamentId AND sm.state = 'APPROVED'"
+        "FROM SharedMedia sm WHERE sm.tournament.id = :tournamentId AND sm.state = 'APPROVED' AND sm.id > :sinceId ORDER BY sm.id ASC"
     )
     List<SharedMediaMetadataDto> findAllPublicByTournamentIdWithoutImage(
-        @Param("tournamentId") Long tournamentId
+        @Param("tournamentId") Long tournamentId,
+        @Param("sinceId") Long sinceId,
+        Limit limit
     );
 
+    /**
+     * Find the state, content hash and upload time of a shared media entry without the image field.
+     *
+     * @param id The shared media id
+     * @return The image metadata, if the shared media exists
+     */
+    @Query(
+        "SELECT new at.beerbrawl.backend.service.models.SharedMediaImageModel(sm.id, sm.state, sm.contentHash, sm.uploadedAt) " +
+        "FROM SharedMedia sm WHERE sm.id = :id"
+    )
+    Optional<SharedMediaImageModel> findImageInfoById(@Param("id") Long id);
+
     /**
      * Find all shared media with a specific author.
      *
@@ -47,4 +75,58 @@ public interface SharedMediaRepository extends JpaRepository<SharedMedia, Long>
      * @return List of shared media entries by the given author
      */
     List<SharedMedia> findAllByAuthor(String author);
+
+    /**
+     * Find a shared media entry of a tournament by the hash of its uploaded bytes.
+     *
+     * @param tournamentId The tournament id
+     * @param uploadHash Hex SHA-256 of the uploaded bytes
+     * @return The first matching shared media entry, if any
+     */
+    Optional<SharedMedia> findFirstByTournamentIdAndUploadHash(Long tournamentId, String uploadHash);
+
+    /**
+     * Find a shared media entry of a tournament by the hash of its stored image.
+     *
+     * @param tournamentId The tournament id
+     * @param contentHash Hex SHA-256 of the stored image
+     * @param author The author of the entry
+     * @param states The states the entry may be in
+     * @return The first matching shared media entry, if any
+     */
+    Optional<SharedMedia> findFirstByTournamentIdAndContentHashAndAuthorAndStateIn(
+        Long tournamentId,
+        String contentHash,
+        String author,
+        Collection<MediaState> states
+    );
+
+    /**
+     * Release the upload hash of a shared media entry, so the same file can be uploaded again.
+     *
+     * @param id The shared media id
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE SharedMedia m SET m.uploadHash = NULL WHERE m.id = :id")
+    void clearUploadHash(@Param("id") Long id);
+
+    /**
+     * Set the state of many shared media entries of a tournament in a single statement,
+     * without loading the images. Ids of other tournaments are ignored.
+     *
+     * @param tournamentId The tournament id
+     * @param ids The shared media ids
+     * @param state The new state
+     * @return Number of updated entries
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+        "UPDATE SharedMedia sm SET sm.state = :state " +
+        "WHERE sm.tournament.id = :tournamentId AND sm.id IN :ids"
+    )
+    int updateStateByTournamentIdAndIdIn(
+        @Param("tournamentId") Long tournamentId,
+        @Param("ids") Collection<Long> ids,
+        @Param("state") MediaState state
+    );
 }
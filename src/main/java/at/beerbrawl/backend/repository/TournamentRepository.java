@@ -3,8 +3,11 @@
 package at.beerbrawl.backend.repository;
 
 import at.beerbrawl.backend.entity.Tournament;
+import jakarta.persistence.LockModeType;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -49,6 +52,16 @@ public interface TournamentRepository extends JpaRepository<Tournament, Long> {
         @Param("organizerId") Long organizerId
     );
 
+    /**
+     * Find a tournament and lock its row until the current transaction ends.
+     *
+     * @param id The ID of the tournament
+     * @return the locked tournament, if it exists
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Tournament t WHERE t.id = :id")
+    Optional<Tournament> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * Check if a tournament with the given name already exists.
      *
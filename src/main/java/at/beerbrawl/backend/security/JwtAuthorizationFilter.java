@@ -2,6 +2,7 @@
 
 package at.beerbrawl.backend.security;
 
+import at.beerbrawl.backend.config.DomainMetrics;
 import at.beerbrawl.backend.config.properties.SecurityProperties;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
@@ -14,6 +15,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -33,9 +35,14 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         MethodHandles.lookup().lookupClass()
     );
     private final SecurityProperties securityProperties;
+    private final DomainMetrics domainMetrics;
 
-    public JwtAuthorizationFilter(SecurityProperties securityProperties) {
+    public JwtAuthorizationFilter(
+        SecurityProperties securityProperties,
+        DomainMetrics domainMetrics
+    ) {
         this.securityProperties = securityProperties;
+        this.domainMetrics = domainMetrics;
     }
 
     @Override
@@ -74,11 +81,23 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         if (!token.startsWith("Bearer ")) {
             throw new IllegalArgumentException("Token must start with 'Bearer'");
         }
-        Claims claims = Jwts.parser()
-            .verifyWith(Keys.hmacShaKeyFor(signingKey))
-            .build()
-            .parseSignedClaims(token.replace(securityProperties.getAuthTokenPrefix(), ""))
-            .getPayload();
+        var verification = System.nanoTime();
+        Claims claims;
+        try {
+            claims = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(signingKey))
+                .build()
+                .parseSignedClaims(token.replace(securityProperties.getAuthTokenPrefix(), ""))
+                .getPayload();
+        } catch (JwtException e) {
+            domainMetrics
+                .jwtVerification(false)
+                .record(System.nanoTime() - verification, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        domainMetrics
+            .jwtVerification(true)
+            .record(System.nanoTime() - verification, TimeUnit.NANOSECONDS);
 
         String username = claims.getSubject();
 
@@ -0,0 +1,29 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service;
+
+public interface OutboxService {
+    /**
+     * Native STOMP header carrying the id of a relayed message. A message can be delivered
+     * more than once, clients drop ids they have already seen.
+     */
+    String MESSAGE_ID_HEADER = "x-message-id";
+
+    /**
+     * Queue a message to the broker as part of the current transaction.
+     * It is sent once the transaction has committed, and not at all if it rolls back.
+     *
+     * @param destination the broker destination
+     * @param payload sent as JSON, serialized right away
+     * @throws org.springframework.transaction.IllegalTransactionStateException without a transaction
+     */
+    void enqueue(String destination, Object payload);
+
+    /**
+     * Send all queued messages of committed transactions to the broker, in the order they were
+     * written. Runs in the background, this only has to be called to send them right away.
+     *
+     * @return the number of messages sent
+     */
+    int relay();
+}
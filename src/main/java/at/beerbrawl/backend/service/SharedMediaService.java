@@ -7,27 +7,41 @@ import at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto;
 import at.beerbrawl.backend.entity.SharedMedia;
 import at.beerbrawl.backend.enums.MediaState;
 import at.beerbrawl.backend.exception.NotFoundException;
+import at.beerbrawl.backend.service.models.SharedMediaImageModel;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface SharedMediaService {
+    int DEFAULT_PAGE_SIZE = 100;
+    int MAX_PAGE_SIZE = 500;
+
     /**
-     * Find all shared media by a specific tournament ID.
+     * Find a page of shared media by a specific tournament ID, ordered by ID.
+     * The next page starts after the last returned ID; polling with the highest ID seen so far
+     * returns only media uploaded since.
      *
      * @param tournamentId The ID of the tournament
+     * @param onlyApproved Whether to return approved media only
+     * @param sinceId Only return entries with a greater ID, null to start from the beginning
+     * @param limit Maximum page size, clamped to {@link #MAX_PAGE_SIZE}
      * @return List of shared media entries for the given tournament
      */
     List<SharedMediaMetadataDto> findAllByTournamentIdWithoutImage(
         Long tournamentId,
-        boolean onlyApproved
+        boolean onlyApproved,
+        Long sinceId,
+        int limit
     );
 
     /**
      * Create a shared media entry.
+     * Uploads that were already stored for the same tournament, either byte for byte or
+     * resulting in the same processed image, are collapsed into the existing entry.
      *
      * @param sharedMediaCreateDto The shared media entity to create
-     * @return The created shared media entity
+     * @return The created shared media entity, or the existing one for a duplicate upload
      */
     SharedMedia create(SharedMediaCreateDto sharedMediaCreateDto, MultipartFile image);
 
@@ -40,6 +54,16 @@ public interface SharedMediaService {
      */
     SharedMedia findOne(Long id) throws NotFoundException;
 
+    /**
+     * Find the caching metadata (state, content hash, upload time) of a shared media entry
+     * without loading its image.
+     *
+     * @param id The ID of the shared media entity
+     * @return The image metadata
+     * @throws NotFoundException if the shared media is not found
+     */
+    SharedMediaImageModel findImageInfo(Long id) throws NotFoundException;
+
     /**
      * Delete a shared media entry by its ID.
      *
@@ -57,4 +81,20 @@ public interface SharedMediaService {
      * @throws NotFoundException if the shared media is not found
      */
     void setState(Long id, MediaState state) throws NotFoundException;
+
+    /**
+     * Set the state of many shared media entries of a tournament at once.
+     * Runs as a single update without loading the images and sends one notification
+     * to the organizer. Ids that don't belong to the tournament are ignored.
+     *
+     * @param tournamentId The ID of the tournament
+     * @param ids The IDs of the shared media entities
+     * @param state The new state of the shared media entities
+     * @param currentUser The username of the current user
+     * @return The number of updated entries
+     * @throws NotFoundException if the tournament is not found
+     * @throws AccessDeniedException if the current user isn't the organizer of the tournament
+     */
+    int setStates(Long tournamentId, Collection<Long> ids, MediaState state, String currentUser)
+        throws NotFoundException, AccessDeniedException;
 }
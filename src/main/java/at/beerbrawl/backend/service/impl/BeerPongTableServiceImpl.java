@@ -11,11 +11,14 @@ import at.beerbrawl.backend.exception.PreconditionFailedException;
 import at.beerbrawl.backend.repository.BeerPongTableRepository;
 import at.beerbrawl.backend.repository.TournamentRepository;
 import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,6 +34,7 @@ public class BeerPongTableServiceImpl implements BeerPongTableService {
     private final BeerPongTableRepository beerPongTableRepository;
     private final TournamentRepository tournamentRepository;
     private MatchDomainService matchDomainService;
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public BeerPongTable findById(Long beerPongTableId) throws NotFoundException {
@@ -45,6 +49,7 @@ public class BeerPongTableServiceImpl implements BeerPongTableService {
     @Transactional
     public BeerPongTable create(CreateBeerPongTableDto beerPongTable, String currentUser) {
         LOGGER.debug("Create new beer pong table {}", beerPongTable);
+        matchDomainService.lockForScheduling(beerPongTable.getTournamentId());
 
         var tournament = tournamentRepository
             .findById(beerPongTable.getTournamentId())
@@ -80,6 +85,7 @@ public class BeerPongTableServiceImpl implements BeerPongTableService {
         beerPongTableRepository.save(entity);
         matchDomainService.scheduleQualiMatches(tournament.getId());
         matchDomainService.scheduleKoMatches(tournament.getId());
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournament.getId(), Topic.TABLES));
 
         return entity;
     }
@@ -136,6 +142,7 @@ public class BeerPongTableServiceImpl implements BeerPongTableService {
 
         entity.setName(beerPongTable.getName());
         beerPongTableRepository.save(entity);
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournament.getId(), Topic.TABLES));
 
         return entity;
     }
@@ -201,6 +208,7 @@ public class BeerPongTableServiceImpl implements BeerPongTableService {
         }
 
         beerPongTableRepository.delete(entity);
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournament.getId(), Topic.TABLES));
         LOGGER.debug("Beer pong table with id {} has been deleted", beerPongTableId);
     }
 }
@@ -0,0 +1,171 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service.impl;
+
+import at.beerbrawl.backend.entity.OutboxMessage;
+import at.beerbrawl.backend.repository.OutboxMessageRepository;
+import at.beerbrawl.backend.service.OutboxService;
+import at.beerbrawl.backend.util.BeerDateTime;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Transactional outbox in front of the broker. Messages are written to {@code outbox_message}
+ * with the change they are about, and relayed in batches by a background thread: right after
+ * the commit, and on a fixed delay for whatever a previous attempt or instance left behind.
+ * A batch is marked as published after it was sent, so a crash in between sends it again;
+ * delivery is at least once and every message carries its id in {@link #MESSAGE_ID_HEADER}.
+ */
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int BATCH_SIZE = 100;
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate batchTransaction;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    public OutboxServiceImpl(
+        OutboxMessageRepository outboxMessageRepository,
+        SimpMessagingTemplate messagingTemplate,
+        ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager,
+        @Value("${beerbrawl.outbox.poll-interval:5s}") Duration pollInterval,
+        @Value("${beerbrawl.outbox.retention:1d}") Duration retention
+    ) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("outbox-relay-");
+        this.scheduler.initialize();
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            scheduler.scheduleWithFixedDelay(this::relayAndCleanUp, pollInterval);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String destination, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize outbox message", e);
+        }
+        outboxMessageRepository.save(new OutboxMessage(destination, json, BeerDateTime.nowUtc()));
+
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            }
+        );
+    }
+
+    /**
+     * Relay on the background thread. Commits arriving while a relay is pending share it.
+     */
+    private void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                wakeUpPending.set(false);
+                try {
+                    relay();
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to relay outbox messages", e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized int relay() {
+        int sent = 0;
+        int batch;
+        do {
+            batch = batchTransaction.execute(status -> relayBatch());
+            sent += batch;
+        } while (batch == BATCH_SIZE);
+        return sent;
+    }
+
+    private int relayBatch() {
+        var messages = outboxMessageRepository.findUnpublishedForUpdate(Limit.of(BATCH_SIZE));
+        var now = BeerDateTime.nowUtc();
+        for (var message : messages) {
+            var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setNativeHeader(MESSAGE_ID_HEADER, message.getMessageId());
+            messagingTemplate.send(
+                message.getDestination(),
+                MessageBuilder.createMessage(
+                    message.getPayload().getBytes(StandardCharsets.UTF_8),
+                    accessor.getMessageHeaders()
+                )
+            );
+            message.setPublishedAt(now);
+        }
+        return messages.size();
+    }
+
+    private void relayAndCleanUp() {
+        try {
+            relay();
+            var publishedBefore = BeerDateTime.nowUtc().minus(retention);
+            batchTransaction.executeWithoutResult(status ->
+                outboxMessageRepository.deletePublishedBefore(publishedBefore)
+            );
+        } catch (RuntimeException e) {
+            // the messages stay in the outbox and are sent with the next attempt
+            LOG.warn("Failed to relay outbox messages", e);
+        }
+    }
+}
@@ -2,88 +2,208 @@
 
 package at.beerbrawl.backend.service.impl;
 
+import at.beerbrawl.backend.config.DomainMetrics;
+import at.beerbrawl.backend.config.diagnostics.ImageProcessingEvent;
 import at.beerbrawl.backend.endpoint.dto.SharedMediaCreateDto;
 import at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto;
 import at.beerbrawl.backend.entity.SharedMedia;
+import at.beerbrawl.backend.entity.Tournament;
 import at.beerbrawl.backend.enums.MediaState;
 import at.beerbrawl.backend.exception.NotFoundException;
 import at.beerbrawl.backend.model.Notification;
 import at.beerbrawl.backend.repository.SharedMediaRepository;
 import at.beerbrawl.backend.repository.TournamentRepository;
+import at.beerbrawl.backend.service.OutboxService;
 import at.beerbrawl.backend.service.SharedMediaService;
+import at.beerbrawl.backend.service.models.SharedMediaImageModel;
+import at.beerbrawl.backend.util.BeerDateTime;
+import at.beerbrawl.backend.util.ContentHash;
+import at.beerbrawl.backend.util.ImageBufferPool;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.security.DigestInputStream;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 public class SharedMediaServiceImpl implements SharedMediaService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /**
+     * Uploads are only collapsed into entries that are still shown or about to be.
+     */
+    private static final Set<MediaState> DEDUPLICATED_STATES = EnumSet.of(
+        MediaState.PENDING,
+        MediaState.APPROVED
+    );
+
     private final SharedMediaRepository sharedMediaRepository;
     private final TournamentRepository tournamentRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final OutboxService outboxService;
+    private final ImageBufferPool imageBufferPool;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainMetrics domainMetrics;
+    private final Clock clock;
 
     @Autowired
     public SharedMediaServiceImpl(
         SharedMediaRepository sharedMediaRepository,
         TournamentRepository tournamentRepository,
-        SimpMessagingTemplate messagingTemplate
+        OutboxService outboxService,
+        ImageBufferPool imageBufferPool,
+        PlatformTransactionManager transactionManager,
+        DomainMetrics domainMetrics,
+        Clock clock
     ) {
         this.sharedMediaRepository = sharedMediaRepository;
         this.tournamentRepository = tournamentRepository;
-        this.messagingTemplate = messagingTemplate;
+        this.outboxService = outboxService;
+        this.imageBufferPool = imageBufferPool;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.domainMetrics = domainMetrics;
+        this.clock = clock;
     }
 
     @Override
     public List<SharedMediaMetadataDto> findAllByTournamentIdWithoutImage(
         Long tournamentId,
-        boolean onlyApproved
+        boolean onlyApproved,
+        Long sinceId,
+        int limit
     ) {
+        final var after = sinceId == null ? 0L : sinceId;
+        final var pageSize = Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE));
         if (onlyApproved) {
-            return sharedMediaRepository.findAllPublicByTournamentIdWithoutImage(tournamentId);
+            return sharedMediaRepository.findAllPublicByTournamentIdWithoutImage(
+                tournamentId,
+                after,
+                pageSize
+            );
         } else {
-            return sharedMediaRepository.findAllByTournamentIdWithoutImage(tournamentId);
+            return sharedMediaRepository.findAllByTournamentIdWithoutImage(
+                tournamentId,
+                after,
+                pageSize
+            );
         }
     }
 
     public SharedMedia create(SharedMediaCreateDto sharedMediaCreateDto, MultipartFile image)
         throws NotFoundException {
-        validateAndProcessImage(sharedMediaCreateDto, image);
-
-        SharedMedia sharedMedia = new SharedMedia();
-        sharedMedia.setAuthor(sharedMediaCreateDto.getAuthor());
-        sharedMedia.setTitle(sharedMediaCreateDto.getTitle());
-        sharedMedia.setImage(sharedMediaCreateDto.getImage());
-        sharedMedia.setState(MediaState.PENDING);
+        validateUpload(image);
 
         var tournament = tournamentRepository
             .findById(sharedMediaCreateDto.getTournamentId())
             .orElseThrow(() -> new NotFoundException("Tournament not found"));
 
-        // notify all clients about new image
-        messagingTemplate.convertAndSend(
-            "/partypics/notifications/" + tournament.getOrganizer().getUsername(),
-            new Notification(
-                tournament.getName() + ": " + sharedMedia.getAuthor() + " uploaded a new image.",
-                tournament.getId()
-            )
+        // hash the raw upload while reading it, so retried uploads are caught before decoding
+        var digest = ContentHash.newDigest();
+        byte[] uploadBytes;
+        try (var in = new DigestInputStream(image.getInputStream(), digest)) {
+            uploadBytes = in.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read image", e);
+        }
+        var uploadHash = ContentHash.toHex(digest.digest());
+        var sameUpload = sharedMediaRepository.findFirstByTournamentIdAndUploadHash(
+            tournament.getId(),
+            uploadHash
         );
+        if (sameUpload.isPresent() && DEDUPLICATED_STATES.contains(sameUpload.get().getState())) {
+            LOG.debug(
+                "Duplicate upload for tournament {}, collapsed into shared media {}",
+                tournament.getId(),
+                sameUpload.get().getId()
+            );
+            return sameUpload.get();
+        }
 
+        domainMetrics
+            .imageProcessing()
+            .record(() -> processImage(sharedMediaCreateDto, uploadBytes));
+        domainMetrics.recordImageSize(uploadBytes.length, sharedMediaCreateDto.getImage().length);
+        // different files (e.g. re-saved or converted) can still decode to the same picture
+        var contentHash = ContentHash.sha256Hex(sharedMediaCreateDto.getImage());
+        var samePicture =
+            sharedMediaRepository.findFirstByTournamentIdAndContentHashAndAuthorAndStateIn(
+                tournament.getId(),
+                contentHash,
+                sharedMediaCreateDto.getAuthor(),
+                DEDUPLICATED_STATES
+            );
+        if (samePicture.isPresent()) {
+            LOG.debug(
+                "Duplicate image for tournament {}, collapsed into shared media {}",
+                tournament.getId(),
+                samePicture.get().getId()
+            );
+            return samePicture.get();
+        }
+
+        SharedMedia sharedMedia = new SharedMedia();
+        sharedMedia.setAuthor(sharedMediaCreateDto.getAuthor());
+        sharedMedia.setTitle(sharedMediaCreateDto.getTitle());
+        sharedMedia.setImage(sharedMediaCreateDto.getImage());
+        sharedMedia.setContentHash(contentHash);
+        sharedMedia.setUploadHash(uploadHash);
+        sharedMedia.setUploadedAt(BeerDateTime.nowUtc(clock));
+        sharedMedia.setState(MediaState.PENDING);
         sharedMedia.setTournament(tournament);
 
-        return sharedMediaRepository.saveAndFlush(sharedMedia);
+        // only the insert runs in a transaction, not the decoding above
+        try {
+            return insert(sharedMedia, sameUpload);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent retry of the same upload was inserted first
+            var winner = sharedMediaRepository
+                .findFirstByTournamentIdAndUploadHash(tournament.getId(), uploadHash)
+                .filter(media -> DEDUPLICATED_STATES.contains(media.getState()))
+                .orElseThrow(() -> e);
+            LOG.debug(
+                "Concurrent duplicate upload for tournament {}, collapsed into shared media {}",
+                tournament.getId(),
+                winner.getId()
+            );
+            return winner;
+        }
     }
 
-    private void validateAndProcessImage(
-        SharedMediaCreateDto sharedMediaCreateDto,
-        MultipartFile image
-    ) {
+    private SharedMedia insert(SharedMedia sharedMedia, Optional<SharedMedia> sameUpload) {
+        var tournament = sharedMedia.getTournament();
+        return transactionTemplate.execute(status -> {
+            // a rejected or deleted upload of the same file gives way to the new one
+            sameUpload.ifPresent(old -> sharedMediaRepository.clearUploadHash(old.getId()));
+            var saved = sharedMediaRepository.saveAndFlush(sharedMedia);
+            // notify the organizer about the image awaiting approval, once it is stored
+            notifyOrganizer(
+                tournament,
+                tournament.getName() + ": " + saved.getAuthor() + " uploaded a new image."
+            );
+            return saved;
+        });
+    }
+
+    private void validateUpload(MultipartFile image) {
         if (image.isEmpty() || image.getSize() > SharedMedia.MAX_IMAGE_SIZE) {
             throw new IllegalArgumentException("Invalid image file size");
         }
@@ -99,12 +219,20 @@ public class SharedMediaServiceImpl implements SharedMediaService {
         if (!isAllowedType) {
             throw new IllegalArgumentException("Invalid image file type");
         }
+    }
 
+    private void processImage(SharedMediaCreateDto sharedMediaCreateDto, byte[] uploadBytes) {
+        var event = new ImageProcessingEvent();
+        event.begin();
+        event.tournamentId = sharedMediaCreateDto.getTournamentId();
+        event.uploadBytes = uploadBytes.length;
         try {
-            BufferedImage bufferedImage = ImageIO.read(image.getInputStream());
+            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(uploadBytes));
             if (bufferedImage == null) {
                 throw new IllegalArgumentException("Invalid image content");
             }
+            event.width = bufferedImage.getWidth();
+            event.height = bufferedImage.getHeight();
 
             if (
                 bufferedImage.getWidth() > SharedMedia.MAX_IMAGE_WIDTH ||
@@ -119,22 +247,27 @@ public class SharedMediaServiceImpl implements SharedMediaService {
                 bufferedImage.getHeight(),
                 BufferedImage.TYPE_INT_RGB
             );
-            convertedImage
-                .createGraphics()
-                .drawImage(bufferedImage, 0, 0, java.awt.Color.WHITE, null);
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            boolean result = ImageIO.write(convertedImage, "jpeg", baos);
-            if (!result) {
-                throw new RuntimeException("Failed to write image");
-            }
-            baos.flush();
-            byte[] imageBytes = baos.toByteArray();
-            baos.close();
+            var graphics = convertedImage.createGraphics();
+            graphics.drawImage(bufferedImage, 0, 0, java.awt.Color.WHITE, null);
+            graphics.dispose();
 
-            sharedMediaCreateDto.setImage(imageBytes);
+            // encode into a pooled buffer sized after the upload, the result is copied exactly once
+            var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (var out = imageBufferPool.newOutput(uploadBytes.length)) {
+                try (var imageOut = new MemoryCacheImageOutputStream(out)) {
+                    writer.setOutput(imageOut);
+                    writer.write(convertedImage);
+                } finally {
+                    writer.dispose();
+                }
+                sharedMediaCreateDto.setImage(out.toByteArray());
+            }
+            event.storedBytes = sharedMediaCreateDto.getImage().length;
+            event.succeeded = true;
         } catch (IOException e) {
             throw new RuntimeException("Failed to process image", e);
+        } finally {
+            event.commit();
         }
     }
 
@@ -145,6 +278,28 @@ public class SharedMediaServiceImpl implements SharedMediaService {
             .orElseThrow(() -> new NotFoundException("SharedMedia not found"));
     }
 
+    @Override
+    @Transactional
+    public SharedMediaImageModel findImageInfo(Long id) throws NotFoundException {
+        var info = sharedMediaRepository
+            .findImageInfoById(id)
+            .orElseThrow(() -> new NotFoundException("SharedMedia not found"));
+        if (info.contentHash() != null) {
+            return info;
+        }
+
+        // media stored before hashes were recorded, backfill once
+        var sharedMedia = findOne(id);
+        sharedMedia.setContentHash(ContentHash.sha256Hex(sharedMedia.getImage()));
+        sharedMediaRepository.save(sharedMedia);
+        return new SharedMediaImageModel(
+            info.id(),
+            info.state(),
+            sharedMedia.getContentHash(),
+            info.uploadedAt()
+        );
+    }
+
     @Override
     public void delete(Long id) throws NotFoundException, AccessDeniedException {
         SharedMedia sharedMedia = findOne(id);
@@ -159,4 +314,48 @@ public class SharedMediaServiceImpl implements SharedMediaService {
         sharedMedia.setState(state);
         sharedMediaRepository.saveAndFlush(sharedMedia);
     }
+
+    @Override
+    @Transactional
+    public int setStates(
+        Long tournamentId,
+        Collection<Long> ids,
+        MediaState state,
+        String currentUser
+    ) throws NotFoundException, AccessDeniedException {
+        var tournament = tournamentRepository
+            .findById(tournamentId)
+            .orElseThrow(() -> new NotFoundException("Tournament not found"));
+        if (
+            tournament.getOrganizer() == null ||
+            !tournament.getOrganizer().getUsername().equals(currentUser)
+        ) {
+            throw new AccessDeniedException("Current user isn't organizer of tournament.");
+        }
+
+        var updated = sharedMediaRepository.updateStateByTournamentIdAndIdIn(
+            tournamentId,
+            ids,
+            state
+        );
+        if (updated > 0) {
+            notifyOrganizer(
+                tournament,
+                tournament.getName() +
+                ": " +
+                updated +
+                " image(s) set to " +
+                state.name().toLowerCase() +
+                "."
+            );
+        }
+        return updated;
+    }
+
+    private void notifyOrganizer(Tournament tournament, String message) {
+        outboxService.enqueue(
+            Notification.Companion.organizerDestination(tournament.getOrganizer().getUsername()),
+            new Notification(message, tournament.getId())
+        );
+    }
 }
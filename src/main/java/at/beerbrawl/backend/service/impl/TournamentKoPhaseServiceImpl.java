@@ -2,8 +2,10 @@
 
 package at.beerbrawl.backend.service.impl;
 
+import at.beerbrawl.backend.config.DomainMetrics;
 import at.beerbrawl.backend.endpoint.dto.TournamentUpdateKoStandingDto;
 import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
 import at.beerbrawl.backend.entity.Team;
 import at.beerbrawl.backend.entity.Tournament;
 import at.beerbrawl.backend.entity.domainservice.MatchDomainService;
@@ -18,9 +20,14 @@ import at.beerbrawl.backend.repository.TournamentRepository;
 import at.beerbrawl.backend.service.TournamentKoPhaseService;
 import at.beerbrawl.backend.service.TournamentQualificationService;
 import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.service.models.MatchTransitionEvent;
 import at.beerbrawl.backend.service.models.QualificationTeamScoreModel;
+import at.beerbrawl.backend.service.models.TournamentClosedEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
 import at.beerbrawl.backend.util.BeerDateTime;
 import java.lang.invoke.MethodHandles;
+import java.time.Clock;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
@@ -28,6 +35,7 @@ import java.util.Stack;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -46,6 +54,9 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
     private final TournamentQualificationService qualificationService;
     private final MatchDomainService matchDomainService;
     private final BeerPongTableRepository beerPongTableRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final DomainMetrics domainMetrics;
 
     @Override
     public KoStanding getStandingById(long standingId) {
@@ -62,6 +73,7 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
         String subjectName
     ) throws NotFoundException, AccessDeniedException {
         LOG.debug("Create knockout matches for tournament with id {}", tournamentId);
+        matchDomainService.lockForScheduling(tournamentId);
 
         // authorization
         final Tournament tournament = tournamentRepository.getReferenceById(tournamentId);
@@ -200,6 +212,7 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
         koStandingsRepository.saveAndFlush(layer[0]);
 
         matchDomainService.scheduleKoMatches(tournamentId);
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.KO));
     }
 
     @Override
@@ -212,6 +225,10 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
             throw new NotFoundException("No standings for tournament found");
         }
 
+        return domainMetrics.koTree().record(() -> assembleKoStandingsTree(standings));
+    }
+
+    private static KoStanding assembleKoStandingsTree(List<KoStanding> standings) {
         var rootNode = standings
             .stream()
             .filter(n -> n.getNextStanding() == null)
@@ -251,6 +268,7 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
         Long standingId,
         TournamentUpdateKoStandingDto updateDto
     ) {
+        matchDomainService.lockForScheduling(tournamentId);
         var tournament = tournamentRepository
             .findById(tournamentId)
             .orElseThrow(() -> new NotFoundException("No tournament found."));
@@ -270,6 +288,12 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
         if (updateDto.drinksPickup() != null) {
             this.updateKoStandingDrinksStatus(koStanding, updateDto.drinksPickup());
         }
+
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.KO));
+        if (koStanding.getNextStanding() == null && koStanding.getTeam() != null) {
+            // the final is decided
+            eventPublisher.publishEvent(new TournamentClosedEvent(tournamentId));
+        }
     }
 
     private void updateKoStandingTeam(
@@ -302,14 +326,18 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
             }
 
             koStanding.setTeam(team);
-            koStanding.setEndTime(BeerDateTime.nowUtc());
+            MatchTransitionEvent.transition(koStanding, MatchStatus.FINISHED);
+            koStanding.setEndTime(BeerDateTime.nowUtc(clock));
         }
 
         this.koStandingsRepository.saveAndFlush(koStanding);
         if (koStanding.getTable() != null) {
             koStanding.getTable().setCurrentMatch(null);
             beerPongTableRepository.saveAndFlush(koStanding.getTable());
-            matchDomainService.scheduleKoMatches(koStanding.getTournament().getId());
+            final var tournamentId = koStanding.getTournament().getId();
+            // the table is free now, even if no queued match takes it over
+            eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.TABLES));
+            matchDomainService.scheduleKoMatches(tournamentId);
         }
     }
 
@@ -398,7 +426,8 @@ public class TournamentKoPhaseServiceImpl implements TournamentKoPhaseService {
         // and only set `startTime` it if it has. See #40.
 
         LOG.debug("Starting KO match {}", standing.getId());
-        standing.setStartTime(BeerDateTime.nowUtc());
+        MatchTransitionEvent.transition(standing, MatchStatus.PLAYING);
+        standing.setStartTime(BeerDateTime.nowUtc(clock));
         this.koStandingsRepository.saveAndFlush(standing);
     }
 }
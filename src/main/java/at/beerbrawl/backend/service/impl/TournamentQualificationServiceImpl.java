@@ -2,7 +2,9 @@
 
 package at.beerbrawl.backend.service.impl;
 
+import at.beerbrawl.backend.config.DomainMetrics;
 import at.beerbrawl.backend.endpoint.dto.TournamentUpdateQualificationMatchDto;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
 import at.beerbrawl.backend.entity.Participation;
 import at.beerbrawl.backend.entity.QualificationMatch;
 import at.beerbrawl.backend.entity.Team;
@@ -17,17 +19,23 @@ import at.beerbrawl.backend.repository.TeamRepository;
 import at.beerbrawl.backend.repository.TournamentRepository;
 import at.beerbrawl.backend.service.TournamentQualificationService;
 import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.service.models.MatchTransitionEvent;
 import at.beerbrawl.backend.service.models.QualificationTeamScoreModel;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
 import at.beerbrawl.backend.util.BeerDateTime;
 import java.lang.invoke.MethodHandles;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.random.RandomGenerator;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -45,6 +53,10 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
     private final MatchDomainService matchDomainService;
     private final BeerPongTableRepository beerPongTableRepository;
     private final TournamentTeamService teamService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final RandomGenerator random;
+    private final DomainMetrics domainMetrics;
 
     @Override
     /*
@@ -57,6 +69,7 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
         String currentUserName
     ) throws PreconditionFailedException, AccessDeniedException, NotFoundException {
         LOG.debug("Create qualifying matches for tournament with id {}", tournamentId);
+        matchDomainService.lockForScheduling(tournamentId);
 
         var tournamentOrganizer = tournamentRepository
             .findById(tournamentId)
@@ -97,7 +110,7 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
             );
         }
 
-        Collections.shuffle(teams);
+        Collections.shuffle(teams, random);
         var tournament = tournamentRepository.getReferenceById(tournamentId);
 
         var matches = new ArrayList<QualificationMatch>();
@@ -113,6 +126,7 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
         qualificationRepository.saveAllAndFlush(matches);
 
         matchDomainService.scheduleQualiMatches(tournamentId);
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.MATCHES));
 
         return qualificationRepository.getAllByIdIn(matches.stream().map(m -> m.getId()).toList());
     }
@@ -142,6 +156,7 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
             tournamentId,
             updateDto
         );
+        matchDomainService.lockForScheduling(tournamentId);
 
         var match =
             this.qualificationRepository.findById(matchId).orElseThrow(
@@ -162,6 +177,11 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
 
         if (updateDto.scoreUpdate() != null) {
             this.updateQualificationMatchResults(match, updateDto.scoreUpdate());
+            eventPublisher.publishEvent(
+                TournamentUpdateEvent.of(tournamentId, Topic.MATCHES, Topic.SCORES)
+            );
+        } else {
+            eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.MATCHES));
         }
 
         // Ensure we return an up-to-date object in any case
@@ -242,7 +262,8 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
         // and only set `startTime` it if it has. See #40.
 
         LOG.debug("Starting qualification match {}", match.getId());
-        match.setStartTime(BeerDateTime.nowUtc());
+        MatchTransitionEvent.transition(match, MatchStatus.PLAYING);
+        match.setStartTime(BeerDateTime.nowUtc(clock));
         this.qualificationRepository.saveAndFlush(match);
     }
 
@@ -250,7 +271,7 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
         QualificationMatch match,
         TournamentUpdateQualificationMatchDto.ScoreUpdateDto updateDto
     ) {
-        if (match.getStartTime() == null || match.getStartTime().isAfter(BeerDateTime.nowUtc())) {
+        if (match.getStartTime() == null || match.getStartTime().isAfter(BeerDateTime.nowUtc(clock))) {
             throw new PreconditionFailedException("Match has not started yet");
         }
 
@@ -275,16 +296,19 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
             match.setWinnerPoints(updateDto.winnerPoints());
         }
 
-        match.setEndTime(BeerDateTime.nowUtc());
+        MatchTransitionEvent.transition(match, MatchStatus.FINISHED);
+        match.setEndTime(BeerDateTime.nowUtc(clock));
         this.qualificationRepository.saveAndFlush(match);
         for (var team : match.getTeams()) {
-            team.markAvailable();
+            team.markAvailable(match.getEndTime());
             teamRepository.saveAndFlush(team);
         }
         if (match.getTable() != null) {
             match.getTable().setCurrentMatch(null);
             beerPongTableRepository.saveAndFlush(match.getTable());
             final var tournamentId = match.getTournament().getId();
+            // the table is free now, even if no queued match takes it over
+            eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.TABLES));
             matchDomainService.scheduleQualiMatches(tournamentId);
         } else {
             LOG.warn(
@@ -312,10 +336,11 @@ public class TournamentQualificationServiceImpl implements TournamentQualificati
         var teams = teamRepository.findAllByTournamentId(tournamentId);
         var matches = qualificationRepository.findAllByTournamentId(tournamentId);
 
-        return calculateScores(teams, matches);
+        return domainMetrics.scoreTable().record(() -> calculateScores(teams, matches));
     }
 
-    private static List<QualificationTeamScoreModel> calculateScores(
+    // package-private for the benchmarks in src/jmh
+    static List<QualificationTeamScoreModel> calculateScores(
         List<Team> teams,
         List<QualificationMatch> matches
     ) {
@@ -16,6 +16,7 @@ import at.beerbrawl.backend.repository.TeamRepository;
 import at.beerbrawl.backend.repository.TournamentRepository;
 import at.beerbrawl.backend.repository.UserRepository;
 import at.beerbrawl.backend.service.TournamentService;
+import at.beerbrawl.backend.service.models.TournamentClosedEvent;
 import at.beerbrawl.backend.service.models.TournamentOverviewModel;
 import jakarta.validation.ValidationException;
 import java.lang.invoke.MethodHandles;
@@ -25,6 +26,7 @@ import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -43,6 +45,7 @@ public class TournamentServiceImpl implements TournamentService {
     private final BeerPongTableRepository beerPongTableRepository;
     private final KoStandingsRepository koStandingsRepository;
     private final MatchDomainService matchDomainService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<Tournament> findAllByOrganizer(String organizerName) {
@@ -95,6 +98,7 @@ public class TournamentServiceImpl implements TournamentService {
         }
 
         tournamentRepository.deleteById(tournamentId);
+        eventPublisher.publishEvent(new TournamentClosedEvent(tournamentId));
         LOGGER.debug("Tournament with id {} deleted successfully", tournamentId);
     }
 
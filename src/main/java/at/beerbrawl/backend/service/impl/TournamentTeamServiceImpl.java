@@ -16,14 +16,18 @@ import at.beerbrawl.backend.repository.TeamRepository;
 import at.beerbrawl.backend.repository.TournamentRepository;
 import at.beerbrawl.backend.service.TournamentTeamService;
 import at.beerbrawl.backend.service.models.TeamModel;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
 import at.beerbrawl.backend.util.BeerDateTime;
 import java.lang.invoke.MethodHandles;
+import java.time.Clock;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,6 +44,8 @@ public class TournamentTeamServiceImpl implements TournamentTeamService {
     private final QualificationMatchRepository qualificationRepository;
     private final KoStandingsRepository koStandingsRepository;
     private final TeamMapper teamMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
 
     @Override
     public Team getById(long teamId) {
@@ -69,7 +75,7 @@ public class TournamentTeamServiceImpl implements TournamentTeamService {
         }
 
         if (
-            tournament.getRegistrationEnd().isBefore(BeerDateTime.nowUtc()) ||
+            tournament.getRegistrationEnd().isBefore(BeerDateTime.nowUtc(clock)) ||
             !tournament.getQualificationMatches().isEmpty()
         ) {
             return SignupTeamResult.REGISTRATION_CLOSED;
@@ -147,6 +153,7 @@ public class TournamentTeamServiceImpl implements TournamentTeamService {
     @Transactional
     public void markTeamAsReady(long tournamentId, long teamId) {
         LOG.debug("Mark team with id {} as ready for tournament with id {}", teamId, tournamentId);
+        matchDomainService.lockForScheduling(tournamentId);
 
         var team = teamRepository
             .findById(teamId)
@@ -157,10 +164,16 @@ public class TournamentTeamServiceImpl implements TournamentTeamService {
             throw new NotFoundException("Team not found in tournament");
         }
 
-        team.checkIn();
+        var wasCheckedIn = Boolean.TRUE.equals(team.getCheckedIn());
+        team.checkIn(BeerDateTime.nowUtc(clock));
         teamRepository.saveAndFlush(team);
 
-        matchDomainService.scheduleQualiMatches(tournamentId);
+        if (wasCheckedIn) {
+            matchDomainService.scheduleQualiMatches(tournamentId);
+        } else {
+            matchDomainService.scheduleQualiMatchesAfterCheckIn(tournamentId, team);
+        }
+        eventPublisher.publishEvent(TournamentUpdateEvent.of(tournamentId, Topic.MATCHES));
     }
 
     @Override
@@ -0,0 +1,80 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service.models;
+
+import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.Match;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A change of {@link Match#getStatus()}, emitted by the services changing the match. The status
+ * is derived, so it is only computed while this event is recorded.
+ */
+@Name("at.beerbrawl.MatchTransition")
+@Label("Match Transition")
+@Category({ "BeerBrawl", "Matches" })
+@Description("A match moved to another status")
+@StackTrace(false)
+public class MatchTransitionEvent extends Event {
+
+    @Label("Match")
+    public long matchId;
+
+    @Label("Tournament")
+    public long tournamentId;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("From")
+    public String from;
+
+    @Label("To")
+    public String to;
+
+    /**
+     * Whether transitions are recorded at all, to skip loading what the status is derived from.
+     */
+    public static boolean isRecorded() {
+        return new MatchTransitionEvent().isEnabled();
+    }
+
+    /**
+     * To be called ahead of the change, while the match still has its previous status.
+     */
+    public static void transition(Match match, MatchStatus to) {
+        var event = new MatchTransitionEvent();
+        if (event.isEnabled()) {
+            event.commit(match, match.getStatus().name(), to.name());
+        }
+    }
+
+    /**
+     * For changes already applied, such as a team checking in, after which the previous status
+     * can no longer be derived from the match.
+     */
+    public static void transition(Match match, MatchStatus from, MatchStatus to) {
+        var event = new MatchTransitionEvent();
+        if (event.isEnabled()) {
+            event.commit(match, from.name(), to.name());
+        }
+    }
+
+    private void commit(Match match, String from, String to) {
+        if (from.equals(to) || !shouldCommit()) {
+            return;
+        }
+        this.matchId = match.getId();
+        this.tournamentId = match.getTournament().getId();
+        this.phase = match instanceof KoStanding ? "ko" : "qualification";
+        this.from = from;
+        this.to = to;
+        commit();
+    }
+}
@@ -0,0 +1,17 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service.models;
+
+import at.beerbrawl.backend.enums.MediaState;
+import java.time.LocalDateTime;
+
+/**
+ * Everything needed to answer a conditional image request, without the image bytes.
+ * {@code uploadedAt} is null for media uploaded before it was tracked.
+ */
+public record SharedMediaImageModel(
+    Long id,
+    MediaState state,
+    String contentHash,
+    LocalDateTime uploadedAt
+) {}
@@ -0,0 +1,9 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service.models;
+
+/**
+ * Published by services once a tournament is over, because it was deleted or its final was
+ * decided. Listeners drop what they keep per tournament once the surrounding transaction committed.
+ */
+public record TournamentClosedEvent(long tournamentId) {}
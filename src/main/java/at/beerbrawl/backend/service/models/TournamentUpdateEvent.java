@@ -0,0 +1,46 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.service.models;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Published by services whenever live views of a tournament changed.
+ * Listeners forward it to subscribers once the surrounding transaction committed.
+ */
+public record TournamentUpdateEvent(long tournamentId, Set<Topic> topics) {
+    public static TournamentUpdateEvent of(long tournamentId, Topic first, Topic... rest) {
+        return new TournamentUpdateEvent(tournamentId, EnumSet.of(first, rest));
+    }
+
+    /**
+     * The live views of a tournament, each with its own STOMP topic.
+     */
+    public enum Topic {
+        MATCHES("matches"),
+        SCORES("scores"),
+        TABLES("tables"),
+        KO("ko");
+
+        private final String path;
+
+        Topic(String path) {
+            this.path = path;
+        }
+
+        public String path() {
+            return path;
+        }
+
+        public String destination(long tournamentId) {
+            return "/tournament/" + tournamentId + "/" + path;
+        }
+
+        public static Optional<Topic> fromPath(String path) {
+            return Arrays.stream(values()).filter(t -> t.path.equals(path)).findFirst();
+        }
+    }
+}
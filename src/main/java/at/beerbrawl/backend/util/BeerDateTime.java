@@ -2,6 +2,7 @@
 
 package at.beerbrawl.backend.util;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
@@ -9,6 +10,16 @@ import java.time.temporal.ChronoUnit;
 public class BeerDateTime {
 
     public static LocalDateTime nowUtc() {
-        return LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
+        return nowUtc(Clock.systemUTC());
+    }
+
+    /**
+     * The current time of the given clock, for code that gets its {@link Clock} injected
+     * so it can be driven by a virtual clock.
+     */
+    public static LocalDateTime nowUtc(Clock clock) {
+        return LocalDateTime.ofInstant(clock.instant(), ZoneOffset.UTC).truncatedTo(
+            ChronoUnit.MILLIS
+        );
     }
 }
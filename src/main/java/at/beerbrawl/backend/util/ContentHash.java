@@ -0,0 +1,33 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class ContentHash {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * Create a new digest instance; every JVM is required to support SHA-256.
+     *
+     * @return a fresh, non-shared digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " not supported", e);
+        }
+    }
+
+    public static String sha256Hex(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+}
@@ -0,0 +1,160 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.util;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pool of reusable, size-classed byte buffers for encoding images.
+ * Size classes are powers of two from {@link #MIN_CLASS_SIZE} to {@link #MAX_CLASS_SIZE};
+ * larger requests are served unpooled. The pool keeps at most {@code maxRetainedBytes}
+ * of idle buffers, anything released beyond that is left to the garbage collector.
+ */
+@Component
+public class ImageBufferPool {
+
+    public static final int MIN_CLASS_SIZE = 64 * 1_024;
+    public static final int MAX_CLASS_SIZE = 16 * 1_024 * 1_024;
+    private static final long DEFAULT_MAX_RETAINED_BYTES = 64L * 1_024 * 1_024;
+
+    private final ConcurrentLinkedQueue<byte[]>[] freeBuffers;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final long maxRetainedBytes;
+
+    public ImageBufferPool() {
+        this(DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ImageBufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        var classes = classIndex(MAX_CLASS_SIZE) + 1;
+        this.freeBuffers = new ConcurrentLinkedQueue[classes];
+        for (int i = 0; i < classes; i++) {
+            freeBuffers[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Take a buffer of at least the given capacity from the pool, allocating one if none is idle.
+     *
+     * @param minCapacity the required capacity
+     * @return a buffer whose length is the size class covering {@code minCapacity}
+     */
+    public byte[] acquire(int minCapacity) {
+        if (minCapacity > MAX_CLASS_SIZE) {
+            return new byte[minCapacity];
+        }
+        var index = classIndex(minCapacity);
+        var buffer = freeBuffers[index].poll();
+        if (buffer == null) {
+            return new byte[MIN_CLASS_SIZE << index];
+        }
+        retainedBytes.addAndGet(-buffer.length);
+        return buffer;
+    }
+
+    /**
+     * Return a buffer obtained from {@link #acquire(int)}. The caller must not use it afterwards.
+     *
+     * @param buffer the buffer to return
+     */
+    public void release(byte[] buffer) {
+        if (buffer.length > MAX_CLASS_SIZE || Integer.bitCount(buffer.length) != 1) {
+            return;
+        }
+        if (retainedBytes.addAndGet(buffer.length) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-buffer.length);
+            return;
+        }
+        freeBuffers[classIndex(buffer.length)].offer(buffer);
+    }
+
+    /**
+     * @return the number of bytes currently held by idle buffers
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * Open an output stream writing into pooled buffers.
+     *
+     * @param expectedSize the expected number of bytes, used to pick the initial size class
+     * @return a new stream, which must be closed to return its buffer
+     */
+    public Output newOutput(int expectedSize) {
+        return new Output(acquire(Math.max(expectedSize, MIN_CLASS_SIZE)));
+    }
+
+    private static int classIndex(int capacity) {
+        if (capacity <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return (32 - Integer.numberOfLeadingZeros(capacity - 1)) -
+        Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    }
+
+    /**
+     * Growable output stream on top of the pool. Growing moves to the next size class
+     * and hands the previous buffer back, so no intermediate buffers are left behind.
+     */
+    public final class Output extends OutputStream {
+
+        private byte[] buffer;
+        private int count;
+
+        private Output(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return an exactly sized copy of the written bytes, the only copy made
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+
+        @Override
+        public void close() {
+            if (buffer != null) {
+                release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (buffer == null) {
+                throw new IllegalStateException("Output already closed");
+            }
+            if (minCapacity <= buffer.length) {
+                return;
+            }
+            var grown = acquire(Math.max(minCapacity, buffer.length * 2));
+            System.arraycopy(buffer, 0, grown, 0, count);
+            release(buffer);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config
+
+import org.springframework.messaging.MessageChannel
+import org.springframework.messaging.SubscribableChannel
+import org.springframework.web.socket.CloseStatus
+import org.springframework.web.socket.WebSocketSession
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Sub-protocol handler keeping track of the send buffers of its sessions.
+ * Sessions whose buffer exceeds the send buffer size limit, or whose current send exceeds the
+ * send time limit, are closed with [CloseStatus.SESSION_NOT_RELIABLE] and counted in
+ * [SubProtocolWebSocketHandler.Stats.getLimitExceededSessions].
+ */
+class MeteredSubProtocolWebSocketHandler(
+    clientInboundChannel: MessageChannel,
+    clientOutboundChannel: SubscribableChannel,
+) : SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+    private val decoratedSessions = ConcurrentHashMap<String, ConcurrentWebSocketSessionDecorator>()
+
+    /**
+     * @return the bytes of outbound messages waiting for a slow client, over all sessions
+     */
+    val queuedBytes: Long
+        get() = decoratedSessions.values.sumOf { it.bufferSize.toLong() }
+
+    override fun decorateSession(session: WebSocketSession): WebSocketSession {
+        val decorated =
+            ConcurrentWebSocketSessionDecorator(
+                session,
+                sendTimeLimit,
+                sendBufferSizeLimit,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE,
+            )
+        decoratedSessions[session.id] = decorated
+        return decorated
+    }
+
+    override fun afterConnectionClosed(
+        session: WebSocketSession,
+        closeStatus: CloseStatus,
+    ) {
+        decoratedSessions.remove(session.id)
+        super.afterConnectionClosed(session, closeStatus)
+    }
+}
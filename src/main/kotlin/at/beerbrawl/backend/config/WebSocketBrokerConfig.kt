@@ -0,0 +1,53 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.config
+
+import io.micrometer.core.instrument.FunctionCounter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.binder.MeterBinder
+import org.springframework.beans.factory.annotation.Qualifier
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.messaging.support.AbstractSubscribableChannel
+import org.springframework.web.socket.WebSocketHandler
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration
+
+/**
+ * Message broker setup, replacing `@EnableWebSocketMessageBroker` to install a
+ * [MeteredSubProtocolWebSocketHandler]. The broker itself is configured in [WebSocketConfig].
+ */
+@Configuration
+class WebSocketBrokerConfig : DelegatingWebSocketMessageBrokerConfiguration() {
+    @Bean
+    override fun subProtocolWebSocketHandler(
+        @Qualifier("clientInboundChannel") clientInboundChannel: AbstractSubscribableChannel,
+        @Qualifier("clientOutboundChannel") clientOutboundChannel: AbstractSubscribableChannel,
+    ): WebSocketHandler = MeteredSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel)
+
+    /**
+     * Metrics of the WebSocket sessions: active sessions, bytes queued for slow clients
+     * and sessions dropped for exceeding the send limits.
+     */
+    @Bean
+    fun webSocketSessionMetrics(
+        @Qualifier("subProtocolWebSocketHandler") webSocketHandler: WebSocketHandler,
+    ): MeterBinder {
+        val handler = webSocketHandler as MeteredSubProtocolWebSocketHandler
+        return MeterBinder { registry ->
+            Gauge
+                .builder("beerbrawl.websocket.sessions.active", handler) { it.stats.totalSessions.toDouble() }
+                .description("Open WebSocket and SockJS sessions")
+                .register(registry)
+            Gauge
+                .builder("beerbrawl.websocket.queued", handler) { it.queuedBytes.toDouble() }
+                .baseUnit("bytes")
+                .description("Outbound bytes buffered for sessions that are still sending")
+                .register(registry)
+            FunctionCounter
+                .builder("beerbrawl.websocket.sessions.dropped", handler) {
+                    it.stats.limitExceededSessions.toDouble()
+                }.description("Sessions closed for exceeding the send time or buffer size limit")
+                .register(registry)
+        }
+    }
+}
@@ -2,21 +2,42 @@
 
 package at.beerbrawl.backend.config
 
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.annotation.Configuration
+import org.springframework.messaging.simp.config.ChannelRegistration
 import org.springframework.messaging.simp.config.MessageBrokerRegistry
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker
+import org.springframework.util.unit.DataSize
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration
+import java.time.Duration
 
 /**
  * Config for websocket communication.
+ * A session whose client can't keep up is closed once its pending sends exceed
+ * `beerbrawl.websocket.send-time-limit` or `beerbrawl.websocket.send-buffer-size-limit`,
+ * so a single bad connection can't hold on to an unbounded buffer.
+ * Messages are compressed with permessage-deflate when the client offers it, which the servlet
+ * container negotiates on its own.
+ * Subscriptions can ask for CBOR instead of JSON, see [CborSubscriptionInterceptor].
+ * Subscriptions to the live tournament views need the public access token of the tournament,
+ * see [TournamentSubscriptionInterceptor].
  */
 @Configuration
-@EnableWebSocketMessageBroker
-class WebSocketConfig : WebSocketMessageBrokerConfigurer {
+class WebSocketConfig(
+    private val tournamentSubscriptionInterceptor: TournamentSubscriptionInterceptor,
+    private val cborSubscriptionInterceptor: CborSubscriptionInterceptor,
+    @Value("\${beerbrawl.websocket.send-time-limit:5s}") private val sendTimeLimit: Duration,
+    @Value("\${beerbrawl.websocket.send-buffer-size-limit:256KB}") private val sendBufferSizeLimit: DataSize,
+    @Value("\${beerbrawl.websocket.message-size-limit:64KB}") private val messageSizeLimit: DataSize,
+    @Value("\${beerbrawl.websocket.outbound.core-pool-size:4}") private val outboundCorePoolSize: Int,
+    @Value("\${beerbrawl.websocket.outbound.max-pool-size:16}") private val outboundMaxPoolSize: Int,
+    @Value("\${beerbrawl.websocket.outbound.queue-capacity:10000}") private val outboundQueueCapacity: Int,
+) : WebSocketMessageBrokerConfigurer {
     @Override
     override fun configureMessageBroker(config: MessageBrokerRegistry) {
-        config.enableSimpleBroker("/partypics")
+        // /partypics: shared media notifications, /tournament/{id}/...: live tournament views
+        config.enableSimpleBroker("/partypics", "/tournament")
     }
 
     @Override
@@ -24,4 +45,29 @@ class WebSocketConfig : WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws").setAllowedOrigins("*")
         registry.addEndpoint("/ws").setAllowedOrigins("*").withSockJS()
     }
+
+    @Override
+    override fun configureWebSocketTransport(registry: WebSocketTransportRegistration) {
+        registry
+            .setSendTimeLimit(sendTimeLimit.toMillis().toInt())
+            .setSendBufferSizeLimit(sendBufferSizeLimit.toBytes().toInt())
+            .setMessageSizeLimit(messageSizeLimit.toBytes().toInt())
+    }
+
+    @Override
+    override fun configureClientInboundChannel(registration: ChannelRegistration) {
+        // rejected subscriptions never reach the encoding registry
+        registration.interceptors(tournamentSubscriptionInterceptor, cborSubscriptionInterceptor)
+    }
+
+    @Override
+    override fun configureClientOutboundChannel(registration: ChannelRegistration) {
+        registration.interceptors(cborSubscriptionInterceptor)
+        // bounded, so a burst to many slow sessions is rejected instead of piling up
+        registration
+            .taskExecutor()
+            .corePoolSize(outboundCorePoolSize)
+            .maxPoolSize(outboundMaxPoolSize)
+            .queueCapacity(outboundQueueCapacity)
+    }
 }
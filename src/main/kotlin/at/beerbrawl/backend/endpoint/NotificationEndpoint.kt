@@ -3,7 +3,10 @@
 package at.beerbrawl.backend.endpoint
 
 import at.beerbrawl.backend.model.Notification
+import org.springframework.messaging.handler.annotation.DestinationVariable
+import org.springframework.messaging.handler.annotation.Header
 import org.springframework.messaging.handler.annotation.MessageMapping
+import org.springframework.messaging.handler.annotation.Payload
 import org.springframework.messaging.handler.annotation.SendTo
 import org.springframework.stereotype.Controller
 import org.springframework.web.util.HtmlUtils
@@ -14,16 +17,33 @@ import org.springframework.web.util.HtmlUtils
 @Controller
 class NotificationEndpoint {
     /**
-     * Notify all clients about a new message.
+     * Notify the clients following a tournament about a new message.
+     * The message is escaped once here, the broker hands the same payload to every subscriber.
      *
      * @param message the message to send
      * @param tournamentId the tournament id
-     * @return the notification
+     * @return the notification, sent to [Notification.tournamentDestination]
      */
+    @MessageMapping("/notify/{tournamentId}")
+    @SendTo("/partypics/notifications/{tournamentId}")
+    fun notify(
+        @Payload message: String,
+        @DestinationVariable tournamentId: Long,
+    ): Notification = Notification(HtmlUtils.htmlEscape(message), tournamentId)
+
+    /**
+     * Notify all clients about a new message, as before notifications were routed per
+     * tournament. Kept until the clients publish to `/notify/{tournamentId}`.
+     *
+     * @param message the message to send
+     * @param tournamentId the tournament id, in the STOMP header `tournamentId`
+     * @return the notification, sent to every client
+     */
+    @Deprecated("Publish to /notify/{tournamentId}")
     @MessageMapping("/notify")
     @SendTo("/partypics/notifications")
-    fun notify(
-        message: String,
-        tournamentId: Long,
+    fun notifyAll(
+        @Payload message: String,
+        @Header("tournamentId") tournamentId: Long,
     ): Notification = Notification(HtmlUtils.htmlEscape(message), tournamentId)
 }
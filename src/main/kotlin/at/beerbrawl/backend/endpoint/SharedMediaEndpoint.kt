@@ -2,6 +2,7 @@
 
 package at.beerbrawl.backend.endpoint
 
+import at.beerbrawl.backend.endpoint.dto.SharedMediaBulkUpdateStateDto
 import at.beerbrawl.backend.endpoint.dto.SharedMediaCreateDto
 import at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto
 import at.beerbrawl.backend.endpoint.dto.SharedMediaUpdateStateDto
@@ -9,16 +10,22 @@ import at.beerbrawl.backend.endpoint.mapper.SharedMediaMapper
 import at.beerbrawl.backend.enums.MediaState
 import at.beerbrawl.backend.exception.NotFoundException
 import at.beerbrawl.backend.service.SharedMediaService
+import at.beerbrawl.backend.service.models.SharedMediaImageModel
 import jakarta.annotation.security.PermitAll
+import jakarta.validation.Valid
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.core.io.ByteArrayResource
+import org.springframework.core.io.Resource
+import org.springframework.http.CacheControl
 import org.springframework.http.HttpHeaders
 import org.springframework.http.HttpStatus
 import org.springframework.http.MediaType
 import org.springframework.http.ResponseEntity
 import org.springframework.security.access.AccessDeniedException
 import org.springframework.security.access.annotation.Secured
+import org.springframework.security.core.Authentication
 import org.springframework.validation.annotation.Validated
 import org.springframework.web.bind.annotation.DeleteMapping
 import org.springframework.web.bind.annotation.GetMapping
@@ -27,11 +34,15 @@ import org.springframework.web.bind.annotation.PostMapping
 import org.springframework.web.bind.annotation.PutMapping
 import org.springframework.web.bind.annotation.RequestBody
 import org.springframework.web.bind.annotation.RequestMapping
+import org.springframework.web.bind.annotation.RequestParam
 import org.springframework.web.bind.annotation.RequestPart
 import org.springframework.web.bind.annotation.ResponseStatus
 import org.springframework.web.bind.annotation.RestController
+import org.springframework.web.context.request.WebRequest
 import org.springframework.web.multipart.MultipartFile
 import java.lang.invoke.MethodHandles
+import java.time.Duration
+import java.time.ZoneOffset
 
 /**
  * REST endpoint for shared media.
@@ -66,11 +77,14 @@ class SharedMediaEndpoint(
     }
 
     /**
-     * Get all shared media.
+     * Get a page of shared media, ordered by id.
+     * Pass the last id of a page as `sinceId` to get the next one,
+     * or the highest id seen so far to poll for new uploads.
      *
      * @param tournamentId
-     * @return all shared media
-     * @return all shared media
+     * @param sinceId only return media with a greater id
+     * @param limit page size, at most [SharedMediaService.MAX_PAGE_SIZE]
+     * @return a page of shared media
      * @throws NotFoundException if no shared media is found
      * @throws AccessDeniedException if the user is not allowed to access the shared media
      * @throws Exception if an unexpected error occurs
@@ -80,22 +94,37 @@ class SharedMediaEndpoint(
     @GetMapping(value = ["/tournament/{tournamentId}"], produces = ["application/json"])
     fun getSharedMediaByTournament(
         @PathVariable(name = "tournamentId") tournamentId: Long,
+        @RequestParam(name = "sinceId", required = false) sinceId: Long?,
+        @RequestParam(
+            name = "limit",
+            defaultValue = "${SharedMediaService.DEFAULT_PAGE_SIZE}",
+        ) limit: Int,
     ): ResponseEntity<List<SharedMediaMetadataDto>> {
-        log.info("GET {}/tournament/{}", BASE_ENDPOINT, tournamentId)
+        log.info(
+            "GET {}/tournament/{}?sinceId={}&limit={}",
+            BASE_ENDPOINT,
+            tournamentId,
+            sinceId,
+            limit,
+        )
         val sharedMediaMetadataDtos =
             sharedMediaService.findAllByTournamentIdWithoutImage(
                 tournamentId,
                 false,
+                sinceId,
+                limit,
             )
         return ResponseEntity.ok(sharedMediaMetadataDtos)
     }
 
     /**
-     * Get all public shared media.
+     * Get a page of public shared media, ordered by id.
+     * Paging and polling work like in [getSharedMediaByTournament].
      *
      * @param tournamentId
-     * @return all public shared media
-     * @return all public shared media
+     * @param sinceId only return media with a greater id
+     * @param limit page size, at most [SharedMediaService.MAX_PAGE_SIZE]
+     * @return a page of public shared media
      * @throws NotFoundException if no shared media is found
      * @throws AccessDeniedException if the user is not allowed to access the shared media
      * @throws Exception if an unexpected error occurs
@@ -105,12 +134,25 @@ class SharedMediaEndpoint(
     @GetMapping(value = ["/tournament/public/{tournamentId}"], produces = ["application/json"])
     fun getPublicSharedMediaByTournament(
         @PathVariable(name = "tournamentId") tournamentId: Long,
+        @RequestParam(name = "sinceId", required = false) sinceId: Long?,
+        @RequestParam(
+            name = "limit",
+            defaultValue = "${SharedMediaService.DEFAULT_PAGE_SIZE}",
+        ) limit: Int,
     ): ResponseEntity<List<SharedMediaMetadataDto>> {
-        log.info("GET {}/tournament/public/{}", BASE_ENDPOINT, tournamentId)
+        log.info(
+            "GET {}/tournament/public/{}?sinceId={}&limit={}",
+            BASE_ENDPOINT,
+            tournamentId,
+            sinceId,
+            limit,
+        )
         val sharedMediaMetadataDtos =
             sharedMediaService.findAllByTournamentIdWithoutImage(
                 tournamentId,
                 true,
+                sinceId,
+                limit,
             )
         return ResponseEntity.ok(sharedMediaMetadataDtos)
     }
@@ -143,8 +185,11 @@ class SharedMediaEndpoint(
 
     /**
      * Get the image of a shared media.
+     * Answers `304` if the client already holds the current version (`If-None-Match`)
+     * and serves byte ranges (`206`) on request.
      *
      * @param sharedMediaId the id of the shared media
+     * @param request the current request, used for conditional handling
      * @return the image of the shared media
      * @throws NotFoundException if the shared media is not found
      */
@@ -153,17 +198,13 @@ class SharedMediaEndpoint(
     @GetMapping(value = ["/image/{sharedMediaId}"], produces = [MediaType.IMAGE_JPEG_VALUE])
     fun getSharedMediaImage(
         @PathVariable(name = "sharedMediaId") sharedMediaId: Long,
-    ): ResponseEntity<ByteArray> {
+        request: WebRequest,
+    ): ResponseEntity<Resource> {
         log.info("GET {}/image/{}", BASE_ENDPOINT, sharedMediaId)
         try {
-            val image = sharedMediaService.findOne(sharedMediaId).image
-            return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .header(
-                    HttpHeaders.CONTENT_DISPOSITION,
-                    "attachment; filename=\"$sharedMediaId.jpg\"",
-                )
-                .body(image)
+            val info = sharedMediaService.findImageInfo(sharedMediaId)
+            // the organizer view changes state often, so always revalidate
+            return imageResponse(info, CacheControl.noCache().cachePrivate(), request)
         } catch (e: NotFoundException) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build()
         }
@@ -171,8 +212,11 @@ class SharedMediaEndpoint(
 
     /**
      * Get the image of a public shared media.
+     * The organizer may still reject or delete an approved image, so caches keep it only briefly
+     * and then revalidate it against its ETag.
      *
      * @param sharedMediaId the id of the shared media
+     * @param request the current request, used for conditional handling
      * @return the image of the shared media
      * @throws NotFoundException if the shared media is not found
      * @throws AccessDeniedException if the shared media is not public
@@ -182,20 +226,19 @@ class SharedMediaEndpoint(
     @GetMapping(value = ["/image/public/{sharedMediaId}"], produces = [MediaType.IMAGE_JPEG_VALUE])
     fun getPublicSharedMediaImage(
         @PathVariable(name = "sharedMediaId") sharedMediaId: Long,
-    ): ResponseEntity<ByteArray> {
+        request: WebRequest,
+    ): ResponseEntity<Resource> {
         log.info("GET {}/image/public/{}", BASE_ENDPOINT, sharedMediaId)
         try {
-            val image = sharedMediaService.findOne(sharedMediaId)
-            if (image.state != MediaState.APPROVED) {
+            val info = sharedMediaService.findImageInfo(sharedMediaId)
+            if (info.state != MediaState.APPROVED) {
                 throw AccessDeniedException("Image is not public")
             }
-            return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .header(
-                    HttpHeaders.CONTENT_DISPOSITION,
-                    "attachment; filename=\"$sharedMediaId.jpg\"",
-                )
-                .body(image.image)
+            return imageResponse(
+                info,
+                CacheControl.maxAge(PUBLIC_IMAGE_MAX_AGE).cachePublic().mustRevalidate(),
+                request,
+            )
         } catch (e: NotFoundException) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build()
         } catch (e: AccessDeniedException) {
@@ -203,6 +246,37 @@ class SharedMediaEndpoint(
         }
     }
 
+    /**
+     * Build the image response. The image bytes are only loaded if the client's
+     * validators do not match; range requests are handled by Spring for [Resource] bodies.
+     */
+    private fun imageResponse(
+        info: SharedMediaImageModel,
+        cacheControl: CacheControl,
+        request: WebRequest,
+    ): ResponseEntity<Resource> {
+        val etag = "\"${info.contentHash}\""
+        val lastModified = info.uploadedAt?.toInstant(ZoneOffset.UTC)?.toEpochMilli() ?: -1L
+        if (request.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .build()
+        }
+
+        val image = sharedMediaService.findOne(info.id).image
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_JPEG)
+            .eTag(etag)
+            .lastModified(lastModified)
+            .cacheControl(cacheControl)
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"${info.id}.jpg\"",
+            )
+            .body(ByteArrayResource(image))
+    }
+
     /**
      * Update the state of a shared media.
      *
@@ -222,8 +296,43 @@ class SharedMediaEndpoint(
         return ResponseEntity(HttpStatus.OK)
     }
 
+    /**
+     * Update the state of many shared media of a tournament at once,
+     * e.g. to approve all pictures of a party in one go.
+     *
+     * @param tournamentId the id of the tournament
+     * @param update the ids of the shared media and their new state
+     * @param authentication the current user
+     * @return the number of updated shared media
+     */
+    @Secured("ROLE_USER")
+    @ResponseStatus(HttpStatus.OK)
+    @PutMapping("/tournament/{tournamentId}/state")
+    fun updateStates(
+        @PathVariable(name = "tournamentId") tournamentId: Long,
+        @Valid @RequestBody update: SharedMediaBulkUpdateStateDto,
+        authentication: Authentication,
+    ): ResponseEntity<Int> {
+        log.info("PUT {}/tournament/{}/state", BASE_ENDPOINT, tournamentId)
+        try {
+            val updated =
+                sharedMediaService.setStates(
+                    tournamentId,
+                    update.ids,
+                    update.state,
+                    authentication.name,
+                )
+            return ResponseEntity.ok(updated)
+        } catch (e: NotFoundException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build()
+        } catch (e: AccessDeniedException) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build()
+        }
+    }
+
     companion object {
         private val log: Logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass())
         const val BASE_ENDPOINT: String = "/api/v1/shared-media"
+        private val PUBLIC_IMAGE_MAX_AGE: Duration = Duration.ofMinutes(1)
     }
 }
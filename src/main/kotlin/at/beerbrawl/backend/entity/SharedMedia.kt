@@ -11,10 +11,13 @@ import jakarta.persistence.FetchType
 import jakarta.persistence.GeneratedValue
 import jakarta.persistence.GenerationType
 import jakarta.persistence.Id
+import jakarta.persistence.Index
 import jakarta.persistence.JoinColumn
 import jakarta.persistence.Lob
 import jakarta.persistence.ManyToOne
+import jakarta.persistence.Table
 import jakarta.validation.constraints.Size
+import java.time.LocalDateTime
 
 /**
  * @property id
@@ -23,8 +26,26 @@ import jakarta.validation.constraints.Size
  * @property image
  * @property tournament
  * @property state
+ * @property contentHash hex SHA-256 of the stored image, used as ETag
+ * @property uploadHash hex SHA-256 of the uploaded bytes, used to detect duplicate uploads,
+ * unique per tournament
+ * @property uploadedAt
  */
 @Entity
+@Table(
+    indexes = [
+        Index(name = "idx_shared_media_tournament_id_id", columnList = "tournament_id, id"),
+        Index(
+            name = "uq_shared_media_tournament_id_upload_hash",
+            columnList = "tournament_id, upload_hash",
+            unique = true,
+        ),
+        Index(
+            name = "idx_shared_media_tournament_id_content_hash",
+            columnList = "tournament_id, content_hash",
+        ),
+    ],
+)
 class SharedMedia(
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -43,6 +64,11 @@ class SharedMedia(
     var tournament: Tournament,
     @Enumerated(EnumType.STRING)
     var state: MediaState,
+    @Column(length = 64)
+    var contentHash: String?,
+    @Column(length = 64)
+    var uploadHash: String?,
+    var uploadedAt: LocalDateTime?,
 ) {
     companion object {
         const val MAX_IMAGE_SIZE: Int = 5 * 1_024 * 1_024 // 2MB
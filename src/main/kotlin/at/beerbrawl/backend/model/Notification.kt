@@ -6,4 +6,24 @@ package at.beerbrawl.backend.model
  * @property message
  * @property tournamentId
  */
-data class Notification(val message: String, val tournamentId: Long)
+data class Notification(val message: String, val tournamentId: Long) {
+    companion object {
+        private const val PREFIX = "/partypics/notifications"
+
+        /**
+         * Destination for everyone following a tournament.
+         *
+         * @param tournamentId the tournament id
+         * @return the destination
+         */
+        fun tournamentDestination(tournamentId: Long): String = "$PREFIX/$tournamentId"
+
+        /**
+         * Destination for the organizer of tournaments, e.g. about images awaiting approval.
+         *
+         * @param username the organizer's username
+         * @return the destination
+         */
+        fun organizerDestination(username: String): String = "$PREFIX/organizer/$username"
+    }
+}
@@ -0,0 +1,3 @@
+-- Inhalts-Hash (SHA-256, hex) und Upload-Zeitpunkt für HTTP-Caching der Bilder
+ALTER TABLE shared_media ADD COLUMN content_hash VARCHAR(64);
+ALTER TABLE shared_media ADD COLUMN uploaded_at TIMESTAMP;
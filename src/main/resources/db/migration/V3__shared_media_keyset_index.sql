@@ -0,0 +1,2 @@
+-- Index für die Keyset-Paginierung der Bilder eines Turniers (tournament_id, id)
+CREATE INDEX idx_shared_media_tournament_id_id ON shared_media (tournament_id, id);
@@ -0,0 +1,4 @@
+-- Hash der hochgeladenen Rohdaten (SHA-256, hex) zur Erkennung doppelter Uploads je Turnier
+ALTER TABLE shared_media ADD COLUMN upload_hash VARCHAR(64);
+CREATE INDEX idx_shared_media_tournament_id_upload_hash ON shared_media (tournament_id, upload_hash);
+CREATE INDEX idx_shared_media_tournament_id_content_hash ON shared_media (tournament_id, content_hash);
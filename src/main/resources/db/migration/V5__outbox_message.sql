@@ -0,0 +1,11 @@
+-- Ausgangsnachrichten (Transactional Outbox): werden in derselben Transaktion wie die Änderung
+-- geschrieben und danach im Hintergrund an den Broker weitergereicht
+CREATE TABLE outbox_message (
+                                id BIGINT PRIMARY KEY DEFAULT nextval('tournament_seq'),
+                                message_id VARCHAR(36) NOT NULL UNIQUE, -- Deduplizierungs-ID für die Clients
+                                destination VARCHAR(255) NOT NULL,
+                                payload TEXT NOT NULL, -- JSON
+                                created_at TIMESTAMP NOT NULL,
+                                published_at TIMESTAMP -- NULL solange noch nicht zugestellt
+);
+CREATE INDEX idx_outbox_message_published_at_id ON outbox_message (published_at, id);
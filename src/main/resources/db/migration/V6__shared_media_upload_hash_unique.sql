@@ -0,0 +1,7 @@
+-- Doppelte Uploads je Turnier per Unique-Index ausschließen, damit gleichzeitige Wiederholungen
+-- nicht beide eingefügt werden. Bereits doppelte Einträge behalten den Hash nur beim ältesten.
+UPDATE shared_media SET upload_hash = NULL
+WHERE upload_hash IS NOT NULL
+  AND id NOT IN (SELECT MIN(id) FROM shared_media WHERE upload_hash IS NOT NULL GROUP BY tournament_id, upload_hash);
+DROP INDEX idx_shared_media_tournament_id_upload_hash;
+CREATE UNIQUE INDEX uq_shared_media_tournament_id_upload_hash ON shared_media (tournament_id, upload_hash);
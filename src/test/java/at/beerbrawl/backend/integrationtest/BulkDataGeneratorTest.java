@@ -0,0 +1,173 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.datagenerator.BulkDataGenerator;
+import at.beerbrawl.backend.datagenerator.BulkDataParameters;
+import at.beerbrawl.backend.endpoint.dto.CreateBeerPongTableDto;
+import at.beerbrawl.backend.entity.Tournament;
+import at.beerbrawl.backend.entity.Tournament.SignupTeamResult;
+import at.beerbrawl.backend.repository.QualificationMatchRepository;
+import at.beerbrawl.backend.repository.SharedMediaRepository;
+import at.beerbrawl.backend.repository.TournamentRepository;
+import at.beerbrawl.backend.repository.UserRepository;
+import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.service.TournamentKoPhaseService;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import at.beerbrawl.backend.service.TournamentService;
+import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.util.BeerDateTime;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Generates a small history and reads it back through the services. The generator moves the id
+ * generators, so it gets a database of its own.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulk-data;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class BulkDataGeneratorTest {
+
+    private static final int TEAMS = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TournamentRepository tournamentRepository;
+
+    @Autowired
+    private QualificationMatchRepository qualificationMatchRepository;
+
+    @Autowired
+    private SharedMediaRepository sharedMediaRepository;
+
+    @Autowired
+    private TournamentService tournamentService;
+
+    @Autowired
+    private TournamentTeamService teamService;
+
+    @Autowired
+    private TournamentQualificationService qualificationService;
+
+    @Autowired
+    private TournamentKoPhaseService koPhaseService;
+
+    @Autowired
+    private BeerPongTableService beerPongTableService;
+
+    @Test
+    public void generatedHistoryIsPlayedThroughAndTheApplicationKeepsInserting() {
+        var generator = new BulkDataGenerator(jdbcTemplate, transactionManager, passwordEncoder);
+        var parameters = new BulkDataParameters(3, 4, TEAMS, 4, 0.75, 5, 3, 50, 7L);
+
+        var report = generator.generate(parameters);
+
+        var readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        var tournaments = tournamentRepository.findAll();
+        var played = tournaments
+            .stream()
+            .filter(t -> !qualificationMatchRepository.findAllByTournamentId(t.getId()).isEmpty())
+            .toList();
+        assertAll(
+            () -> assertEquals(3L, report.rows().get("application_user")),
+            () -> assertEquals(parameters.tournaments(), tournaments.size()),
+            () ->
+                assertEquals(parameters.tournaments() * 4, report.rows().get("beer_pong_table")),
+            () -> assertTrue(played.size() > 0 && played.size() < tournaments.size()),
+            () -> assertEquals(played.size() * TEAMS, report.rows().get("qualification_match")),
+            () ->
+                assertEquals(
+                    played.size() * 2L * TEAMS,
+                    report.rows().get("qualification_participation")
+                ),
+            () -> assertEquals(played.size() * 31L, report.rows().get("ko_standing")),
+            () -> assertEquals(played.size() * 5L, report.rows().get("shared_media")),
+            () -> assertEquals(played.size() * 5L, sharedMediaRepository.count()),
+            () ->
+                assertEquals(
+                    played.size() * 5L,
+                    jdbcTemplate.queryForObject(
+                        "SELECT COUNT(DISTINCT content_hash) FROM shared_media",
+                        Long.class
+                    )
+                )
+        );
+
+        for (var tournament : played) {
+            var scores = qualificationService.getTournamentQualificationScoreTable(
+                tournament.getId()
+            );
+            readTransaction.executeWithoutResult(status -> {
+                var finale = koPhaseService.getKoStandingsTree(tournament.getId());
+                assertAll(
+                    () -> assertEquals(TEAMS, scores.size()),
+                    () ->
+                        assertTrue(
+                            qualificationMatchRepository
+                                .findAllByTournamentId(tournament.getId())
+                                .stream()
+                                .allMatch(match -> match.isFinished() && match.getWinner() != null)
+                        ),
+                    () ->
+                        assertEquals(
+                            16,
+                            finale.getInitialParticipantsRecursively().distinct().count()
+                        ),
+                    () -> assertNotNull(finale.getTeam()),
+                    () -> assertTrue(finale.getEndTime().isBefore(BeerDateTime.nowUtc()))
+                );
+            });
+        }
+
+        // the application inserts next to the generated rows without running into their ids
+        var organizer = userRepository.findAll().getFirst().getUsername();
+        var tournament = tournamentService.create(
+            new Tournament(
+                "after the history",
+                BeerDateTime.nowUtc().plusDays(1),
+                16L,
+                "created by the application",
+                null
+            ),
+            organizer
+        );
+        var signup = teamService.signupTeamForTournament(
+            tournament.getId(),
+            tournament.getPublicAccessToken(),
+            "late team"
+        );
+        beerPongTableService.create(
+            new CreateBeerPongTableDto().setTournamentId(tournament.getId()).setName("Tisch 9"),
+            organizer
+        );
+        var again = generator.generate(parameters);
+        assertAll(
+            () -> assertEquals(SignupTeamResult.SUCCESS, signup),
+            () -> assertEquals(report.rows(), again.rows()),
+            () -> assertEquals(parameters.tournaments() * 2 + 1, tournamentRepository.count())
+        );
+    }
+}
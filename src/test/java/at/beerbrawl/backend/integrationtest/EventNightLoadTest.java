@@ -0,0 +1,146 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.endpoint.dto.CreateBeerPongTableDto;
+import at.beerbrawl.backend.entity.Team;
+import at.beerbrawl.backend.entity.Tournament;
+import at.beerbrawl.backend.loadtest.EventNightLoad;
+import at.beerbrawl.backend.loadtest.LoadReport;
+import at.beerbrawl.backend.repository.UserRepository;
+import at.beerbrawl.backend.security.JwtTokenizer;
+import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.util.BeerDateTime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Replays an event night against the app on an embedded server, to catch capacity regressions
+ * before the next event. Takes minutes, so it only runs with {@code -Dbeerbrawl.load-test=true}.
+ * Latency percentiles and error rates per endpoint are printed and written to
+ * {@code target/load-test-report.json}. The load can be scaled with
+ * {@code -Dbeerbrawl.load-test.teams}, {@code .spectators}, {@code .uploads} and {@code .tables},
+ * and {@code -Dbeerbrawl.load-test.max-p99-millis} fails the test if any endpoint got slower.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+    }
+)
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "beerbrawl.load-test", matches = "true")
+public class EventNightLoadTest extends TestData {
+
+    private static final Path REPORT = Path.of("target", "load-test-report.json");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BeerPongTableService beerPongTableService;
+
+    @Autowired
+    private JwtTokenizer jwtTokenizer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void eventNightIsServedWithoutErrors() throws Exception {
+        var teams = Integer.getInteger("beerbrawl.load-test.teams", 32);
+        var tables = Integer.getInteger("beerbrawl.load-test.tables", 8);
+        var params = new EventNightLoad.Parameters(
+            teams,
+            Integer.getInteger("beerbrawl.load-test.spectators", 500),
+            Integer.getInteger("beerbrawl.load-test.uploads", 20),
+            Duration.ofSeconds(3),
+            Duration.ofMinutes(5)
+        );
+        var tournament = setUpTournament(teams, tables);
+
+        LoadReport report;
+        try (
+            var load = new EventNightLoad(
+                URI.create("http://localhost:" + port),
+                tournament.getId(),
+                tournament.getPublicAccessToken(),
+                jwtTokenizer.getAuthToken(TEST_USER, TEST_USER_ROLES),
+                objectMapper
+            )
+        ) {
+            report = load.run(params);
+        }
+        Files.createDirectories(REPORT.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+
+        var maxP99 = Long.getLong("beerbrawl.load-test.max-p99-millis");
+        assertAll(
+            () ->
+                assertEquals(
+                    List.of(),
+                    report
+                        .endpoints()
+                        .stream()
+                        .filter(e -> e.errors() > 0)
+                        .map(LoadReport.EndpointStats::endpoint)
+                        .toList(),
+                    "endpoints with failed requests"
+                ),
+            () ->
+                assertEquals(
+                    (long) teams,
+                    teamRepository
+                        .findAllByTournamentId(tournament.getId())
+                        .stream()
+                        .filter(Team::getCheckedIn)
+                        .count()
+                ),
+            () ->
+                assertTrue(
+                    maxP99 == null ||
+                    report.endpoints().stream().allMatch(e -> e.p99Millis() <= maxP99),
+                    "p99 latency above " + maxP99 + " ms"
+                )
+        );
+    }
+
+    private Tournament setUpTournament(int teams, int tables) {
+        var tournament = new Tournament(
+            "event night",
+            BeerDateTime.nowUtc().plusDays(1),
+            (long) teams,
+            "load test",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentService.create(tournament, TEST_USER);
+        for (int i = 1; i <= tables; i++) {
+            beerPongTableService.create(
+                new CreateBeerPongTableDto()
+                    .setTournamentId(tournament.getId())
+                    .setName("Table " + i),
+                TEST_USER
+            );
+        }
+        return tournament;
+    }
+}
@@ -0,0 +1,87 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.endpoint.dto.CreateBeerPongTableDto;
+import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.service.TournamentTeamService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class FlightRecorderEventsTest extends TestData {
+
+    private static final Path SETTINGS = Path.of("src", "main", "jfr", "beerbrawl.jfc");
+
+    @Autowired
+    private TournamentTeamService teamService;
+
+    @Autowired
+    private BeerPongTableService beerPongTableService;
+
+    @Test
+    public void checkInsAreRecordedWithTheSettingsProfile() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        for (int i = 1; i <= 2; i++) {
+            beerPongTableService.create(
+                new CreateBeerPongTableDto()
+                    .setTournamentId(tournament.getId())
+                    .setName("JFR " + i),
+                TEST_USER
+            );
+        }
+
+        List<RecordedEvent> events;
+        var dump = Files.createTempFile("beerbrawl", ".jfr");
+        try (var recording = new Recording(Configuration.create(SETTINGS))) {
+            recording.start();
+            teamRepository
+                .findAllByTournamentId(tournament.getId())
+                .forEach(team -> teamService.markTeamAsReady(tournament.getId(), team.getId()));
+            recording.stop();
+            recording.dump(dump);
+            events = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+
+        var passes = events
+            .stream()
+            .filter(e -> e.getEventType().getName().equals("at.beerbrawl.Scheduling"))
+            .filter(e -> e.getLong("tournamentId") == tournament.getId())
+            .toList();
+        var transitions = events
+            .stream()
+            .filter(e -> e.getEventType().getName().equals("at.beerbrawl.MatchTransition"))
+            .filter(e -> e.getLong("tournamentId") == tournament.getId())
+            .map(e -> e.getString("from") + " -> " + e.getString("to"))
+            .toList();
+        assertAll(
+            () -> assertEquals(16, passes.size()),
+            () -> assertEquals(2, passes.stream().mapToInt(e -> e.getInt("assigned")).sum()),
+            () -> assertEquals("qualification", passes.getLast().getString("phase")),
+            () -> assertEquals(16, count(transitions, "NOT_CHECKED_IN_YET -> TEAMS_CHECKED_IN")),
+            () ->
+                assertEquals(2, count(transitions, "TEAMS_CHECKED_IN -> QUEUED_COLLECTING_DRINKS")),
+            () -> assertEquals(18, transitions.size())
+        );
+    }
+
+    private static long count(List<String> transitions, String transition) {
+        return transitions.stream().filter(transition::equals).count();
+    }
+}
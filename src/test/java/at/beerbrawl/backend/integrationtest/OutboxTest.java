@@ -0,0 +1,158 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.model.Notification;
+import at.beerbrawl.backend.repository.OutboxMessageRepository;
+import at.beerbrawl.backend.service.OutboxService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class OutboxTest extends TestData {
+
+    private static final String DESTINATION = Notification.Companion.organizerDestination(
+        "outbox-test"
+    );
+
+    @Autowired
+    @Qualifier("brokerChannel")
+    private SubscribableChannel brokerChannel;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Message<?>> messages = new CopyOnWriteArrayList<>();
+    private final MessageHandler recorder = message -> {
+        if (DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+            messages.add(message);
+        }
+    };
+
+    @BeforeEach
+    public void subscribe() {
+        // other tests sharing the context may have left their notifications behind
+        outboxMessageRepository.deleteAll();
+        brokerChannel.subscribe(recorder);
+    }
+
+    @AfterEach
+    public void unsubscribe() {
+        brokerChannel.unsubscribe(recorder);
+        outboxMessageRepository.deleteAll();
+    }
+
+    @Test
+    public void messageIsSentAfterCommitWithItsId() throws Exception {
+        var sentBeforeCommit = new TransactionTemplate(transactionManager).execute(status -> {
+            outboxService.enqueue(DESTINATION, new Notification("Hello", 1L));
+            return !messages.isEmpty();
+        });
+        awaitMessages(1);
+
+        var stored = outboxMessageRepository.findAll().getFirst();
+        var message = messages.getFirst();
+        var notification = objectMapper.readTree((byte[]) message.getPayload());
+        assertAll(
+            () -> assertFalse(sentBeforeCommit),
+            () -> assertEquals("Hello", notification.get("message").asText()),
+            () -> assertEquals(1L, notification.get("tournamentId").asLong()),
+            () ->
+                assertEquals(
+                    stored.getMessageId(),
+                    SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(
+                        OutboxService.MESSAGE_ID_HEADER
+                    )
+                ),
+            () -> assertNotNull(stored.getPublishedAt())
+        );
+    }
+
+    @Test
+    public void rolledBackMessageIsNeverSent() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxService.enqueue(DESTINATION, new Notification("Hello", 1L));
+            status.setRollbackOnly();
+        });
+        outboxService.relay();
+
+        assertAll(
+            () -> assertTrue(messages.isEmpty()),
+            () -> assertTrue(outboxMessageRepository.findAll().isEmpty())
+        );
+    }
+
+    @Test
+    public void unpublishedMessageIsSentAgainWithTheSameId() throws Exception {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            outboxService.enqueue(DESTINATION, new Notification("Hello", 1L))
+        );
+        awaitMessages(1);
+
+        // as if the relay had crashed between sending and marking the message
+        var stored = outboxMessageRepository.findAll().getFirst();
+        stored.setPublishedAt(null);
+        outboxMessageRepository.saveAndFlush(stored);
+        outboxService.relay();
+        awaitMessages(2);
+
+        var ids = messages
+            .stream()
+            .map(message ->
+                SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(
+                    OutboxService.MESSAGE_ID_HEADER
+                )
+            )
+            .toList();
+        assertEquals(List.of(stored.getMessageId(), stored.getMessageId()), ids);
+    }
+
+    @Test
+    public void enqueueRequiresTransaction() {
+        assertThrows(IllegalTransactionStateException.class, () ->
+            outboxService.enqueue(DESTINATION, new Notification("Hello", 1L))
+        );
+    }
+
+    private void awaitMessages(int count) throws InterruptedException {
+        var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (messages.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, messages.size());
+    }
+}
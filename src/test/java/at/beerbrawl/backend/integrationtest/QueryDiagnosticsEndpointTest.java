@@ -0,0 +1,56 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.config.diagnostics.QueryDiagnosticsEndpoint;
+import at.beerbrawl.backend.config.diagnostics.QueryStatistics;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class QueryDiagnosticsEndpointTest extends TestData {
+
+    private static final String SCORE_TABLE =
+        "TournamentQualificationServiceImpl.getTournamentQualificationScoreTable";
+
+    @Autowired
+    private QueryDiagnosticsEndpoint endpoint;
+
+    @Autowired
+    private TournamentQualificationService qualificationService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void statisticsAreReportedPerServiceMethod() {
+        assertInstanceOf(
+            QueryStatistics.class,
+            entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+        );
+        var tournament = generateTournamentWithQualificationMatches();
+        endpoint.reset();
+
+        qualificationService.getTournamentQualificationScoreTable(tournament.getId());
+
+        var scoreTable = endpoint
+            .queries()
+            .methods()
+            .stream()
+            .filter(m -> SCORE_TABLE.equals(m.method()))
+            .findFirst()
+            .orElseThrow();
+        assertTrue(scoreTable.statements() > 0);
+        assertTrue(scoreTable.queries() > 0);
+    }
+}
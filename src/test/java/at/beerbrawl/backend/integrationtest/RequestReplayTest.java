@@ -0,0 +1,393 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import at.beerbrawl.backend.BackendApplication;
+import at.beerbrawl.backend.replay.ReplayReport;
+import at.beerbrawl.backend.replay.RequestReplayer;
+import at.beerbrawl.backend.security.JwtTokenizer;
+import at.beerbrawl.backend.simulation.SimulationClock;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Captures an organizer running the check-in of a tournament, replays the capture against a
+ * fresh instance and expects the same tournament to come out of it. Both instances start on a
+ * database of their own and draw the teams with the same seed.
+ * A capture of an event night is replayed with {@code -Dbeerbrawl.replay.file=<capture>}
+ * instead, e.g. to profile it.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:request-capture;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "beerbrawl.random-seed=7",
+    }
+)
+@ActiveProfiles("test")
+public class RequestReplayTest {
+
+    private static final Instant START = Instant.parse("2024-06-01T17:00:00Z");
+    private static final String REGISTRATION_END = DateTimeFormatter.ofPattern(
+        "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"
+    ).format(LocalDateTime.now(ZoneOffset.UTC).plusDays(1));
+    private static final Path CAPTURE = temporaryCapture();
+    private static final Path REPORT = Path.of("target", "replay-report.json");
+    private static final String PASSWORD = "correct horse battery";
+    private static final String TOURNAMENTS = "/api/v1/tournaments";
+    private static final String MATCHES = TOURNAMENTS + "/1/qualification-matches";
+    private static final String TEAMS = TOURNAMENTS + "/1/teams";
+
+    @TestConfiguration
+    static class SimulationClockConfig {
+
+        @Bean
+        @Primary
+        public SimulationClock simulationClock() {
+            return new SimulationClock(START);
+        }
+    }
+
+    /**
+     * Keeps the test configurations of all tests out of an instance started by hand.
+     */
+    static class TestConfigurationFilter extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(MetadataReader reader, MetadataReaderFactory factory) {
+            return reader.getAnnotationMetadata().hasAnnotation(TestConfiguration.class.getName());
+        }
+    }
+
+    @DynamicPropertySource
+    static void captureFile(DynamicPropertyRegistry registry) {
+        registry.add("beerbrawl.request-capture.file", CAPTURE::toString);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SimulationClock clock;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void replayOnAFreshInstanceEndsInTheSameTournament() throws Exception {
+        var capturing = URI.create("http://localhost:" + port);
+        var authorization = runCheckIn(capturing);
+
+        ReplayReport report;
+        String replayedMatches;
+        String replayedTeams;
+        try (var replaying = startFreshInstance()) {
+            var replayUri = URI.create("http://localhost:" + replaying.getWebServer().getPort());
+            report = replayer(replaying).replay(CAPTURE);
+            replayedMatches = get(replayUri, MATCHES, authorization);
+            replayedTeams = get(replayUri, TEAMS, authorization);
+        }
+
+        var capture = Files.readString(CAPTURE, StandardCharsets.ISO_8859_1);
+        assertAll(
+            () -> assertEquals(0, report.mismatches(), report.toString()),
+            // registration, tournament, 16 signups, 4 tables, matches, 16 check-ins, 2 drinks,
+            // the result and a picture
+            () -> assertEquals(43, report.requests()),
+            () -> assertEquals(Duration.ofMinutes(25), report.capturedSpan()),
+            () -> assertEquals(get(capturing, MATCHES, authorization), replayedMatches),
+            () -> assertEquals(get(capturing, TEAMS, authorization), replayedTeams),
+            () -> assertFalse(capture.contains(PASSWORD)),
+            () -> assertFalse(capture.contains(authorization.substring("Bearer ".length())))
+        );
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "beerbrawl.replay.file", matches = ".+")
+    public void replayCaptureFile() throws Exception {
+        try (var replaying = startFreshInstance()) {
+            var report = replayer(replaying).replay(
+                Path.of(System.getProperty("beerbrawl.replay.file"))
+            );
+            Files.createDirectories(REPORT.getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+        }
+    }
+
+    /**
+     * Register, open a tournament, let 16 teams sign up, check them in and play a match, a minute
+     * apart each on the virtual clock.
+     *
+     * @return the authorization of the organizer
+     */
+    private String runCheckIn(URI uri) throws Exception {
+        var registered = send(
+            uri,
+            "POST",
+            "/api/v1/user/register",
+            Map.of("username", "replay-organizer", "password", PASSWORD),
+            null
+        );
+        var authorization = registered.body();
+
+        tick();
+        var tournament = json(
+            send(
+                uri,
+                "POST",
+                TOURNAMENTS,
+                Map.of(
+                    "name",
+                    "Replay Cup",
+                    "registrationEnd",
+                    // checked against the system clock as well when the tournament is created
+                    REGISTRATION_END,
+                    "maxParticipants",
+                    32
+                ),
+                authorization
+            ).body()
+        );
+        var path = TOURNAMENTS + "/" + tournament.get("id").asLong();
+        var token = json(get(uri, path, authorization)).get("publicAccessToken").asText();
+
+        tick();
+        for (int i = 1; i <= 16; i++) {
+            send(uri, "POST", path + "/teams?token=" + token, Map.of("name", "Team " + i), null);
+        }
+        for (int i = 1; i <= 4; i++) {
+            send(
+                uri,
+                "POST",
+                "/api/v1/beer-pong-tables",
+                Map.of("name", "Table " + i, "tournamentId", tournament.get("id")),
+                authorization
+            );
+        }
+        send(uri, "POST", path + "/qualification-matches", null, authorization);
+
+        for (var team : json(get(uri, path + "/teams", authorization))) {
+            tick();
+            var ready = path + "/teams/" + team.get("id").asLong() + "/ready";
+            send(uri, "POST", ready, null, authorization);
+        }
+
+        tick();
+        var match = StreamSupport.stream(
+            json(get(uri, path + "/qualification-matches", authorization)).spliterator(),
+            false
+        )
+            .filter(m -> !m.get("table").isNull())
+            .findFirst()
+            .orElseThrow();
+        var matchPath = path + "/qualification-matches/" + match.get("id").asLong();
+        for (var participant : match.get("participants")) {
+            send(
+                uri,
+                "PUT",
+                matchPath,
+                Map.of("drinksPickup", Map.of("teamId", participant.get("teamId"))),
+                authorization
+            );
+        }
+        clock.advanceTo(clock.instant().plus(Duration.ofMinutes(5)));
+        var winner = match.get("participants").get(0).get("teamId");
+        send(
+            uri,
+            "PUT",
+            matchPath,
+            Map.of("scoreUpdate", Map.of("winnerTeamId", winner, "winnerPoints", 10)),
+            authorization
+        );
+
+        tick();
+        upload(uri, tournament.get("id").asLong());
+        return authorization;
+    }
+
+    private void tick() {
+        clock.advanceTo(clock.instant().plus(Duration.ofMinutes(1)));
+    }
+
+    private RequestReplayer replayer(ServletWebServerApplicationContext instance) {
+        return new RequestReplayer(
+            URI.create("http://localhost:" + instance.getWebServer().getPort()),
+            instance.getBean(SimulationClock.class),
+            instance.getBean(JwtTokenizer.class),
+            objectMapper
+        );
+    }
+
+    /**
+     * An instance like the one under test, on a database of its own.
+     */
+    private ServletWebServerApplicationContext startFreshInstance() {
+        var database = "jdbc:h2:mem:request-replay-%s;DB_CLOSE_DELAY=-1".formatted(
+            UUID.randomUUID()
+        );
+        return (ServletWebServerApplicationContext) new SpringApplicationBuilder(
+            BackendApplication.class,
+            SimulationClockConfig.class
+        )
+            .profiles("test")
+            .initializers(context ->
+                context
+                    .getBeanFactory()
+                    .registerSingleton("testConfigurationFilter", new TestConfigurationFilter())
+            )
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=" + database,
+                "--spring.jpa.show-sql=false",
+                "--beerbrawl.random-seed=7"
+            );
+    }
+
+    private HttpResponse<String> send(
+        URI uri,
+        String method,
+        String path,
+        Object body,
+        String authorization
+    ) throws Exception {
+        var request = HttpRequest.newBuilder(uri.resolve(path)).method(
+            method,
+            body == null
+                ? BodyPublishers.noBody()
+                : BodyPublishers.ofString(objectMapper.writeValueAsString(body))
+        );
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        var response = client.send(request.build(), BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(
+                "%s %s failed with %d: %s".formatted(
+                        method,
+                        path,
+                        response.statusCode(),
+                        response.body()
+                    )
+            );
+        }
+        return response;
+    }
+
+    private String get(URI uri, String path, String authorization) throws Exception {
+        var request = HttpRequest.newBuilder(uri.resolve(path))
+            .header("Authorization", authorization)
+            .build();
+        return client.send(request, BodyHandlers.ofString()).body();
+    }
+
+    private void upload(URI uri, long tournamentId) throws Exception {
+        var boundary = UUID.randomUUID().toString();
+        var body = new ByteArrayOutputStream();
+        body.writeBytes(
+            part(boundary, "sharedMediaCreateDto", null, "application/json").getBytes(
+                StandardCharsets.UTF_8
+            )
+        );
+        body.writeBytes(
+            objectMapper.writeValueAsBytes(
+                Map.of("author", "guest", "title", "first round", "tournamentId", tournamentId)
+            )
+        );
+        body.writeBytes(
+            ("\r\n" + part(boundary, "image", "picture.png", "image/png")).getBytes(
+                    StandardCharsets.UTF_8
+                )
+        );
+        try (
+            var image = Objects.requireNonNull(
+                getClass().getClassLoader().getResourceAsStream("testimage.png")
+            )
+        ) {
+            body.writeBytes(image.readAllBytes());
+        }
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        var response = client.send(
+            HttpRequest.newBuilder(uri.resolve("/api/v1/shared-media"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(BodyPublishers.ofByteArray(body.toByteArray()))
+                .build(),
+            BodyHandlers.ofString()
+        );
+        assertEquals(201, response.statusCode(), response.body());
+    }
+
+    private static String part(String boundary, String name, String filename, String type) {
+        return (
+            "--" +
+            boundary +
+            "\r\nContent-Disposition: form-data; name=\"" +
+            name +
+            "\"" +
+            (filename == null ? "" : "; filename=\"" + filename + "\"") +
+            "\r\nContent-Type: " +
+            type +
+            "\r\n\r\n"
+        );
+    }
+
+    private JsonNode json(String body) throws IOException {
+        return objectMapper.readTree(body);
+    }
+
+    private static Path temporaryCapture() {
+        try {
+            var file = Files.createTempFile("beerbrawl", ".capture");
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,594 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.endpoint.dto.CreateBeerPongTableDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentUpdateQualificationMatchDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentUpdateQualificationMatchDto.DrinksPickupDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentUpdateQualificationMatchDto.ScoreUpdateDto;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import at.beerbrawl.backend.entity.QualificationMatch;
+import at.beerbrawl.backend.entity.QualificationParticipation;
+import at.beerbrawl.backend.entity.Team;
+import at.beerbrawl.backend.entity.Tournament;
+import at.beerbrawl.backend.entity.Tournament.SignupTeamResult;
+import at.beerbrawl.backend.entity.domainservice.MatchDomainService;
+import at.beerbrawl.backend.repository.BeerPongTableRepository;
+import at.beerbrawl.backend.repository.QualificationMatchRepository;
+import at.beerbrawl.backend.repository.UserRepository;
+import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.util.BeerDateTime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hammers the scheduling paths of a single tournament from many threads at once: tables are
+ * created while the teams check in, then the qualification is played by workers that pick up the
+ * drinks and enter the results of whatever match they find on a table. Afterwards the history is
+ * checked: no match was ever on two tables, no table held a match before its previous one was
+ * over, no team played two matches at once and no match was left waiting next to a free table.
+ * The throughput of every operation is written to {@code target/scheduling-stress-report.json};
+ * other setups can be run with {@code -Dbeerbrawl.stress.threads=16},
+ * {@code -Dbeerbrawl.stress.teams=64} and {@code -Dbeerbrawl.stress.tables=12}.
+ * The lock timeout is raised above H2's default of a second, the workers queue up behind the
+ * tournament lock.
+ */
+@SpringBootTest(
+    properties = "spring.datasource.url=jdbc:h2:mem:scheduling-stress;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"
+)
+@ActiveProfiles("test")
+public class SchedulingStressTest extends TestData {
+
+    private static final Path REPORT = Path.of("target", "scheduling-stress-report.json");
+    private static final Duration DEADLINE = Duration.ofMinutes(2);
+    private static final Duration STALLED = Duration.ofSeconds(10);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TournamentTeamService teamService;
+
+    @Autowired
+    private TournamentQualificationService qualificationService;
+
+    @Autowired
+    private BeerPongTableService beerPongTableService;
+
+    @Autowired
+    private BeerPongTableRepository beerPongTableRepository;
+
+    @Autowired
+    private QualificationMatchRepository qualificationMatchRepository;
+
+    @Autowired
+    private MatchDomainService matchDomainService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Throughput of one operation, over the wall time of the phase it ran in.
+     */
+    record OperationStats(
+        String operation,
+        long count,
+        double perSecond,
+        double meanMillis,
+        double maxMillis
+    ) {}
+
+    record StressReport(
+        int threads,
+        int teams,
+        int tables,
+        long checkInMillis,
+        long playMillis,
+        List<OperationStats> operations
+    ) {}
+
+    /**
+     * A match as one of the workers found it on a table.
+     */
+    private record Sighting(
+        long tableId,
+        long matchId,
+        boolean started,
+        boolean finished,
+        List<Long> teamsWithoutDrinks,
+        long winnerId
+    ) {}
+
+    @Test
+    public void concurrentCheckInAndResultsKeepTheSchedulingConsistent() throws Exception {
+        var threads = Integer.getInteger("beerbrawl.stress.threads", 8);
+        var teams = Integer.getInteger("beerbrawl.stress.teams", 32);
+        var tables = Integer.getInteger("beerbrawl.stress.tables", 8);
+
+        var tournament = setUpTournament(teams);
+        var run = new Run(tournament.getId(), threads);
+
+        var checkIn = run.checkInWhileTablesAreSetUp(tables);
+        var afterCheckIn = consistencyViolations(tournament.getId());
+        var play = run.playQualification();
+        var afterPlay = consistencyViolations(tournament.getId());
+
+        var matches = readTransaction()
+            .execute(status ->
+                qualificationMatchRepository
+                    .findAllByTournamentId(tournament.getId())
+                    .stream()
+                    .map(match ->
+                        new PlayedMatch(
+                            match.getId(),
+                            match.getStartTime(),
+                            match.getEndTime(),
+                            match.getTeams().stream().map(Team::getId).toList()
+                        )
+                    )
+                    .toList()
+            );
+        var report = new StressReport(
+            threads,
+            teams,
+            tables,
+            checkIn.toMillis(),
+            play.toMillis(),
+            run.stats(checkIn, play)
+        );
+        Files.createDirectories(REPORT.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+
+        assertAll(
+            () -> assertEquals(Map.of(), run.errors, "failed operations"),
+            () -> assertEquals(List.of(), afterCheckIn, "after the check-in"),
+            () -> assertEquals(List.of(), afterPlay, "after the qualification"),
+            () -> assertEquals(teams, matches.size()),
+            () ->
+                assertTrue(
+                    matches.stream().allMatch(match -> match.end() != null),
+                    "all qualification matches are finished"
+                ),
+            () -> assertEquals(List.of(), matchesOnSeveralTables(run), "matches on two tables"),
+            () ->
+                assertEquals(
+                    List.of(),
+                    overlapsPerTable(run, matches),
+                    "tables held two matches"
+                ),
+            () -> assertEquals(List.of(), overlapsPerTeam(matches), "teams played twice at once")
+        );
+    }
+
+    private record PlayedMatch(
+        long id,
+        LocalDateTime start,
+        LocalDateTime end,
+        List<Long> teamIds
+    ) {}
+
+    private class Run {
+
+        private final long tournamentId;
+        private final int threads;
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> nanos = new ConcurrentHashMap<>();
+        private final Map<String, LongAccumulator> maxNanos = new ConcurrentHashMap<>();
+        private final Map<String, String> phases = new ConcurrentHashMap<>();
+        private final Map<String, Integer> errors = new ConcurrentHashMap<>();
+        private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+        private final Map<Long, Set<Long>> tablesPerMatch = new ConcurrentHashMap<>();
+        private final AtomicLong lastProgress = new AtomicLong(System.nanoTime());
+
+        Run(long tournamentId, int threads) {
+            this.tournamentId = tournamentId;
+            this.threads = threads;
+        }
+
+        /**
+         * All teams check in while the tables are being created, every call released at once.
+         */
+        Duration checkInWhileTablesAreSetUp(int tables) throws Exception {
+            var calls = new ArrayList<Runnable>();
+            for (int i = 1; i <= tables; i++) {
+                var name = "Table " + i;
+                calls.add(() ->
+                    timed("check-in", "create table", () ->
+                        beerPongTableService.create(
+                            new CreateBeerPongTableDto()
+                                .setTournamentId(tournamentId)
+                                .setName(name),
+                            TEST_USER
+                        )
+                    )
+                );
+            }
+            for (var team : teamRepository.findAllByTournamentId(tournamentId)) {
+                calls.add(() ->
+                    timed("check-in", "mark team ready", () ->
+                        teamService.markTeamAsReady(tournamentId, team.getId())
+                    )
+                );
+            }
+            Collections.shuffle(calls, new Random(42));
+
+            var executor = Executors.newFixedThreadPool(threads);
+            try {
+                var start = new CountDownLatch(1);
+                var futures = new ArrayList<Future<?>>();
+                for (var call : calls) {
+                    futures.add(
+                        executor.submit(() -> {
+                            start.await();
+                            call.run();
+                            return null;
+                        })
+                    );
+                }
+                var begin = System.nanoTime();
+                start.countDown();
+                for (var future : futures) {
+                    future.get(DEADLINE.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                return Duration.ofNanos(System.nanoTime() - begin);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /**
+         * Every worker looks at the tables and takes over whatever is left to do there, so the
+         * drinks of both teams of a match are often picked up by two workers at once.
+         */
+        Duration playQualification() throws Exception {
+            var executor = Executors.newFixedThreadPool(threads);
+            try {
+                var begin = System.nanoTime();
+                lastProgress.set(begin);
+                var workers = IntStream.range(0, threads)
+                    .mapToObj(i -> executor.submit(this::work))
+                    .toList();
+                for (var worker : workers) {
+                    worker.get();
+                }
+                return Duration.ofNanos(System.nanoTime() - begin);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /**
+         * Gives up once nothing was done for a while, a match whose drinks were picked up at the
+         * same time may never start.
+         */
+        private Void work() throws InterruptedException {
+            while (System.nanoTime() - lastProgress.get() < STALLED.toNanos()) {
+                var sightings = sightings();
+                if (sightings.isEmpty() && allFinished()) {
+                    return null;
+                }
+                var worked = false;
+                for (var sighting : sightings) {
+                    tablesPerMatch
+                        .computeIfAbsent(sighting.matchId(), id -> ConcurrentHashMap.newKeySet())
+                        .add(sighting.tableId());
+                    if (sighting.finished()) {
+                        continue;
+                    }
+                    if (sighting.started()) {
+                        if (claimed.add("score " + sighting.matchId())) {
+                            timed("play", "enter result", () ->
+                                qualificationService.updateQualificationMatch(
+                                    tournamentId,
+                                    sighting.matchId(),
+                                    new TournamentUpdateQualificationMatchDto(
+                                        new ScoreUpdateDto(sighting.winnerId(), 10L),
+                                        null
+                                    )
+                                )
+                            );
+                            worked = true;
+                        }
+                        continue;
+                    }
+                    for (var teamId : sighting.teamsWithoutDrinks()) {
+                        if (claimed.add("drinks " + sighting.matchId() + " " + teamId)) {
+                            timed("play", "pick up drinks", () ->
+                                qualificationService.updateQualificationMatch(
+                                    tournamentId,
+                                    sighting.matchId(),
+                                    new TournamentUpdateQualificationMatchDto(
+                                        null,
+                                        new DrinksPickupDto(teamId)
+                                    )
+                                )
+                            );
+                            worked = true;
+                            break;
+                        }
+                    }
+                }
+                if (!worked) {
+                    Thread.sleep(1);
+                }
+            }
+            errors.merge("stalled for " + STALLED, 1, Integer::sum);
+            return null;
+        }
+
+        private List<Sighting> sightings() {
+            return readTransaction()
+                .execute(status -> {
+                    var matches = qualificationMatchRepository
+                        .findAllByTournamentId(tournamentId)
+                        .stream()
+                        .collect(Collectors.toMap(QualificationMatch::getId, match -> match));
+                    return beerPongTableRepository
+                        .findAllByTournamentId(tournamentId)
+                        .stream()
+                        .filter(table -> table.getCurrentMatch() != null)
+                        .map(table -> {
+                            var match = matches.get(table.getCurrentMatch().getId());
+                            return new Sighting(
+                                table.getId(),
+                                match.getId(),
+                                match.hasStarted(),
+                                match.isFinished(),
+                                match
+                                    .getParticipations()
+                                    .stream()
+                                    .filter(participation -> !participation.isDrinksCollected())
+                                    .map(QualificationParticipation::getTeam)
+                                    .map(Team::getId)
+                                    .toList(),
+                                match.getTeams().get(0).getId()
+                            );
+                        })
+                        .toList();
+                });
+        }
+
+        private boolean allFinished() {
+            return readTransaction()
+                .execute(status ->
+                    qualificationMatchRepository
+                        .findAllByTournamentId(tournamentId)
+                        .stream()
+                        .allMatch(QualificationMatch::isFinished)
+                );
+        }
+
+        private void timed(String phase, String operation, Runnable call) {
+            var start = System.nanoTime();
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                var cause = NestedExceptionUtils.getMostSpecificCause(e);
+                var message = String.valueOf(cause.getMessage()).lines().findFirst().orElse("");
+                errors.merge(
+                    operation + ": " + cause.getClass().getSimpleName() + " " + message,
+                    1,
+                    Integer::sum
+                );
+                return;
+            }
+            var elapsed = System.nanoTime() - start;
+            lastProgress.set(System.nanoTime());
+            phases.put(operation, phase);
+            counts.computeIfAbsent(operation, o -> new LongAdder()).increment();
+            nanos.computeIfAbsent(operation, o -> new LongAdder()).add(elapsed);
+            maxNanos.computeIfAbsent(operation, o -> new LongAccumulator(Math::max, 0)).accumulate(
+                elapsed
+            );
+        }
+
+        List<OperationStats> stats(Duration checkIn, Duration play) {
+            return new TreeMap<>(counts)
+                .entrySet()
+                .stream()
+                .map(entry -> {
+                    var operation = entry.getKey();
+                    var count = entry.getValue().sum();
+                    var wall = phases.get(operation).equals("check-in") ? checkIn : play;
+                    return new OperationStats(
+                        operation,
+                        count,
+                        count / (wall.toNanos() / 1e9),
+                        nanos.get(operation).sum() / 1e6 / count,
+                        maxNanos.get(operation).get() / 1e6
+                    );
+                })
+                .toList();
+        }
+    }
+
+    /**
+     * Violations of the invariants that hold whenever no scheduling transaction is running.
+     */
+    private List<String> consistencyViolations(long tournamentId) {
+        return readTransaction()
+            .execute(transaction -> {
+                var violations = new ArrayList<String>();
+                var currentMatches = beerPongTableRepository
+                    .findAllByTournamentId(tournamentId)
+                    .stream()
+                    .filter(table -> table.getCurrentMatch() != null)
+                    .map(table -> table.getCurrentMatch().getId())
+                    .toList();
+                if (currentMatches.size() != Set.copyOf(currentMatches).size()) {
+                    violations.add("a match is the current match of two tables " + currentMatches);
+                }
+
+                var teamsAtTables = new HashMap<Long, Long>();
+                for (var match : qualificationMatchRepository.findAllByTournamentId(tournamentId)) {
+                    var status = match.getStatus();
+                    if (
+                        status != MatchStatus.QUEUED_COLLECTING_DRINKS &&
+                        status != MatchStatus.PLAYING
+                    ) {
+                        continue;
+                    }
+                    for (var team : match.getTeams()) {
+                        var other = teamsAtTables.put(team.getId(), match.getId());
+                        if (other != null) {
+                            violations.add(
+                                "team %d is at the tables for matches %d and %d".formatted(
+                                        team.getId(),
+                                        other,
+                                        match.getId()
+                                    )
+                            );
+                        }
+                    }
+                }
+
+                var freeTables = beerPongTableRepository
+                    .findByTournamentIdAndCurrentMatchIsNull(tournamentId)
+                    .size();
+                var queued = matchDomainService.getQualificationMatchQueue(tournamentId).size();
+                if (freeTables > 0 && queued > 0) {
+                    violations.add(
+                        "%d matches wait although %d tables are free".formatted(queued, freeTables)
+                    );
+                }
+                return violations;
+            });
+    }
+
+    private static List<String> matchesOnSeveralTables(Run run) {
+        return run.tablesPerMatch
+            .entrySet()
+            .stream()
+            .filter(entry -> entry.getValue().size() > 1)
+            .map(entry -> "match %d on tables %s".formatted(entry.getKey(), entry.getValue()))
+            .toList();
+    }
+
+    /**
+     * A table may only get its next match once the one before has ended.
+     */
+    private static List<String> overlapsPerTable(Run run, List<PlayedMatch> matches) {
+        var byId = matches
+            .stream()
+            .collect(Collectors.toMap(PlayedMatch::id, match -> match));
+        var matchesPerTable = new HashMap<Long, List<PlayedMatch>>();
+        run.tablesPerMatch.forEach((matchId, tableIds) ->
+            tableIds.forEach(tableId ->
+                matchesPerTable.computeIfAbsent(tableId, id -> new ArrayList<>()).add(
+                    byId.get(matchId)
+                )
+            )
+        );
+        var overlaps = new ArrayList<String>();
+        matchesPerTable.forEach((tableId, played) ->
+            overlaps.addAll(overlaps("table " + tableId, played))
+        );
+        return overlaps;
+    }
+
+    private static List<String> overlapsPerTeam(List<PlayedMatch> matches) {
+        var matchesPerTeam = new HashMap<Long, List<PlayedMatch>>();
+        for (var match : matches) {
+            for (var teamId : match.teamIds()) {
+                matchesPerTeam.computeIfAbsent(teamId, id -> new ArrayList<>()).add(match);
+            }
+        }
+        var overlaps = new ArrayList<String>();
+        matchesPerTeam.forEach((teamId, played) ->
+            overlaps.addAll(overlaps("team " + teamId, played))
+        );
+        return overlaps;
+    }
+
+    private static List<String> overlaps(String owner, List<PlayedMatch> played) {
+        var sorted = played
+            .stream()
+            .filter(match -> match.start() != null && match.end() != null)
+            .sorted(Comparator.comparing(PlayedMatch::start))
+            .toList();
+        var overlaps = new ArrayList<String>();
+        for (int i = 1; i < sorted.size(); i++) {
+            var before = sorted.get(i - 1);
+            var after = sorted.get(i);
+            if (after.start().isBefore(before.end())) {
+                overlaps.add(
+                    "%s played match %d before match %d ended".formatted(
+                            owner,
+                            after.id(),
+                            before.id()
+                        )
+                );
+            }
+        }
+        return overlaps;
+    }
+
+    private Tournament setUpTournament(int teams) {
+        var tournament = new Tournament(
+            "scheduling stress",
+            BeerDateTime.nowUtc().plusDays(1),
+            (long) teams,
+            "many threads, one tournament",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentService.create(tournament, TEST_USER);
+        for (int i = 1; i <= teams; i++) {
+            var result = teamService.signupTeamForTournament(
+                tournament.getId(),
+                tournament.getPublicAccessToken(),
+                "team" + i
+            );
+            assertEquals(SignupTeamResult.SUCCESS, result);
+        }
+        qualificationService.generateQualificationMatchesForTournament(
+            tournament.getId(),
+            TEST_USER
+        );
+        return tournament;
+    }
+
+    private TransactionTemplate readTransaction() {
+        var template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+}
@@ -3,7 +3,9 @@
 package at.beerbrawl.backend.integrationtest;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -13,22 +15,39 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import at.beerbrawl.backend.basetest.TestData;
 import at.beerbrawl.backend.config.properties.SecurityProperties;
+import at.beerbrawl.backend.endpoint.dto.SharedMediaBulkUpdateStateDto;
 import at.beerbrawl.backend.endpoint.dto.SharedMediaCreateDto;
 import at.beerbrawl.backend.endpoint.dto.SharedMediaMetadataDto;
 import at.beerbrawl.backend.endpoint.dto.SharedMediaUpdateStateDto;
+import at.beerbrawl.backend.entity.OutboxMessage;
 import at.beerbrawl.backend.entity.Tournament;
 import at.beerbrawl.backend.enums.MediaState;
+import at.beerbrawl.backend.model.Notification;
+import at.beerbrawl.backend.repository.OutboxMessageRepository;
 import at.beerbrawl.backend.repository.SharedMediaRepository;
 import at.beerbrawl.backend.repository.TournamentRepository;
 import at.beerbrawl.backend.repository.UserRepository;
 import at.beerbrawl.backend.security.JwtTokenizer;
 import at.beerbrawl.backend.util.BeerDateTime;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -50,6 +69,9 @@ public class SharedMediaEndpointTest extends TestData {
     @Autowired
     private TournamentRepository tournamentRepository;
 
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -64,6 +86,8 @@ public class SharedMediaEndpointTest extends TestData {
 
     private static final String SHARED_MEDIA_BASE_URI = "/api/v1/shared-media";
 
+    private final AtomicInteger uploadCounter = new AtomicInteger();
+
     @Test
     public void successfullyCreateNewSharedMedia() throws Exception {
         var tournament = new Tournament(
@@ -129,21 +153,52 @@ public class SharedMediaEndpointTest extends TestData {
         );
     }
 
+    /**
+     * Uploads a copy of the given image with a unique marker painted into it,
+     * so repeated calls aren't collapsed as duplicate uploads.
+     */
     private long createSharedMedia(
         Tournament tournament,
         String author,
         String title,
         String imagePath
     ) throws Exception {
-        SharedMediaCreateDto data = new SharedMediaCreateDto();
-        data.setAuthor(author);
-        data.setTitle(title);
-        data.setTournamentId(tournament.getId());
+        return createSharedMedia(
+            tournament,
+            author,
+            title,
+            withMarker(readImage(imagePath), uploadCounter.incrementAndGet())
+        );
+    }
 
-        byte[] imageBytes = Thread.currentThread()
+    private byte[] readImage(String imagePath) throws Exception {
+        return Thread.currentThread()
             .getContextClassLoader()
             .getResourceAsStream(imagePath)
             .readAllBytes();
+    }
+
+    private byte[] withMarker(byte[] imageBytes, int marker) throws Exception {
+        var image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        var graphics = image.createGraphics();
+        graphics.setColor(new Color(marker * 40503 & 0xFFFFFF));
+        graphics.fillRect(0, 0, 16, 16);
+        graphics.dispose();
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private long createSharedMedia(
+        Tournament tournament,
+        String author,
+        String title,
+        byte[] imageBytes
+    ) throws Exception {
+        SharedMediaCreateDto data = new SharedMediaCreateDto();
+        data.setAuthor(author);
+        data.setTitle(title);
+        data.setTournamentId(tournament.getId());
 
         MockMultipartFile imageFile = new MockMultipartFile(
             "image",
@@ -311,7 +366,9 @@ public class SharedMediaEndpointTest extends TestData {
 
         // Retrieve the shared media to get its ID
         var sharedMediaList = sharedMediaRepository.findAllByTournamentIdWithoutImage(
-            tournament.getId()
+            tournament.getId(),
+            0L,
+            Limit.unlimited()
         );
         assertEquals(1, sharedMediaList.size(), "Expected one shared media to be found");
         var sharedMedia = sharedMediaList.getFirst();
@@ -493,4 +550,431 @@ public class SharedMediaEndpointTest extends TestData {
 
         assertEquals(MediaState.APPROVED, updatedMedia.state());
     }
+
+    @Test
+    public void getSharedMediaImageReturnsNotModifiedForMatchingEtag() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        long sharedMediaId = createSharedMedia(tournament, "Author 1", "Title 1", "testimage.png");
+
+        var firstResponse =
+            this.mockMvc.perform(
+                    get(String.format("%s/image/%d", SHARED_MEDIA_BASE_URI, sharedMediaId)).header(
+                        securityProperties.getAuthHeader(),
+                        jwtTokenizer.getAuthToken(TEST_USER, TEST_USER_ROLES)
+                    )
+                )
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        var etag = firstResponse.getHeader(HttpHeaders.ETAG);
+
+        assertAll(
+            () -> assertNotNull(etag),
+            () -> assertEquals(1, firstResponse.getHeaders(HttpHeaders.ETAG).size()),
+            () -> assertNotNull(firstResponse.getHeader(HttpHeaders.LAST_MODIFIED)),
+            () -> assertEquals("bytes", firstResponse.getHeader(HttpHeaders.ACCEPT_RANGES))
+        );
+
+        var secondResponse =
+            this.mockMvc.perform(
+                    get(String.format("%s/image/%d", SHARED_MEDIA_BASE_URI, sharedMediaId))
+                        .header(
+                            securityProperties.getAuthHeader(),
+                            jwtTokenizer.getAuthToken(TEST_USER, TEST_USER_ROLES)
+                        )
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                )
+                .andExpect(status().isNotModified())
+                .andReturn()
+                .getResponse();
+
+        assertEquals(0, secondResponse.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void getSharedMediaImageWithRangeReturnsPartialContent() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        long sharedMediaId = createSharedMedia(tournament, "Author 1", "Title 1", "testimage.png");
+        var image = sharedMediaRepository.findById(sharedMediaId).orElseThrow().getImage();
+
+        var response =
+            this.mockMvc.perform(
+                    get(String.format("%s/image/%d", SHARED_MEDIA_BASE_URI, sharedMediaId))
+                        .header(
+                            securityProperties.getAuthHeader(),
+                            jwtTokenizer.getAuthToken(TEST_USER, TEST_USER_ROLES)
+                        )
+                        .header(HttpHeaders.RANGE, "bytes=0-99")
+                )
+                .andExpect(status().isPartialContent())
+                .andReturn()
+                .getResponse();
+
+        assertAll(
+            () -> assertEquals(100, response.getContentAsByteArray().length),
+            () ->
+                assertEquals(
+                    "bytes 0-99/" + image.length,
+                    response.getHeader(HttpHeaders.CONTENT_RANGE)
+                ),
+            () ->
+                assertArrayEquals(
+                    Arrays.copyOfRange(image, 0, 100),
+                    response.getContentAsByteArray()
+                )
+        );
+    }
+
+    @Test
+    public void getPublicSharedMediaImageOfApprovedMediaIsCacheable() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        long sharedMediaId = createSharedMedia(tournament, "Author 1", "Title 1", "testimage.png");
+
+        this.mockMvc.perform(
+                get(String.format("%s/image/public/%d", SHARED_MEDIA_BASE_URI, sharedMediaId))
+            ).andExpect(status().isForbidden());
+
+        var sharedMedia = sharedMediaRepository.findById(sharedMediaId).orElseThrow();
+        sharedMedia.setState(MediaState.APPROVED);
+        sharedMediaRepository.saveAndFlush(sharedMedia);
+
+        var response =
+            this.mockMvc.perform(
+                    get(String.format("%s/image/public/%d", SHARED_MEDIA_BASE_URI, sharedMediaId))
+                )
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        var cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        var etag = response.getHeader(HttpHeaders.ETAG);
+        assertAll(
+            () -> assertNotNull(cacheControl),
+            () -> assertTrue(cacheControl.contains("public")),
+            () -> assertTrue(cacheControl.contains("must-revalidate")),
+            () -> assertFalse(cacheControl.contains("immutable")),
+            () -> assertEquals("\"" + sharedMedia.getContentHash() + "\"", etag)
+        );
+
+        this.mockMvc.perform(
+                get(
+                    String.format("%s/image/public/%d", SHARED_MEDIA_BASE_URI, sharedMediaId)
+                ).header(HttpHeaders.IF_NONE_MATCH, etag)
+            ).andExpect(status().isNotModified());
+
+        // once rejected, revalidating caches must not be told to keep serving it
+        sharedMedia.setState(MediaState.REJECTED);
+        sharedMediaRepository.saveAndFlush(sharedMedia);
+        this.mockMvc.perform(
+                get(
+                    String.format("%s/image/public/%d", SHARED_MEDIA_BASE_URI, sharedMediaId)
+                ).header(HttpHeaders.IF_NONE_MATCH, etag)
+            ).andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void getSharedMediaByTournamentIsPaginatedById() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+
+        var firstId = createSharedMedia(tournament, "Author 1", "Title 1", "testimage.png");
+        var secondId = createSharedMedia(tournament, "Author 2", "Title 2", "testimage.png");
+        var thirdId = createSharedMedia(tournament, "Author 3", "Title 3", "testimage.png");
+
+        var firstPage = getSharedMediaPage(tournament.getId(), null, 2);
+        var secondPage = getSharedMediaPage(tournament.getId(), firstPage[1].id(), 2);
+        var sinceLatest = getSharedMediaPage(tournament.getId(), thirdId, 2);
+
+        assertAll(
+            () -> assertEquals(2, firstPage.length),
+            () -> assertEquals(firstId, firstPage[0].id()),
+            () -> assertEquals(secondId, firstPage[1].id()),
+            () -> assertEquals(1, secondPage.length),
+            () -> assertEquals(thirdId, secondPage[0].id()),
+            () -> assertEquals(0, sinceLatest.length)
+        );
+    }
+
+    @Test
+    public void bulkUpdateStatesOfTournamentMedia() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        var otherTournament = new Tournament(
+            "TOURNAMENT 2",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(otherTournament);
+
+        var firstId = createSharedMedia(tournament, "Author 1", "Title 1", "testimage.png");
+        var secondId = createSharedMedia(tournament, "Author 2", "Title 2", "testimage.png");
+        var untouchedId = createSharedMedia(tournament, "Author 3", "Title 3", "testimage.png");
+        var foreignId = createSharedMedia(otherTournament, "Author 4", "Title 4", "testimage.png");
+
+        var response = this.mockMvc.perform(
+                put(SHARED_MEDIA_BASE_URI + "/tournament/" + tournament.getId() + "/state")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        objectMapper.writeValueAsString(
+                            new SharedMediaBulkUpdateStateDto(
+                                List.of(firstId, secondId, foreignId),
+                                MediaState.APPROVED
+                            )
+                        )
+                    )
+                    .header(
+                        securityProperties.getAuthHeader(),
+                        jwtTokenizer.getAuthToken(TEST_USER, TEST_USER_ROLES)
+                    )
+            )
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse();
+
+        assertAll(
+            () -> assertEquals("2", response.getContentAsString()),
+            () ->
+                assertEquals(
+                    MediaState.APPROVED,
+                    sharedMediaRepository.findById(firstId).orElseThrow().getState()
+                ),
+            () ->
+                assertEquals(
+                    MediaState.APPROVED,
+                    sharedMediaRepository.findById(secondId).orElseThrow().getState()
+                ),
+            () ->
+                assertEquals(
+                    MediaState.PENDING,
+                    sharedMediaRepository.findById(untouchedId).orElseThrow().getState()
+                ),
+            () ->
+                assertEquals(
+                    MediaState.PENDING,
+                    sharedMediaRepository.findById(foreignId).orElseThrow().getState()
+                )
+        );
+    }
+
+    @Test
+    public void bulkUpdateStatesOfForeignTournamentIsForbidden() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        var sharedMediaId = createSharedMedia(tournament, "Author 1", "Title 1", "testimage.png");
+
+        this.mockMvc.perform(
+                put(SHARED_MEDIA_BASE_URI + "/tournament/" + tournament.getId() + "/state")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        objectMapper.writeValueAsString(
+                            new SharedMediaBulkUpdateStateDto(
+                                List.of(sharedMediaId),
+                                MediaState.APPROVED
+                            )
+                        )
+                    )
+                    .header(
+                        securityProperties.getAuthHeader(),
+                        jwtTokenizer.getAuthToken("other-user", TEST_USER_ROLES)
+                    )
+            )
+            .andExpect(status().isForbidden());
+
+        assertEquals(
+            MediaState.PENDING,
+            sharedMediaRepository.findById(sharedMediaId).orElseThrow().getState()
+        );
+    }
+
+    @Test
+    public void duplicateUploadIsCollapsedIntoExistingMedia() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        var otherTournament = new Tournament(
+            "TOURNAMENT 2",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(otherTournament);
+
+        var imageBytes = readImage("testimage.png");
+        var firstId = createSharedMedia(tournament, "Author 1", "Title 1", imageBytes);
+        var retriedId = createSharedMedia(tournament, "Author 1", "Title 1", imageBytes);
+        var otherTournamentId = createSharedMedia(otherTournament, "Author 1", "Title 1", imageBytes);
+
+        // same picture, different file
+        var reencoded = new ByteArrayOutputStream();
+        ImageIO.write(ImageIO.read(new ByteArrayInputStream(imageBytes)), "png", reencoded);
+        assertFalse(Arrays.equals(imageBytes, reencoded.toByteArray()));
+        var convertedId = createSharedMedia(
+            tournament,
+            "Author 1",
+            "Title 1",
+            reencoded.toByteArray()
+        );
+
+        assertAll(
+            () -> assertEquals(firstId, retriedId),
+            () -> assertEquals(firstId, convertedId),
+            () -> assertTrue(otherTournamentId != firstId),
+            () -> assertEquals(1, getSharedMediaPage(tournament.getId(), null, 10).length)
+        );
+    }
+
+    @Test
+    public void uploadNotifiesOnlyTheOrganizer() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        var imageBytes = withMarker(readImage("testimage.png"), uploadCounter.incrementAndGet());
+
+        createSharedMedia(tournament, "Author 1", "Title 1", imageBytes);
+
+        var destinations = outboxMessageRepository
+            .findAll()
+            .stream()
+            .filter(message -> message.getPayload().endsWith(":" + tournament.getId() + "}"))
+            .map(OutboxMessage::getDestination)
+            .toList();
+        assertEquals(List.of(Notification.Companion.organizerDestination(TEST_USER)), destinations);
+    }
+
+    @Test
+    public void concurrentRetriesOfAnUploadAreStoredOnce() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        var imageBytes = withMarker(readImage("testimage.png"), uploadCounter.incrementAndGet());
+
+        var retries = 4;
+        var start = new CountDownLatch(1);
+        var ids = new ArrayList<Future<Long>>();
+        try (var executor = Executors.newFixedThreadPool(retries)) {
+            for (int i = 0; i < retries; i++) {
+                ids.add(
+                    executor.submit(() -> {
+                        start.await();
+                        return createSharedMedia(tournament, "Author 1", "Title 1", imageBytes);
+                    })
+                );
+            }
+            start.countDown();
+        }
+
+        var distinctIds = new HashSet<Long>();
+        for (var id : ids) {
+            distinctIds.add(id.get());
+        }
+        assertAll(
+            () -> assertEquals(1, distinctIds.size()),
+            () -> assertEquals(1, getSharedMediaPage(tournament.getId(), null, 10).length)
+        );
+    }
+
+    @Test
+    public void uploadIsNotCollapsedIntoRejectedMediaOrPicturesOfOtherAuthors() throws Exception {
+        var tournament = new Tournament(
+            "TOURNAMENT 1",
+            BeerDateTime.nowUtc().plusDays(1),
+            64L,
+            "THIS IS A TEST",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentRepository.save(tournament);
+        var imageBytes = withMarker(readImage("testimage.png"), uploadCounter.incrementAndGet());
+
+        var rejectedId = createSharedMedia(tournament, "Author 1", "Title 1", imageBytes);
+        var rejected = sharedMediaRepository.findById(rejectedId).orElseThrow();
+        rejected.setState(MediaState.REJECTED);
+        sharedMediaRepository.save(rejected);
+        var uploadedAgainId = createSharedMedia(tournament, "Author 1", "Title 1", imageBytes);
+
+        // same picture, different file: readers ignore bytes after the end of the image
+        var otherFile = Arrays.copyOf(imageBytes, imageBytes.length + 1);
+        var otherAuthorId = createSharedMedia(tournament, "Author 2", "Title 1", otherFile);
+
+        assertAll(
+            () -> assertTrue(uploadedAgainId != rejectedId),
+            () -> assertTrue(otherAuthorId != uploadedAgainId),
+            () -> assertTrue(otherAuthorId != rejectedId),
+            () -> assertEquals(3, getSharedMediaPage(tournament.getId(), null, 10).length)
+        );
+    }
+
+    private SharedMediaMetadataDto[] getSharedMediaPage(Long tournamentId, Long sinceId, int limit)
+        throws Exception {
+        var request = get(String.format("%s/tournament/%d", SHARED_MEDIA_BASE_URI, tournamentId))
+            .param("limit", String.valueOf(limit))
+            .header(
+                securityProperties.getAuthHeader(),
+                jwtTokenizer.getAuthToken(TEST_USER, TEST_USER_ROLES)
+            );
+        if (sinceId != null) {
+            request.param("sinceId", String.valueOf(sinceId));
+        }
+        var response = this.mockMvc.perform(request)
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse();
+        return objectMapper.readValue(response.getContentAsString(), SharedMediaMetadataDto[].class);
+    }
 }
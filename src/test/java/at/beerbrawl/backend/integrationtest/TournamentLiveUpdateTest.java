@@ -0,0 +1,578 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.endpoint.TournamentLongPolling;
+import at.beerbrawl.backend.endpoint.TournamentUpdateBroadcaster;
+import at.beerbrawl.backend.endpoint.dto.CreateBeerPongTableDto;
+import at.beerbrawl.backend.endpoint.dto.LiveMatchDto;
+import at.beerbrawl.backend.endpoint.dto.LiveTableDto;
+import at.beerbrawl.backend.endpoint.dto.TeamNextMatchDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentDeltaDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentSnapshotDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentUpdateQualificationMatchDto;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import at.beerbrawl.backend.entity.Tournament;
+import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class TournamentLiveUpdateTest extends TestData {
+
+    @Autowired
+    @Qualifier("brokerChannel")
+    private SubscribableChannel brokerChannel;
+
+    @Autowired
+    private TournamentTeamService teamService;
+
+    @Autowired
+    private BeerPongTableService beerPongTableService;
+
+    @Autowired
+    private TournamentQualificationService qualificationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TournamentUpdateBroadcaster broadcaster;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<String> destinations = new CopyOnWriteArrayList<>();
+    private final List<Message<?>> messages = new CopyOnWriteArrayList<>();
+    private final MessageHandler recorder = message -> {
+        destinations.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        messages.add(message);
+    };
+
+    @BeforeEach
+    public void subscribe() {
+        // drop what is still pending from setup and cleanup of other tests
+        broadcaster.flush();
+        brokerChannel.subscribe(recorder);
+    }
+
+    @AfterEach
+    public void unsubscribe() {
+        brokerChannel.unsubscribe(recorder);
+    }
+
+    @Test
+    public void markingTeamsReadyPublishesMatchesOncePerWindow() {
+        var tournament = generateTournamentWithQualificationMatches();
+        var matchesTopic = "/tournament/" + tournament.getId() + "/matches";
+        var tablesTopic = "/tournament/" + tournament.getId() + "/tables";
+        broadcaster.flush();
+        destinations.clear();
+
+        beerPongTableService.create(
+            new CreateBeerPongTableDto().setTournamentId(tournament.getId()).setName("Table 1"),
+            TEST_USER
+        );
+        broadcaster.flush();
+        assertEquals(List.of(tablesTopic), destinations);
+
+        var tableUpdates = 0;
+        for (var team : teamRepository.findAllByTournamentId(tournament.getId())) {
+            destinations.clear();
+            teamService.markTeamAsReady(tournament.getId(), team.getId());
+            broadcaster.flush();
+
+            assertEquals(1, destinations.stream().filter(matchesTopic::equals).count());
+            tableUpdates += (int) destinations.stream().filter(tablesTopic::equals).count();
+        }
+        // the single table got a match assigned once its teams were ready
+        assertEquals(1, tableUpdates);
+    }
+
+    @Test
+    public void generatedMatchesArePublished() {
+        var tournament = generateTournamentWithQualificationMatches();
+        broadcaster.flush();
+
+        assertEquals(List.of("/tournament/" + tournament.getId() + "/matches"), destinations);
+    }
+
+    @Test
+    public void finishingAMatchPublishesItsFreedTable() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var tablesTopic = "/tournament/" + tournament.getId() + "/tables";
+        beerPongTableService.create(
+            new CreateBeerPongTableDto().setTournamentId(tournament.getId()).setName("Table 1"),
+            TEST_USER
+        );
+        var match = objectMapper.convertValue(
+            getSnapshot(tournament, null).rows().getFirst(),
+            LiveMatchDto.class
+        );
+        for (var teamId : match.teamIds()) {
+            teamService.markTeamAsReady(tournament.getId(), teamId);
+        }
+        for (var teamId : match.teamIds()) {
+            qualificationService.updateQualificationMatch(
+                tournament.getId(),
+                match.id(),
+                new TournamentUpdateQualificationMatchDto(
+                    null,
+                    new TournamentUpdateQualificationMatchDto.DrinksPickupDto(teamId)
+                )
+            );
+        }
+        broadcaster.flush();
+
+        messages.clear();
+        // no other match has both of its teams checked in, the table stays free
+        qualificationService.updateQualificationMatch(
+            tournament.getId(),
+            match.id(),
+            new TournamentUpdateQualificationMatchDto(
+                new TournamentUpdateQualificationMatchDto.ScoreUpdateDto(
+                    match.teamIds().getFirst(),
+                    10L
+                ),
+                null
+            )
+        );
+        broadcaster.flush();
+
+        var delta = messages
+            .stream()
+            .filter(m ->
+                tablesTopic.equals(SimpMessageHeaderAccessor.getDestination(m.getHeaders()))
+            )
+            .map(m -> readValue((byte[]) m.getPayload(), TournamentDeltaDto.class))
+            .findFirst()
+            .orElseThrow();
+        var table = objectMapper.convertValue(delta.changed().getFirst(), LiveTableDto.class);
+        assertAll(
+            () -> assertEquals(1, delta.changed().size()),
+            () -> assertEquals("Table 1", table.name()),
+            () -> assertNull(table.matchId())
+        );
+    }
+
+    @Test
+    public void rolledBackChangesAreNotPublished() {
+        var tournament = generateTournamentWithQualificationMatches();
+        var team = teamRepository.findAllByTournamentId(tournament.getId()).getFirst();
+        broadcaster.flush();
+        destinations.clear();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            teamService.markTeamAsReady(tournament.getId(), team.getId());
+            status.setRollbackOnly();
+        });
+        broadcaster.flush();
+
+        assertAll(
+            () -> assertTrue(destinations.isEmpty()),
+            () -> assertFalse(teamRepository.findById(team.getId()).orElseThrow().getCheckedIn())
+        );
+    }
+
+    @Test
+    public void deltasChainSequencesAndSnapshotResyncs() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var matchesTopic = "/tournament/" + tournament.getId() + "/matches";
+        var initial = getSnapshot(tournament, null);
+        assertAll(
+            () -> assertEquals(16, initial.rows().size()),
+            () -> assertNull(initial.deltas())
+        );
+
+        var team = teamRepository.findAllByTournamentId(tournament.getId()).getFirst();
+        messages.clear();
+        teamService.markTeamAsReady(tournament.getId(), team.getId());
+        broadcaster.flush();
+
+        var message = messages
+            .stream()
+            .filter(
+                m -> matchesTopic.equals(SimpMessageHeaderAccessor.getDestination(m.getHeaders()))
+            )
+            .findFirst()
+            .orElseThrow();
+        var delta = objectMapper.readValue(
+            (byte[]) message.getPayload(),
+            TournamentDeltaDto.class
+        );
+        var caughtUp = getSnapshot(tournament, initial.sequence());
+        var unknown = getSnapshot(tournament, initial.sequence() - 1);
+
+        assertAll(
+            () -> assertEquals(initial.sequence(), delta.previousSequence()),
+            () -> assertTrue(delta.sequence() > initial.sequence()),
+            // every team plays two qualification matches
+            () -> assertEquals(2, delta.changed().size()),
+            () -> assertTrue(delta.removed().isEmpty()),
+            () -> assertNull(caughtUp.rows()),
+            () -> assertEquals(List.of(delta), caughtUp.deltas()),
+            () -> assertEquals(delta.sequence(), caughtUp.sequence()),
+            () -> assertEquals(16, unknown.rows().size())
+        );
+    }
+
+    @Test
+    public void teamNextMatchIsServedAndPushedOnceItChanged() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        beerPongTableService.create(
+            new CreateBeerPongTableDto().setTournamentId(tournament.getId()).setName("Table 1"),
+            TEST_USER
+        );
+        broadcaster.flush();
+        var firstMatch = objectMapper.convertValue(
+            getSnapshot(tournament, null).rows().getFirst(),
+            LiveMatchDto.class
+        );
+        var teamId = firstMatch.teamIds().get(0);
+        var opponentId = firstMatch.teamIds().get(1);
+        var nextMatchUri = String.format(
+            "%s/%d/live/teams/%d/next-match",
+            TOURNAMENT_BASE_URI,
+            tournament.getId(),
+            teamId
+        );
+        var token = tournament.getPublicAccessToken().toString();
+
+        mockMvc
+            .perform(get(nextMatchUri).param("token", token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.matchId").value(firstMatch.id()))
+            .andExpect(jsonPath("$.status").value("NOT_CHECKED_IN_YET"))
+            .andExpect(jsonPath("$.opponentTeamIds[0]").value(opponentId));
+
+        destinations.clear();
+        messages.clear();
+        teamService.markTeamAsReady(tournament.getId(), teamId);
+        teamService.markTeamAsReady(tournament.getId(), opponentId);
+        broadcaster.flush();
+
+        var teamDestination = TournamentUpdateBroadcaster.teamDestination(
+            tournament.getId(),
+            teamId
+        );
+        var pushed = messages
+            .stream()
+            .filter(m ->
+                teamDestination.equals(SimpMessageHeaderAccessor.getDestination(m.getHeaders()))
+            )
+            .map(m -> readValue((byte[]) m.getPayload(), TeamNextMatchDto.class))
+            .toList();
+        assertAll(
+            () -> assertEquals(1, pushed.size()),
+            () -> assertEquals(firstMatch.id(), pushed.getFirst().matchId()),
+            () -> assertEquals(MatchStatus.QUEUED_COLLECTING_DRINKS, pushed.getFirst().status()),
+            () -> assertEquals("Table 1", pushed.getFirst().tableName()),
+            () -> assertFalse(pushed.getFirst().drinksCollected())
+        );
+
+        mockMvc
+            .perform(
+                get(
+                    String.format(
+                        "%s/%d/live/teams/%d/next-match",
+                        TOURNAMENT_BASE_URI,
+                        tournament.getId(),
+                        -1
+                    )
+                ).param("token", token)
+            )
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void updatesWithinWindowAreCoalescedOffTheRequestThread() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var matchesTopic = "/tournament/" + tournament.getId() + "/matches";
+        var teams = teamRepository.findAllByTournamentId(tournament.getId());
+        var senders = new CopyOnWriteArrayList<Thread>();
+        MessageHandler senderRecorder = message -> senders.add(Thread.currentThread());
+        brokerChannel.subscribe(senderRecorder);
+        try {
+            for (var team : teams.subList(0, 4)) {
+                teamService.markTeamAsReady(tournament.getId(), team.getId());
+            }
+            // nothing is sent before the window ends
+            assertTrue(destinations.isEmpty());
+            broadcaster.flush();
+        } finally {
+            brokerChannel.unsubscribe(senderRecorder);
+        }
+
+        var delta = objectMapper.readValue(
+            (byte[]) messages.getFirst().getPayload(),
+            TournamentDeltaDto.class
+        );
+        assertAll(
+            () -> assertEquals(List.of(matchesTopic), destinations),
+            () -> assertEquals(0, delta.previousSequence()),
+            () -> assertEquals(16, delta.changed().size())
+        );
+
+        // without an explicit flush the window is sent by the scheduler
+        destinations.clear();
+        senders.clear();
+        brokerChannel.subscribe(senderRecorder);
+        try {
+            teamService.markTeamAsReady(tournament.getId(), teams.get(4).getId());
+            var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (senders.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            brokerChannel.unsubscribe(senderRecorder);
+        }
+        assertAll(
+            () -> assertEquals(List.of(matchesTopic), destinations),
+            () -> assertTrue(senders.getFirst().getName().startsWith("live-updates-"))
+        );
+    }
+
+    @Test
+    public void eventStreamSendsSnapshotThenTheSameDeltaToEveryStream() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var uri = String.format("%s/%d/live/stream", TOURNAMENT_BASE_URI, tournament.getId());
+        var token = tournament.getPublicAccessToken().toString();
+        var first = mockMvc
+            .perform(get(uri).param("token", token).param("topics", "matches"))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getResponse();
+        var second = mockMvc
+            .perform(get(uri).param("token", token).param("topics", "matches"))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getResponse();
+        var scoresOnly = mockMvc
+            .perform(get(uri).param("token", token).param("topics", "scores"))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getResponse();
+
+        var snapshotEvents = awaitEvent(first, "snapshot");
+        awaitEvent(second, "snapshot");
+        awaitEvent(scoresOnly, "snapshot");
+        var team = teamRepository.findAllByTournamentId(tournament.getId()).getFirst();
+        teamService.markTeamAsReady(tournament.getId(), team.getId());
+        broadcaster.flush();
+
+        var firstDelta = awaitEvent(first, "delta").substring(snapshotEvents.length());
+        var secondEvents = awaitEvent(second, "delta");
+        var secondDelta = secondEvents.substring(secondEvents.indexOf("event:delta"));
+        assertAll(
+            () -> assertTrue(snapshotEvents.startsWith("event:snapshot\n")),
+            () -> assertTrue(snapshotEvents.contains("\"topic\":\"matches\"")),
+            () -> assertTrue(firstDelta.startsWith("event:delta\n")),
+            () -> assertEquals(firstDelta, secondDelta),
+            // marking a team ready does not change the scores
+            () -> assertFalse(scoresOnly.getContentAsString().contains("event:delta"))
+        );
+    }
+
+    @Test
+    public void eventStreamRejectsUnknownTopics() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        mockMvc
+            .perform(
+                get(String.format("%s/%d/live/stream", TOURNAMENT_BASE_URI, tournament.getId()))
+                    .param("token", tournament.getPublicAccessToken().toString())
+                    .param("topics", "matches,weather")
+            )
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void longPollIsAnsweredOnceTheViewChanged() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var uri = String.format(
+            "%s/%d/qualification-matches/public",
+            TOURNAMENT_BASE_URI,
+            tournament.getId()
+        );
+        var token = tournament.getPublicAccessToken().toString();
+        var version = mockMvc
+            .perform(get(uri).param("token", token))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(TournamentLongPolling.VERSION_HEADER);
+
+        var parked = mockMvc
+            .perform(get(uri).param("token", token).param("since", version))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertThrows(IllegalStateException.class, () -> parked.getAsyncResult(100));
+        var outdated = mockMvc
+            .perform(get(uri).param("token", token).param("since", "-1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        var team = teamRepository.findAllByTournamentId(tournament.getId()).getFirst();
+        teamService.markTeamAsReady(tournament.getId(), team.getId());
+        broadcaster.flush();
+
+        var answered = mockMvc
+            .perform(asyncDispatch(parked))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(16))
+            .andReturn()
+            .getResponse();
+        mockMvc.perform(asyncDispatch(outdated)).andExpect(status().isOk());
+        assertTrue(
+            Long.parseLong(answered.getHeader(TournamentLongPolling.VERSION_HEADER)) >
+            Long.parseLong(version)
+        );
+    }
+
+    @Test
+    public void deletedTournamentIsDroppedAndItsLongPollsAnswered() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var uri = String.format(
+            "%s/%d/qualification-matches/public",
+            TOURNAMENT_BASE_URI,
+            tournament.getId()
+        );
+        var team = teamRepository.findAllByTournamentId(tournament.getId()).getFirst();
+        teamService.markTeamAsReady(tournament.getId(), team.getId());
+        broadcaster.flush();
+        var version = broadcaster.version(tournament.getId(), Topic.MATCHES);
+        var parked = mockMvc
+            .perform(
+                get(uri)
+                    .param("token", tournament.getPublicAccessToken().toString())
+                    .param("since", Long.toString(version))
+            )
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        tournamentService.deleteTournament(tournament.getId(), TEST_USER);
+        broadcaster.flush();
+
+        assertAll(
+            () -> assertTrue(version > 0),
+            () -> assertEquals(0, broadcaster.version(tournament.getId(), Topic.MATCHES)),
+            () -> assertNotNull(parked.getAsyncResult(10_000))
+        );
+    }
+
+    @Test
+    public void longPollTimesOutWithNotModified() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var uri = String.format(
+            "%s/%d/qualification-phase/scores/public",
+            TOURNAMENT_BASE_URI,
+            tournament.getId()
+        );
+        var token = tournament.getPublicAccessToken().toString();
+        var version = mockMvc
+            .perform(get(uri).param("token", token))
+            .andReturn()
+            .getResponse()
+            .getHeader(TournamentLongPolling.VERSION_HEADER);
+
+        var parked = mockMvc
+            .perform(get(uri).param("token", token).param("since", version))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        // MockMvc has no container to fire the timeout
+        var asyncContext = (MockAsyncContext) parked.getRequest().getAsyncContext();
+        for (var listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        mockMvc
+            .perform(asyncDispatch(parked))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(TournamentLongPolling.VERSION_HEADER, version));
+    }
+
+    /**
+     * Wait for an event to be written completely, the streams are written by senders of their own.
+     */
+    private static String awaitEvent(MockHttpServletResponse response, String name)
+        throws Exception {
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        var content = response.getContentAsString();
+        while (
+            !(content.contains("event:" + name + "\n") && content.endsWith("\n\n")) &&
+            System.nanoTime() < deadline
+        ) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+
+    private <T> T readValue(byte[] json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TournamentSnapshotDto getSnapshot(Tournament tournament, Long since)
+        throws Exception {
+        var request = get(
+            String.format("%s/%d/live/matches", TOURNAMENT_BASE_URI, tournament.getId())
+        ).param("token", tournament.getPublicAccessToken().toString());
+        if (since != null) {
+            request.param("since", since.toString());
+        }
+        var response = mockMvc
+            .perform(request)
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse();
+        return objectMapper.readValue(response.getContentAsString(), TournamentSnapshotDto.class);
+    }
+}
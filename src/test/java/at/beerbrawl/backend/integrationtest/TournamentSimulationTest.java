@@ -0,0 +1,192 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.endpoint.dto.CreateBeerPongTableDto;
+import at.beerbrawl.backend.entity.Tournament;
+import at.beerbrawl.backend.entity.Tournament.SignupTeamResult;
+import at.beerbrawl.backend.repository.BeerPongTableRepository;
+import at.beerbrawl.backend.repository.UserRepository;
+import at.beerbrawl.backend.service.BeerPongTableService;
+import at.beerbrawl.backend.service.TournamentKoPhaseService;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.simulation.SimulationClock;
+import at.beerbrawl.backend.simulation.SimulationParameters;
+import at.beerbrawl.backend.simulation.SimulationReport;
+import at.beerbrawl.backend.simulation.TournamentSimulator;
+import at.beerbrawl.backend.util.BeerDateTime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Plays whole tournaments on a virtual clock to measure how well the scheduler keeps the tables
+ * busy. Doubles as a regression benchmark: the reports are written to
+ * {@code target/simulation-report.json}, compare them before and after changing the scheduling.
+ * Other setups can be simulated with {@code -Dbeerbrawl.simulation.teams=64},
+ * {@code -Dbeerbrawl.simulation.tables=4,8,12} and {@code -Dbeerbrawl.simulation.seed=7}.
+ * The virtual clock needs a context of its own, which gets its own database as well, so that
+ * recreating the schema doesn't reset the ids under the other cached contexts.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:simulation;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class TournamentSimulationTest extends TestData {
+
+    private static final Path REPORT = Path.of("target", "simulation-report.json");
+
+    @TestConfiguration
+    static class SimulationClockConfig {
+
+        @Bean
+        @Primary
+        public SimulationClock simulationClock() {
+            return new SimulationClock(Instant.now());
+        }
+    }
+
+    @Autowired
+    private SimulationClock clock;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TournamentTeamService teamService;
+
+    @Autowired
+    private TournamentQualificationService qualificationService;
+
+    @Autowired
+    private TournamentKoPhaseService koPhaseService;
+
+    @Autowired
+    private BeerPongTableService beerPongTableService;
+
+    @Autowired
+    private BeerPongTableRepository beerPongTableRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void moreTablesShortenTheTournament() throws IOException {
+        var teams = Integer.getInteger("beerbrawl.simulation.teams", 32);
+        var seed = Long.getLong("beerbrawl.simulation.seed", 42L);
+        var tableCounts = Arrays.stream(
+            System.getProperty("beerbrawl.simulation.tables", "2,4").split(",")
+        )
+            .map(String::trim)
+            .map(Integer::parseInt)
+            .sorted()
+            .toList();
+
+        var reports = new ArrayList<SimulationReport>();
+        for (var tables : tableCounts) {
+            var tournament = setUpTournament(teams, tables);
+            var report = simulator().run(
+                tournament.getId(),
+                TEST_USER,
+                SimulationParameters.defaults(seed)
+            );
+            reports.add(report);
+
+            var finalMatch = koPhaseService.getKoStandingsTree(tournament.getId());
+            assertAll(
+                () -> assertEquals(teams, report.qualificationMatches()),
+                () -> assertEquals(15, report.koMatches()),
+                () -> assertNotNull(finalMatch.getTeam()),
+                () -> assertTrue(
+                    qualificationService
+                        .getQualificationMatchesForTournament(tournament.getId())
+                        .stream()
+                        .allMatch(match -> match.getEndTime() != null)
+                ),
+                () -> assertTrue(report.tableUtilization() > 0),
+                () -> assertTrue(report.tableUtilization() <= 1),
+                () -> assertTrue(report.playingUtilization() <= report.tableUtilization())
+            );
+        }
+
+        Files.createDirectories(REPORT.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), reports);
+
+        for (int i = 1; i < reports.size(); i++) {
+            assertTrue(
+                reports.get(i).makespan() < reports.get(i - 1).makespan(),
+                "%d tables should finish before %d tables".formatted(
+                        reports.get(i).tables(),
+                        reports.get(i - 1).tables()
+                    )
+            );
+        }
+    }
+
+    private TournamentSimulator simulator() {
+        return new TournamentSimulator(
+            clock,
+            teamService,
+            qualificationService,
+            koPhaseService,
+            teamRepository,
+            beerPongTableRepository,
+            transactionManager
+        );
+    }
+
+    private Tournament setUpTournament(int teams, int tables) {
+        clock.set(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        var tournament = new Tournament(
+            "simulation",
+            BeerDateTime.nowUtc().plusDays(1),
+            (long) teams,
+            "simulated tournament",
+            userRepository.findByUsername(TEST_USER)
+        );
+        tournamentService.create(tournament, TEST_USER);
+
+        for (int i = 1; i <= teams; i++) {
+            var result = teamService.signupTeamForTournament(
+                tournament.getId(),
+                tournament.getPublicAccessToken(),
+                "team" + i
+            );
+            assertEquals(SignupTeamResult.SUCCESS, result);
+        }
+        for (int i = 1; i <= tables; i++) {
+            beerPongTableService.create(
+                new CreateBeerPongTableDto()
+                    .setTournamentId(tournament.getId())
+                    .setName("Table " + i),
+                TEST_USER
+            );
+        }
+        qualificationService.generateQualificationMatchesForTournament(
+            tournament.getId(),
+            TEST_USER
+        );
+        return tournament;
+    }
+}
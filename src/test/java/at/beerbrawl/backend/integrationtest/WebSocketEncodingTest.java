@@ -0,0 +1,156 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.config.CborSubscriptionInterceptor;
+import at.beerbrawl.backend.model.Notification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+/**
+ * Testing the encodings on the {@code /ws} endpoint against a running server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class WebSocketEncodingTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private WebSocketStompClient stompClient;
+
+    @AfterEach
+    public void stopClient() {
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    public void permessageDeflateIsNegotiated() throws Exception {
+        var headers = new WebSocketHttpHeaders();
+        headers.setSecWebSocketExtensions(List.of(new WebSocketExtension("permessage-deflate")));
+        var session = new StandardWebSocketClient()
+            .execute(new AbstractWebSocketHandler() {}, headers, URI.create(url()))
+            .get(10, TimeUnit.SECONDS);
+        try {
+            assertEquals(
+                List.of("permessage-deflate"),
+                session.getExtensions().stream().map(WebSocketExtension::getName).toList()
+            );
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void cborSubscriptionGetsBinaryCborWhileJsonSubscriptionKeepsJson() throws Exception {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        // raw payloads of both encodings, to compare them byte by byte
+        stompClient.setMessageConverter(
+            new ByteArrayMessageConverter() {
+                {
+                    addSupportedMimeTypes(MimeTypeUtils.APPLICATION_JSON);
+                }
+            }
+        );
+        var session = stompClient
+            .connectAsync(url(), new StompSessionHandlerAdapter() {})
+            .get(10, TimeUnit.SECONDS);
+        var destination = Notification.Companion.tournamentDestination(4711L);
+
+        var cborHeaders = new StompHeaders();
+        cborHeaders.setDestination(destination);
+        cborHeaders.set(
+            CborSubscriptionInterceptor.ENCODING_HEADER,
+            CborSubscriptionInterceptor.CBOR
+        );
+        var cborFrame = subscribe(session, cborHeaders);
+        var jsonHeaders = new StompHeaders();
+        jsonHeaders.setDestination(destination);
+        var jsonFrame = subscribe(session, jsonHeaders);
+        // subscriptions are sent without receipts, give the broker a moment to register them
+        Thread.sleep(500);
+
+        var notification = new Notification("Final starts in 5 minutes", 4711L);
+        messagingTemplate.convertAndSend(destination, notification);
+
+        var cbor = cborFrame.get(10, TimeUnit.SECONDS);
+        var json = jsonFrame.get(10, TimeUnit.SECONDS);
+        var ratio = meterRegistry.find("beerbrawl.websocket.encoding.ratio").summary();
+        assertAll(
+            () -> assertEquals(
+                CborSubscriptionInterceptor.CBOR,
+                cbor.headers().getFirst(CborSubscriptionInterceptor.ENCODING_HEADER)
+            ),
+            () -> assertEquals(
+                objectMapper.readTree(json.payload()),
+                new CBORMapper().readTree(cbor.payload())
+            ),
+            () -> assertTrue(cbor.payload().length < json.payload().length),
+            () -> assertTrue(ratio.count() >= 1 && ratio.mean() < 1)
+        );
+    }
+
+    private record Frame(StompHeaders headers, byte[] payload) {}
+
+    private static CompletableFuture<Frame> subscribe(StompSession session, StompHeaders headers) {
+        var frame = new CompletableFuture<Frame>();
+        session.subscribe(
+            headers,
+            new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return byte[].class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    frame.complete(new Frame(headers, (byte[]) payload));
+                }
+            }
+        );
+        return frame;
+    }
+
+    private String url() {
+        return "ws://localhost:" + port + "/ws";
+    }
+}
@@ -0,0 +1,217 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.integrationtest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.basetest.TestData;
+import at.beerbrawl.backend.config.TournamentSubscriptionInterceptor;
+import at.beerbrawl.backend.endpoint.TournamentUpdateBroadcaster;
+import at.beerbrawl.backend.model.Notification;
+import at.beerbrawl.backend.service.models.TournamentUpdateEvent.Topic;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+/**
+ * Subscriptions to the live tournament views and notifications over {@code /ws} against a
+ * running server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class WebSocketSubscriptionTest extends TestData {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private WebSocketStompClient stompClient;
+
+    @AfterEach
+    public void stopClient() {
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    public void subscriptionsWithoutTheTokenGetNoFrames() throws Exception {
+        var tournament = generateTournamentWithQualificationMatches();
+        var token = tournament.getPublicAccessToken().toString();
+        var matches = Topic.MATCHES.destination(tournament.getId());
+        var nextMatch = TournamentUpdateBroadcaster.teamDestination(tournament.getId(), 1L);
+        startClient();
+
+        var withoutToken = connect();
+        var wrongToken = connect();
+        var wrongTokenForTeam = connect();
+        var allTournaments = connect();
+        var withToken = connect();
+        var rejected = List.of(
+            withoutToken.subscribe(matches, null),
+            wrongToken.subscribe(matches, UUID.randomUUID().toString()),
+            wrongTokenForTeam.subscribe(nextMatch, UUID.randomUUID().toString()),
+            allTournaments.subscribe("/tournament/*/matches", token)
+        );
+        var accepted = List.of(
+            withToken.subscribe(matches, token),
+            withToken.subscribe(nextMatch, token)
+        );
+        // subscriptions are sent without receipts, give the broker a moment to register them
+        Thread.sleep(500);
+
+        messagingTemplate.convertAndSend(matches, "matches changed");
+        messagingTemplate.convertAndSend(nextMatch, "next match changed");
+
+        for (var frames : accepted) {
+            frames.first.get(10, TimeUnit.SECONDS);
+        }
+        for (var client : List.of(withoutToken, wrongToken, wrongTokenForTeam, allTournaments)) {
+            client.error.get(10, TimeUnit.SECONDS);
+        }
+        assertAll(
+            () ->
+                assertEquals(
+                    List.of("matches changed", "next match changed"),
+                    accepted.stream().flatMap(frames -> frames.payloads.stream()).toList()
+                ),
+            () -> assertTrue(rejected.stream().allMatch(frames -> frames.payloads.isEmpty()))
+        );
+    }
+
+    @Test
+    public void notificationsReachTheirTournamentAndTheLegacyDestination() throws Exception {
+        startClient();
+        var client = connect();
+        var routed = client.subscribeToNotifications(
+            Notification.Companion.tournamentDestination(7L)
+        );
+        var legacy = client.subscribeToNotifications("/partypics/notifications");
+        var otherTournament = client.subscribeToNotifications(
+            Notification.Companion.tournamentDestination(8L)
+        );
+        Thread.sleep(500);
+
+        client.session.send("/notify/7", "<b>Next round</b>");
+        var headers = new StompHeaders();
+        headers.setDestination("/notify");
+        headers.set("tournamentId", "7");
+        client.session.send(headers, "Last round");
+
+        var routedNotification = routed.first.get(10, TimeUnit.SECONDS);
+        var legacyNotification = legacy.first.get(10, TimeUnit.SECONDS);
+        assertAll(
+            () ->
+                assertEquals(
+                    Map.of("message", "&lt;b&gt;Next round&lt;/b&gt;", "tournamentId", 7),
+                    routedNotification
+                ),
+            () ->
+                assertEquals(
+                    Map.of("message", "Last round", "tournamentId", 7),
+                    legacyNotification
+                ),
+            () -> assertEquals(1, routed.payloads.size()),
+            () -> assertTrue(otherTournament.payloads.isEmpty())
+        );
+    }
+
+    /**
+     * A STOMP session, recording the ERROR frame the server closes it with.
+     */
+    private static final class Client extends StompSessionHandlerAdapter {
+
+        private final CompletableFuture<String> error = new CompletableFuture<>();
+        private StompSession session;
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return String.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            error.complete(headers.getFirst("message"));
+        }
+
+        private Frames subscribe(String destination, String token) {
+            var headers = new StompHeaders();
+            headers.setDestination(destination);
+            if (token != null) {
+                headers.set(TournamentSubscriptionInterceptor.TOKEN_HEADER, token);
+            }
+            var frames = new Frames(String.class);
+            session.subscribe(headers, frames);
+            return frames;
+        }
+
+        private Frames subscribeToNotifications(String destination) {
+            var frames = new Frames(Map.class);
+            session.subscribe(destination, frames);
+            return frames;
+        }
+    }
+
+    private static final class Frames implements StompFrameHandler {
+
+        private final Class<?> payloadType;
+        private final List<Object> payloads = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Object> first = new CompletableFuture<>();
+
+        private Frames(Class<?> payloadType) {
+            this.payloadType = payloadType;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return payloadType;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            payloads.add(payload);
+            first.complete(payload);
+        }
+    }
+
+    private void startClient() {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(
+            new CompositeMessageConverter(
+                List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())
+            )
+        );
+    }
+
+    private Client connect() throws Exception {
+        var client = new Client();
+        client.session = stompClient
+            .connectAsync("ws://localhost:" + port + "/ws", client)
+            .get(10, TimeUnit.SECONDS);
+        return client;
+    }
+}
@@ -0,0 +1,401 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.imageio.ImageIO;
+
+/**
+ * Replays an event night against a running server: a burst of signups when the registration
+ * opens, the check-ins at the organizer's desk, spectators polling the public views, the
+ * organizer entering the results of the qualification phase and guests uploading pictures.
+ * Every request runs on its own virtual thread and is recorded by a {@link LatencyRecorder}.
+ * The tournament must be open for registration and have its tables set up.
+ */
+public class EventNightLoad implements AutoCloseable {
+
+    private static final String TOURNAMENTS = "/api/v1/tournaments";
+    private static final String SHARED_MEDIA = "/api/v1/shared-media";
+    private static final Duration ORGANIZER_PAUSE = Duration.ofMillis(200);
+
+    /**
+     * @param teams          teams signing up at once when the registration opens
+     * @param spectators     clients polling the public views until the qualification phase ends
+     * @param uploads        pictures uploaded during the event
+     * @param spectatorPause mean pause of a spectator between two polls
+     * @param timeout        the qualification phase must be played within
+     */
+    public record Parameters(
+        int teams,
+        int spectators,
+        int uploads,
+        Duration spectatorPause,
+        Duration timeout
+    ) {}
+
+    private record Spectated(String endpoint, String path) {}
+
+    private final URI baseUri;
+    private final long tournamentId;
+    private final UUID token;
+    private final String authorization;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final LatencyRecorder recorder;
+
+    /**
+     * @param authorization header value authenticating the organizer of the tournament
+     */
+    public EventNightLoad(
+        URI baseUri,
+        long tournamentId,
+        UUID token,
+        String authorization,
+        ObjectMapper objectMapper
+    ) {
+        this.baseUri = baseUri;
+        this.tournamentId = tournamentId;
+        this.token = token;
+        this.authorization = authorization;
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        this.recorder = new LatencyRecorder(client);
+    }
+
+    public LoadReport run(Parameters params) throws InterruptedException {
+        var pictures = pictures(params.uploads());
+        var start = System.nanoTime();
+        var spectating = new AtomicBoolean(true);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var spectators = new ArrayList<Future<?>>();
+            for (int i = 0; i < params.spectators(); i++) {
+                var random = new Random(i);
+                spectators.add(
+                    executor.submit(() -> {
+                        spectate(spectating, random, params.spectatorPause());
+                        return null;
+                    })
+                );
+            }
+
+            var signups = new ArrayList<Callable<Void>>();
+            for (int i = 1; i <= params.teams(); i++) {
+                var name = "team" + i;
+                signups.add(() -> {
+                    signUp(name);
+                    return null;
+                });
+            }
+            awaitAll(executor.invokeAll(signups));
+
+            var uploads = new ArrayList<Future<?>>();
+            for (var picture : pictures) {
+                uploads.add(
+                    executor.submit(() -> {
+                        upload(picture);
+                        return null;
+                    })
+                );
+            }
+
+            organizer(
+                "POST " + TOURNAMENTS + "/{id}/qualification-matches",
+                "/qualification-matches",
+                BodyPublishers.noBody()
+            );
+            for (var teamId : teamIds()) {
+                organizer(
+                    "POST " + TOURNAMENTS + "/{id}/teams/{teamId}/ready",
+                    "/teams/" + teamId + "/ready",
+                    BodyPublishers.noBody()
+                );
+            }
+            playQualificationPhase(executor, System.nanoTime() + params.timeout().toNanos());
+
+            awaitAll(uploads);
+            spectating.set(false);
+            awaitAll(spectators);
+        }
+        return recorder.report(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private void signUp(String name) throws InterruptedException {
+        recorder.send(
+            "POST " + TOURNAMENTS + "/{id}/teams",
+            request("/teams?token=" + token)
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString(json(Map.of("name", name))))
+                .build()
+        );
+    }
+
+    private List<Long> teamIds() throws InterruptedException {
+        return organizerJson("GET " + TOURNAMENTS + "/{id}/teams", "/teams")
+            .map(teams -> {
+                var ids = new ArrayList<Long>();
+                teams.forEach(team -> ids.add(team.get("id").asLong()));
+                return ids;
+            })
+            .orElseThrow(() -> new IllegalStateException("Could not get the signed up teams"));
+    }
+
+    /**
+     * The referees pick up the drinks of the teams whose match got a table and enter the results
+     * of the matches being played, until all are played. Each table has its own referee, so the
+     * tables are updated concurrently, but the updates of one match one after the other.
+     */
+    private void playQualificationPhase(ExecutorService executor, long deadline)
+        throws InterruptedException {
+        while (System.nanoTime() < deadline) {
+            var matches = organizerJson(
+                "GET " + TOURNAMENTS + "/{id}/qualification-matches",
+                "/qualification-matches"
+            ).orElseThrow(() -> new IllegalStateException("Could not get the matches"));
+            if (allPlayed(matches)) {
+                return;
+            }
+
+            var tables = new ArrayList<Callable<Void>>();
+            for (var match : matches) {
+                if (!set(match.get("table")) || set(match.get("endTime"))) {
+                    continue;
+                }
+                var path = "/qualification-matches/" + match.get("id").asLong();
+                var participants = match.get("participants");
+                var updates = new ArrayList<Map<String, ?>>();
+                if (set(match.get("startTime"))) {
+                    var winner = participants.get(0).get("teamId").asLong();
+                    updates.add(
+                        Map.of("scoreUpdate", Map.of("winnerTeamId", winner, "winnerPoints", 10))
+                    );
+                } else {
+                    for (var participant : participants) {
+                        if (!participant.get("drinksCollected").asBoolean()) {
+                            var teamId = participant.get("teamId").asLong();
+                            updates.add(Map.of("drinksPickup", Map.of("teamId", teamId)));
+                        }
+                    }
+                }
+                tables.add(() -> {
+                    for (var update : updates) {
+                        updateMatch(path, update);
+                    }
+                    return null;
+                });
+            }
+            awaitAll(executor.invokeAll(tables));
+            Thread.sleep(ORGANIZER_PAUSE.toMillis());
+        }
+        throw new IllegalStateException("Qualification phase not played within the timeout");
+    }
+
+    private boolean allPlayed(JsonNode matches) {
+        if (matches.isEmpty()) {
+            return false;
+        }
+        for (var match : matches) {
+            if (!set(match.get("endTime"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateMatch(String path, Object update) throws InterruptedException {
+        recorder.send(
+            "PUT " + TOURNAMENTS + "/{id}/qualification-matches/{matchId}",
+            request(path)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/json")
+                .PUT(BodyPublishers.ofString(json(update)))
+                .build()
+        );
+    }
+
+    private void spectate(AtomicBoolean spectating, Random random, Duration pause)
+        throws InterruptedException {
+        var views = List.of(
+            new Spectated("GET " + TOURNAMENTS + "/{id}/public", tournamentPath("/public")),
+            new Spectated(
+                "GET " + TOURNAMENTS + "/{id}/qualification-matches/public",
+                tournamentPath("/qualification-matches/public?token=" + token)
+            ),
+            new Spectated(
+                "GET " + TOURNAMENTS + "/{id}/qualification-phase/scores/public",
+                tournamentPath("/qualification-phase/scores/public?token=" + token)
+            ),
+            new Spectated(
+                "GET " + TOURNAMENTS + "/{id}/live/tables",
+                tournamentPath("/live/tables?token=" + token)
+            ),
+            new Spectated(
+                "GET " + SHARED_MEDIA + "/tournament/public/{tournamentId}",
+                SHARED_MEDIA + "/tournament/public/" + tournamentId
+            )
+        );
+        // spread the spectators, so they don't poll in lockstep
+        Thread.sleep((long) (random.nextDouble() * pause.toMillis()));
+        while (spectating.get()) {
+            var view = views.get(random.nextInt(views.size()));
+            var request = HttpRequest.newBuilder(baseUri.resolve(view.path())).build();
+            recorder.send(view.endpoint(), request);
+            Thread.sleep((long) (2 * random.nextDouble() * pause.toMillis()));
+        }
+    }
+
+    private void upload(byte[] picture) throws InterruptedException {
+        var boundary = UUID.randomUUID().toString();
+        var metadata = json(
+            Map.of("author", "guest", "title", "event night", "tournamentId", tournamentId)
+        );
+        var body = new ByteArrayOutputStream();
+        body.writeBytes(
+            part(boundary, "sharedMediaCreateDto", null, "application/json").getBytes(
+                StandardCharsets.UTF_8
+            )
+        );
+        body.writeBytes(metadata.getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(
+            ("\r\n" + part(boundary, "image", "picture.jpg", "image/jpeg")).getBytes(
+                    StandardCharsets.UTF_8
+                )
+        );
+        body.writeBytes(picture);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        recorder.send(
+            "POST " + SHARED_MEDIA,
+            HttpRequest.newBuilder(baseUri.resolve(SHARED_MEDIA))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(BodyPublishers.ofByteArray(body.toByteArray()))
+                .build()
+        );
+    }
+
+    private static String part(String boundary, String name, String filename, String type) {
+        return (
+            "--" +
+            boundary +
+            "\r\nContent-Disposition: form-data; name=\"" +
+            name +
+            "\"" +
+            (filename == null ? "" : "; filename=\"" + filename + "\"") +
+            "\r\nContent-Type: " +
+            type +
+            "\r\n\r\n"
+        );
+    }
+
+    /**
+     * Phone sized pictures, each a little different so they aren't collapsed as duplicates.
+     */
+    private static List<byte[]> pictures(int count) {
+        var pictures = new ArrayList<byte[]>();
+        for (int i = 0; i < count; i++) {
+            var image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+            var graphics = image.createGraphics();
+            graphics.setPaint(
+                new GradientPaint(0, 0, Color.ORANGE, 1600, 1200, new Color(i * 40503))
+            );
+            graphics.fillRect(0, 0, 1600, 1200);
+            graphics.dispose();
+            var out = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(image, "jpg", out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pictures.add(out.toByteArray());
+        }
+        return pictures;
+    }
+
+    private void organizer(String endpoint, String path, HttpRequest.BodyPublisher body)
+        throws InterruptedException {
+        recorder.send(
+            endpoint,
+            request(path).header("Authorization", authorization).POST(body).build()
+        );
+    }
+
+    private Optional<JsonNode> organizerJson(String endpoint, String path)
+        throws InterruptedException {
+        return recorder
+            .send(endpoint, request(path).header("Authorization", authorization).build())
+            .filter(response -> response.statusCode() == 200)
+            .map(HttpResponse::body)
+            .map(body -> {
+                try {
+                    return objectMapper.readTree(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(tournamentPath(path))).timeout(
+            Duration.ofSeconds(30)
+        );
+    }
+
+    private String tournamentPath(String path) {
+        return TOURNAMENTS + "/" + tournamentId + path;
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean set(JsonNode node) {
+        return node != null && !node.isNull();
+    }
+
+    private static void awaitAll(List<? extends Future<?>> futures) throws InterruptedException {
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Load test client failed", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.loadtest;
+
+import at.beerbrawl.backend.loadtest.LoadReport.EndpointStats;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sends requests and records their latency and outcome by endpoint.
+ */
+public class LatencyRecorder {
+
+    private record Sample(long nanos, boolean error) {}
+
+    private final HttpClient client;
+    private final Map<String, Queue<Sample>> samples = new ConcurrentHashMap<>();
+
+    public LatencyRecorder(HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Send a request and wait for its response.
+     *
+     * @param endpoint the requests are grouped by, e.g. {@code GET /tournaments/{id}}
+     * @return the response, empty if the request failed
+     */
+    public Optional<HttpResponse<byte[]>> send(String endpoint, HttpRequest request)
+        throws InterruptedException {
+        var start = System.nanoTime();
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            record(endpoint, System.nanoTime() - start, response.statusCode() >= 400);
+            return Optional.of(response);
+        } catch (IOException e) {
+            record(endpoint, System.nanoTime() - start, true);
+            return Optional.empty();
+        }
+    }
+
+    private void record(String endpoint, long nanos, boolean error) {
+        samples
+            .computeIfAbsent(endpoint, e -> new ConcurrentLinkedQueue<>())
+            .add(new Sample(nanos, error));
+    }
+
+    public LoadReport report(Duration elapsed) {
+        var seconds = elapsed.toMillis() / 1000.0;
+        var endpoints = samples
+            .entrySet()
+            .stream()
+            .map(entry -> stats(entry.getKey(), entry.getValue(), seconds))
+            .sorted(Comparator.comparing(EndpointStats::endpoint))
+            .toList();
+        return new LoadReport(seconds, endpoints);
+    }
+
+    private static EndpointStats stats(String endpoint, Queue<Sample> samples, double seconds) {
+        var latencies = samples.stream().mapToLong(Sample::nanos).toArray();
+        Arrays.sort(latencies);
+        var errors = samples.stream().filter(Sample::error).count();
+        return new EndpointStats(
+            endpoint,
+            latencies.length,
+            errors,
+            (double) errors / latencies.length,
+            percentile(latencies, 0.5),
+            percentile(latencies, 0.9),
+            percentile(latencies, 0.99),
+            latencies[latencies.length - 1] / 1e6,
+            latencies.length / seconds
+        );
+    }
+
+    /**
+     * Nearest-rank percentile of sorted latencies, in milliseconds.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        var rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank - 1, 0)] / 1e6;
+    }
+}
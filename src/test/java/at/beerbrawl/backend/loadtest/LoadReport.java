@@ -0,0 +1,69 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.loadtest;
+
+import java.util.List;
+
+/**
+ * Latencies and error rates of a load test, per endpoint.
+ *
+ * @param seconds real time the load test took
+ */
+public record LoadReport(double seconds, List<EndpointStats> endpoints) {
+    /**
+     * @param endpoint   method and route template of the requests
+     * @param errors     responses with a status of 400 or above and requests that failed to connect
+     * @param throughput requests per second over the whole load test
+     */
+    public record EndpointStats(
+        String endpoint,
+        long requests,
+        long errors,
+        double errorRate,
+        double p50Millis,
+        double p90Millis,
+        double p99Millis,
+        double maxMillis,
+        double throughput
+    ) {}
+
+    public long requests() {
+        return endpoints.stream().mapToLong(EndpointStats::requests).sum();
+    }
+
+    public long errors() {
+        return endpoints.stream().mapToLong(EndpointStats::errors).sum();
+    }
+
+    @Override
+    public String toString() {
+        var table = new StringBuilder(
+            "%d requests, %d errors in %.1f s%n".formatted(requests(), errors(), seconds)
+        );
+        table.append(
+            "%-62s %8s %7s %9s %9s %9s %9s%n".formatted(
+                    "endpoint",
+                    "requests",
+                    "errors",
+                    "p50 ms",
+                    "p90 ms",
+                    "p99 ms",
+                    "max ms"
+                )
+        );
+        for (var stats : endpoints) {
+            table.append(
+                "%-62s %8d %6.2f%% %9.1f %9.1f %9.1f %9.1f%n".formatted(
+                        stats.endpoint(),
+                        stats.requests(),
+                        stats.errorRate() * 100,
+                        stats.p50Millis(),
+                        stats.p90Millis(),
+                        stats.p99Millis(),
+                        stats.maxMillis()
+                    )
+            );
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,43 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.replay;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * How a replay went compared to the capture it replayed.
+ *
+ * @param requests captured requests that were replayed
+ * @param mismatches requests answered with another status than when they were captured
+ * @param firstMismatches the first of them, as method, path and both statuses
+ * @param capturedSpan time from the first to the last captured request
+ * @param capturedProcessing time the captured requests took to answer when they were captured
+ * @param replayedProcessing time they took to answer in the replay, round trips included
+ */
+public record ReplayReport(
+    int requests,
+    int mismatches,
+    List<String> firstMismatches,
+    Duration capturedSpan,
+    Duration capturedProcessing,
+    Duration replayedProcessing
+) {
+    @Override
+    public String toString() {
+        var report = new StringBuilder(
+            "Replayed %d requests spanning %s with %d mismatches%n".formatted(
+                    requests,
+                    capturedSpan,
+                    mismatches
+                )
+        ).append(
+            "Processing took %d ms when captured, %d ms when replayed%n".formatted(
+                    capturedProcessing.toMillis(),
+                    replayedProcessing.toMillis()
+                )
+        );
+        firstMismatches.forEach(mismatch -> report.append("  ").append(mismatch).append('\n'));
+        return report.toString();
+    }
+}
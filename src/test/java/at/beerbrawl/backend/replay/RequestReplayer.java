@@ -0,0 +1,367 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.replay;
+
+import at.beerbrawl.backend.config.capture.CaptureFile;
+import at.beerbrawl.backend.config.capture.CapturedRequest;
+import at.beerbrawl.backend.config.capture.RequestCaptureFilter;
+import at.beerbrawl.backend.security.JwtTokenizer;
+import at.beerbrawl.backend.simulation.SimulationClock;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Replays captured requests one after the other, in the order they were answered, against a
+ * running instance whose tournament flow reads the time from a {@link SimulationClock}. Before
+ * every request the clock is moved to when the request came in, so check-ins and the scheduling
+ * see the time they saw during the capture.
+ * Ids are handed out anew, so the ids in the JSON responses of the capture are mapped to those of
+ * the replay, and rewritten in later paths and bodies. Ids a response didn't tell, like those of
+ * signed up teams, are expected to be handed out alike, which holds when the capture started on a
+ * fresh database as well. Users are authenticated with a token minted for the captured user, and
+ * redacted signup tokens are looked up as the organizer of the tournament.
+ */
+public class RequestReplayer {
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final String TOURNAMENTS = "/api/v1/tournaments";
+    private static final int REPORTED_MISMATCHES = 20;
+
+    private final URI baseUri;
+    private final SimulationClock clock;
+    private final JwtTokenizer jwtTokenizer;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+
+    /**
+     * Captured id to replayed id, by the kind of id, e.g. {@code tournament} or {@code match}.
+     */
+    private final Map<String, Map<String, String>> ids = new HashMap<>();
+    private final Map<String, String> organizers = new HashMap<>();
+    private final Map<String, String> signupTokens = new HashMap<>();
+
+    public RequestReplayer(
+        URI baseUri,
+        SimulationClock clock,
+        JwtTokenizer jwtTokenizer,
+        ObjectMapper objectMapper
+    ) {
+        this.baseUri = baseUri;
+        this.clock = clock;
+        this.jwtTokenizer = jwtTokenizer;
+        this.objectMapper = objectMapper;
+    }
+
+    public ReplayReport replay(Path capture) throws IOException, InterruptedException {
+        var requests = 0;
+        var mismatches = new ArrayList<String>();
+        Instant first = null;
+        Instant last = null;
+        var capturedNanos = 0L;
+        var replayedNanos = 0L;
+        try (var reader = CaptureFile.read(capture)) {
+            for (var next = reader.next(); next.isPresent(); next = reader.next()) {
+                var captured = next.get();
+                if (first == null) {
+                    first = captured.startedAt();
+                    last = first;
+                    clock.set(first);
+                }
+                if (captured.startedAt().isAfter(last)) {
+                    last = captured.startedAt();
+                    clock.advanceTo(last);
+                }
+
+                var request = toRequest(captured);
+                var start = System.nanoTime();
+                var response = client.send(request, BodyHandlers.ofByteArray());
+                replayedNanos += System.nanoTime() - start;
+                capturedNanos += captured.nanos();
+                requests++;
+
+                if (response.statusCode() != captured.status()) {
+                    mismatches.add(
+                        "%s %s: captured %d, replayed %d".formatted(
+                                captured.method(),
+                                captured.path(),
+                                captured.status(),
+                                response.statusCode()
+                            )
+                    );
+                } else {
+                    learn(captured, response);
+                }
+            }
+        }
+        return new ReplayReport(
+            requests,
+            mismatches.size(),
+            List.copyOf(mismatches.subList(0, Math.min(mismatches.size(), REPORTED_MISMATCHES))),
+            first == null ? Duration.ZERO : Duration.between(first, last),
+            Duration.ofNanos(capturedNanos),
+            Duration.ofNanos(replayedNanos)
+        );
+    }
+
+    private HttpRequest toRequest(CapturedRequest captured)
+        throws IOException, InterruptedException {
+        var path = rewritePath(captured.path());
+        var query = rewriteQuery(captured.query(), path);
+        var builder = HttpRequest.newBuilder(
+            baseUri.resolve(query == null ? path : path + "?" + query)
+        ).timeout(Duration.ofSeconds(30));
+        if (captured.user() != null) {
+            builder.header("Authorization", authorization(captured.user(), captured.roles()));
+        }
+
+        byte[] body;
+        if (captured.isMultipart()) {
+            var boundary = UUID.randomUUID().toString();
+            body = multipart(boundary, captured.parts());
+            builder.header("Content-Type", "multipart/form-data; boundary=" + boundary);
+        } else {
+            body = rewriteBody(captured.contentType(), captured.body());
+            if (captured.contentType() != null) {
+                builder.header("Content-Type", captured.contentType());
+            }
+        }
+        return builder
+            .method(
+                captured.method(),
+                body.length == 0 ? BodyPublishers.noBody() : BodyPublishers.ofByteArray(body)
+            )
+            .build();
+    }
+
+    private String authorization(String user, List<String> roles) {
+        return jwtTokenizer.getAuthToken(user, roles);
+    }
+
+    /**
+     * Remember the ids a successful request handed out, and who organizes a new tournament.
+     */
+    private void learn(CapturedRequest captured, HttpResponse<byte[]> response) throws IOException {
+        if (captured.response().length == 0 || response.body().length == 0) {
+            return;
+        }
+        var kind = kindOfPath(captured.path());
+        if (kind == null) {
+            return;
+        }
+        var before = objectMapper.readTree(captured.response());
+        JsonNode after;
+        try {
+            after = objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            return;
+        }
+        if (before.isArray() && after.isArray() && before.size() == after.size()) {
+            for (int i = 0; i < before.size(); i++) {
+                learnId(kind, before.get(i), after.get(i));
+            }
+        } else {
+            learnId(kind, before, after);
+        }
+
+        if (
+            "POST".equals(captured.method()) &&
+            TOURNAMENTS.equals(captured.path()) &&
+            after.hasNonNull("id")
+        ) {
+            organizers.put(after.get("id").asText(), captured.user());
+        }
+    }
+
+    private void learnId(String kind, JsonNode before, JsonNode after) {
+        if (before.hasNonNull("id") && after.hasNonNull("id")) {
+            ids
+                .computeIfAbsent(kind, k -> new HashMap<>())
+                .put(before.get("id").asText(), after.get("id").asText());
+        }
+    }
+
+    private String rewritePath(String path) {
+        var segments = path.split("/");
+        for (int i = 1; i < segments.length; i++) {
+            if (NUMBER.matcher(segments[i]).matches()) {
+                segments[i] = mapId(kindOfSegment(segments[i - 1]), segments[i]);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private String rewriteQuery(String query, String path)
+        throws IOException, InterruptedException {
+        var redacted = "token=" + RequestCaptureFilter.REDACTED;
+        if (query == null || !query.contains(redacted)) {
+            return query;
+        }
+        var tournamentId = tournamentOfPath(path);
+        if (tournamentId.isEmpty()) {
+            return query;
+        }
+        var token = signupToken(tournamentId.get());
+        return token.map(t -> query.replace(redacted, "token=" + t)).orElse(query);
+    }
+
+    private Optional<String> signupToken(String tournamentId)
+        throws IOException, InterruptedException {
+        if (signupTokens.containsKey(tournamentId)) {
+            return Optional.of(signupTokens.get(tournamentId));
+        }
+        var organizer = organizers.get(tournamentId);
+        if (organizer == null) {
+            return Optional.empty();
+        }
+        var response = client.send(
+            HttpRequest.newBuilder(baseUri.resolve(TOURNAMENTS + "/" + tournamentId))
+                .header("Authorization", authorization(organizer, List.of("ROLE_USER")))
+                .build(),
+            BodyHandlers.ofByteArray()
+        );
+        if (response.statusCode() != 200) {
+            return Optional.empty();
+        }
+        var token = objectMapper.readTree(response.body()).path("publicAccessToken");
+        if (token.isMissingNode() || token.isNull()) {
+            return Optional.empty();
+        }
+        signupTokens.put(tournamentId, token.asText());
+        return Optional.of(token.asText());
+    }
+
+    private byte[] rewriteBody(String contentType, byte[] body) throws IOException {
+        if (
+            body.length == 0 ||
+            contentType == null ||
+            !contentType.toLowerCase(Locale.ROOT).contains("json")
+        ) {
+            return body;
+        }
+        var json = objectMapper.readTree(body);
+        rewriteIds(json);
+        return objectMapper.writeValueAsBytes(json);
+    }
+
+    private void rewriteIds(JsonNode json) {
+        if (json instanceof ObjectNode object) {
+            var names = new ArrayList<String>();
+            object.fieldNames().forEachRemaining(names::add);
+            for (var name : names) {
+                var value = object.get(name);
+                if (name.endsWith("Id") && value.isIntegralNumber()) {
+                    var mapped = mapId(kindOfField(name), value.asText());
+                    object.put(name, Long.parseLong(mapped));
+                } else {
+                    rewriteIds(value);
+                }
+            }
+        } else if (json != null && json.isArray()) {
+            json.forEach(this::rewriteIds);
+        }
+    }
+
+    private byte[] multipart(String boundary, List<CapturedRequest.Part> parts)
+        throws IOException {
+        var body = new ByteArrayOutputStream();
+        for (var part : parts) {
+            var header = new StringBuilder("--")
+                .append(boundary)
+                .append("\r\nContent-Disposition: form-data; name=\"")
+                .append(part.name())
+                .append('"');
+            if (part.filename() != null) {
+                header.append("; filename=\"").append(part.filename()).append('"');
+            }
+            if (part.contentType() != null) {
+                header.append("\r\nContent-Type: ").append(part.contentType());
+            }
+            header.append("\r\n\r\n");
+            body.writeBytes(header.toString().getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(rewriteBody(part.contentType(), part.content()));
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private String mapId(String kind, String id) {
+        return ids.getOrDefault(kind, Map.of()).getOrDefault(id, id);
+    }
+
+    private Optional<String> tournamentOfPath(String path) {
+        var segments = path.split("/");
+        for (int i = 1; i < segments.length; i++) {
+            if (
+                "tournament".equals(kindOfSegment(segments[i - 1])) &&
+                NUMBER.matcher(segments[i]).matches()
+            ) {
+                return Optional.of(segments[i]);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The kind of the ids a request to this path hands out, e.g. {@code match} for
+     * {@code /api/v1/tournaments/1/qualification-matches}.
+     */
+    private static String kindOfPath(String path) {
+        var segments = path.split("/");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (!segments[i].isEmpty() && !NUMBER.matcher(segments[i]).matches()) {
+                return kindOfSegment(segments[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The last word of a path segment, singular: {@code beer-pong-tables} is a {@code table}.
+     */
+    private static String kindOfSegment(String segment) {
+        var word = segment.substring(segment.lastIndexOf('-') + 1).toLowerCase(Locale.ROOT);
+        if (word.endsWith("ches") || word.endsWith("shes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.endsWith("s")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    /**
+     * The last word of an id field: {@code winnerTeamId} is a {@code team}.
+     */
+    private static String kindOfField(String field) {
+        var name = field.substring(0, field.length() - "Id".length());
+        var start = name.length() - 1;
+        while (start > 0 && !Character.isUpperCase(name.charAt(start))) {
+            start--;
+        }
+        return name.substring(start).toLowerCase(Locale.ROOT);
+    }
+}
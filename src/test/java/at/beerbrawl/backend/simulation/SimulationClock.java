@@ -0,0 +1,48 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when the simulation tells it to.
+ */
+public class SimulationClock extends Clock {
+
+    private volatile Instant now;
+
+    public SimulationClock(Instant start) {
+        this.now = start;
+    }
+
+    public void set(Instant instant) {
+        this.now = instant;
+    }
+
+    public void advanceTo(Instant instant) {
+        if (instant.isBefore(now)) {
+            throw new IllegalArgumentException(
+                "Cannot go back in time from %s to %s".formatted(now, instant)
+            );
+        }
+        this.now = instant;
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException("The simulation runs in UTC");
+    }
+}
@@ -0,0 +1,37 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.simulation;
+
+import java.time.Duration;
+
+/**
+ * Stochastic model of a tournament day.
+ *
+ * @param seed                 of the random numbers, the same seed gives the same tournament
+ * @param checkInWindow        teams check in uniformly distributed within this window
+ * @param meanDrinksPickup     mean of the exponentially distributed time a team needs to pick up
+ *                             its drinks after its match got a table
+ * @param medianMatchDuration  median of the log-normally distributed match duration
+ * @param matchDurationSigma   shape of the match duration distribution
+ * @param koPhaseBreak         time the organizer takes to start the KO phase
+ *                             after the last qualification match
+ */
+public record SimulationParameters(
+    long seed,
+    Duration checkInWindow,
+    Duration meanDrinksPickup,
+    Duration medianMatchDuration,
+    double matchDurationSigma,
+    Duration koPhaseBreak
+) {
+    public static SimulationParameters defaults(long seed) {
+        return new SimulationParameters(
+            seed,
+            Duration.ofMinutes(30),
+            Duration.ofMinutes(2),
+            Duration.ofMinutes(12),
+            0.3,
+            Duration.ofMinutes(10)
+        );
+    }
+}
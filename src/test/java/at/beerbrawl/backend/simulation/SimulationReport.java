@@ -0,0 +1,46 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.simulation;
+
+/**
+ * Outcome of a simulated tournament. Times are in simulated minutes.
+ *
+ * @param tableUtilization   share of the makespan the tables had a match assigned
+ * @param playingUtilization share of the makespan the tables had a match being played
+ * @param meanTeamIdle       mean time a team waited for a table while it had matches left to play
+ * @param maxTeamIdle        longest such wait of a single team
+ * @param events             number of simulated events
+ * @param wallClockMillis    real time the simulation took, mostly spent in the service layer
+ */
+public record SimulationReport(
+    int teams,
+    int tables,
+    long seed,
+    int qualificationMatches,
+    int koMatches,
+    double makespan,
+    double tableUtilization,
+    double playingUtilization,
+    double meanTeamIdle,
+    double maxTeamIdle,
+    long events,
+    long wallClockMillis
+) {
+    @Override
+    public String toString() {
+        return (
+            "%d teams, %d tables: makespan %.1f min, table utilization %.1f%% (playing %.1f%%), " +
+            "team idle mean %.1f min max %.1f min, %d events in %d ms"
+        ).formatted(
+                teams,
+                tables,
+                makespan,
+                tableUtilization * 100,
+                playingUtilization * 100,
+                meanTeamIdle,
+                maxTeamIdle,
+                events,
+                wallClockMillis
+            );
+    }
+}
@@ -0,0 +1,372 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.simulation;
+
+import at.beerbrawl.backend.endpoint.dto.TournamentUpdateKoStandingDto;
+import at.beerbrawl.backend.endpoint.dto.TournamentUpdateQualificationMatchDto;
+import at.beerbrawl.backend.entity.BeerPongTable;
+import at.beerbrawl.backend.entity.KoStanding;
+import at.beerbrawl.backend.entity.Team;
+import at.beerbrawl.backend.repository.BeerPongTableRepository;
+import at.beerbrawl.backend.repository.TeamRepository;
+import at.beerbrawl.backend.service.TournamentKoPhaseService;
+import at.beerbrawl.backend.service.TournamentQualificationService;
+import at.beerbrawl.backend.service.TournamentTeamService;
+import at.beerbrawl.backend.service.models.QualificationTeamScoreModel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Discrete-event simulation of a tournament day, played through the real service layer.
+ * Teams check in, pick up their drinks once their match got a table and play it, all at random
+ * times on a {@link SimulationClock}. The scheduler assigns the tables as it would in production,
+ * the simulator only observes the assignments and reacts to them.
+ * The tournament must have its qualification matches generated, its tables created and no team
+ * checked in yet.
+ */
+public class TournamentSimulator {
+
+    private static final int KO_PHASE_TEAMS = 16;
+
+    private final SimulationClock clock;
+    private final TournamentTeamService teamService;
+    private final TournamentQualificationService qualificationService;
+    private final TournamentKoPhaseService koPhaseService;
+    private final TeamRepository teamRepository;
+    private final BeerPongTableRepository tableRepository;
+    private final TransactionTemplate readTransaction;
+
+    public TournamentSimulator(
+        SimulationClock clock,
+        TournamentTeamService teamService,
+        TournamentQualificationService qualificationService,
+        TournamentKoPhaseService koPhaseService,
+        TeamRepository teamRepository,
+        BeerPongTableRepository tableRepository,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.clock = clock;
+        this.teamService = teamService;
+        this.qualificationService = qualificationService;
+        this.koPhaseService = koPhaseService;
+        this.teamRepository = teamRepository;
+        this.tableRepository = tableRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Play the tournament from check-in to the KO final.
+     *
+     * @param organizer username of the organizer, who enters the KO results
+     */
+    public SimulationReport run(long tournamentId, String organizer, SimulationParameters params) {
+        return new Run(tournamentId, organizer, params).play();
+    }
+
+    private record Event(Instant at, long sequence, Runnable action) {}
+
+    /**
+     * A match from being assigned to a table until its result is entered.
+     *
+     * @param pickups the match to mark the drinks as collected on, by team
+     */
+    private record Assignment(
+        long matchId,
+        boolean ko,
+        boolean finalMatch,
+        Instant assignedAt,
+        List<Long> teamIds,
+        Map<Long, Long> pickups
+    ) {}
+
+    private class Run {
+
+        private final long tournamentId;
+        private final String organizer;
+        private final SimulationParameters params;
+        private final Random random;
+        private final PriorityQueue<Event> events = new PriorityQueue<>(
+            Comparator.comparing(Event::at).thenComparingLong(Event::sequence)
+        );
+        private long sequence;
+
+        private final Set<Long> seenMatches = new HashSet<>();
+        private final Map<Long, Integer> collectedDrinks = new HashMap<>();
+        private final Map<Long, Instant> startedAt = new HashMap<>();
+        private final Set<Long> teamsAtTables = new HashSet<>();
+        private final Map<Long, Instant> waitingSince = new HashMap<>();
+        private final Map<Long, Duration> idle = new HashMap<>();
+        private Duration assignedTime = Duration.ZERO;
+        private Duration playingTime = Duration.ZERO;
+        private int qualificationMatchesLeft;
+        private int koMatches;
+        private Instant end;
+
+        Run(long tournamentId, String organizer, SimulationParameters params) {
+            this.tournamentId = tournamentId;
+            this.organizer = organizer;
+            this.params = params;
+            this.random = new Random(params.seed());
+        }
+
+        SimulationReport play() {
+            var wallClockStart = System.nanoTime();
+            var start = clock.instant();
+            var teamIds = teamRepository
+                .findAllByTournamentId(tournamentId)
+                .stream()
+                .map(Team::getId)
+                .toList();
+            var tables = tableRepository.findAllByTournamentId(tournamentId).size();
+            qualificationMatchesLeft = qualificationService
+                .getQualificationMatchesForTournament(tournamentId)
+                .size();
+            if (tables == 0 || qualificationMatchesLeft == 0) {
+                throw new IllegalStateException("Tournament has no tables or no matches");
+            }
+            var qualificationMatches = qualificationMatchesLeft;
+
+            for (var teamId : teamIds) {
+                schedule(uniform(params.checkInWindow()), () -> checkIn(teamId));
+            }
+
+            long processed = 0;
+            while (!events.isEmpty()) {
+                var event = events.poll();
+                clock.advanceTo(event.at());
+                event.action().run();
+                observeTables();
+                processed++;
+            }
+            if (end == null) {
+                throw new IllegalStateException(
+                    "Tournament stalled with %d qualification and %d KO matches played".formatted(
+                            qualificationMatches - qualificationMatchesLeft,
+                            koMatches
+                        )
+                );
+            }
+
+            var makespan = Duration.between(start, end);
+            var tableTime = (double) makespan.toMillis() * tables;
+            var totalIdle = idle.values().stream().reduce(Duration.ZERO, Duration::plus);
+            var maxIdle = idle.values().stream().max(Duration::compareTo).orElse(Duration.ZERO);
+            return new SimulationReport(
+                teamIds.size(),
+                tables,
+                params.seed(),
+                qualificationMatches,
+                koMatches,
+                minutes(makespan),
+                assignedTime.toMillis() / tableTime,
+                playingTime.toMillis() / tableTime,
+                minutes(totalIdle) / teamIds.size(),
+                minutes(maxIdle),
+                processed,
+                (System.nanoTime() - wallClockStart) / 1_000_000
+            );
+        }
+
+        private void checkIn(long teamId) {
+            waitingSince.put(teamId, clock.instant());
+            teamService.markTeamAsReady(tournamentId, teamId);
+        }
+
+        /**
+         * Find the matches the scheduler assigned a table to since the last event.
+         */
+        private void observeTables() {
+            var assigned = readTransaction.execute(
+                status ->
+                    tableRepository
+                        .findAllByTournamentId(tournamentId)
+                        .stream()
+                        .map(BeerPongTable::getCurrentMatch)
+                        .filter(match -> match != null && seenMatches.add(match.getId()))
+                        .map(match -> {
+                            var pickups = new HashMap<Long, Long>();
+                            if (match instanceof KoStanding standing) {
+                                standing
+                                    .getPreceedingStandings()
+                                    .forEach(p -> pickups.put(p.getTeam().getId(), p.getId()));
+                                return new Assignment(
+                                    match.getId(),
+                                    true,
+                                    standing.getNextStanding() == null,
+                                    clock.instant(),
+                                    List.copyOf(pickups.keySet()),
+                                    pickups
+                                );
+                            }
+                            match.getTeams().forEach(t -> pickups.put(t.getId(), match.getId()));
+                            return new Assignment(
+                                match.getId(),
+                                false,
+                                false,
+                                clock.instant(),
+                                List.copyOf(pickups.keySet()),
+                                pickups
+                            );
+                        })
+                        .toList()
+            );
+            assigned.forEach(this::assigned);
+        }
+
+        private void assigned(Assignment assignment) {
+            for (var teamId : assignment.teamIds()) {
+                if (!teamsAtTables.add(teamId)) {
+                    throw new IllegalStateException(
+                        "Team %d got a second table for match %d".formatted(
+                                teamId,
+                                assignment.matchId()
+                            )
+                    );
+                }
+                var since = waitingSince.remove(teamId);
+                if (since != null) {
+                    var waited = Duration.between(since, assignment.assignedAt());
+                    idle.merge(teamId, waited, Duration::plus);
+                }
+                schedule(exponential(params.meanDrinksPickup()), () ->
+                    pickUpDrinks(assignment, teamId)
+                );
+            }
+        }
+
+        private void pickUpDrinks(Assignment assignment, long teamId) {
+            var matchId = assignment.pickups().get(teamId);
+            boolean started;
+            if (assignment.ko()) {
+                koPhaseService.updateKoStanding(
+                    organizer,
+                    tournamentId,
+                    matchId,
+                    new TournamentUpdateKoStandingDto(
+                        null,
+                        new TournamentUpdateKoStandingDto.DrinksPickupDto(teamId)
+                    )
+                );
+                var standing = koPhaseService.getStandingById(assignment.matchId());
+                started = standing.getStartTime() != null;
+            } else {
+                var match = qualificationService.updateQualificationMatch(
+                    tournamentId,
+                    matchId,
+                    new TournamentUpdateQualificationMatchDto(
+                        null,
+                        new TournamentUpdateQualificationMatchDto.DrinksPickupDto(teamId)
+                    )
+                );
+                started = match.getStartTime() != null;
+            }
+
+            if (collectedDrinks.merge(assignment.matchId(), 1, Integer::sum) < 2) {
+                return;
+            }
+            if (!started) {
+                throw new IllegalStateException(
+                    "Match %d did not start once all drinks were collected".formatted(
+                            assignment.matchId()
+                        )
+                );
+            }
+            startedAt.put(assignment.matchId(), clock.instant());
+            schedule(matchDuration(), () -> finish(assignment));
+        }
+
+        private void finish(Assignment assignment) {
+            var winnerId = assignment.teamIds().get(random.nextInt(assignment.teamIds().size()));
+            if (assignment.ko()) {
+                koPhaseService.updateKoStanding(
+                    organizer,
+                    tournamentId,
+                    assignment.matchId(),
+                    new TournamentUpdateKoStandingDto(
+                        new TournamentUpdateKoStandingDto.SetWinnerTeamDto(winnerId),
+                        null
+                    )
+                );
+                koMatches++;
+            } else {
+                qualificationService.updateQualificationMatch(
+                    tournamentId,
+                    assignment.matchId(),
+                    new TournamentUpdateQualificationMatchDto(
+                        new TournamentUpdateQualificationMatchDto.ScoreUpdateDto(
+                            winnerId,
+                            1L + random.nextInt(10)
+                        ),
+                        null
+                    )
+                );
+                qualificationMatchesLeft--;
+            }
+
+            var now = clock.instant();
+            assignedTime = assignedTime.plus(Duration.between(assignment.assignedAt(), now));
+            playingTime = playingTime.plus(
+                Duration.between(startedAt.get(assignment.matchId()), now)
+            );
+            for (var teamId : assignment.teamIds()) {
+                teamsAtTables.remove(teamId);
+                waitingSince.put(teamId, now);
+            }
+
+            if (assignment.finalMatch()) {
+                end = now;
+            } else if (!assignment.ko() && qualificationMatchesLeft == 0) {
+                schedule(params.koPhaseBreak(), this::startKoPhase);
+            }
+        }
+
+        private void startKoPhase() {
+            var qualified = qualificationService
+                .getTournamentQualificationScoreTable(tournamentId)
+                .stream()
+                .limit(KO_PHASE_TEAMS)
+                .map(QualificationTeamScoreModel::getId)
+                .toList();
+            koPhaseService.generateKoMatchesForTournament(
+                tournamentId,
+                new ArrayList<>(qualified),
+                organizer
+            );
+        }
+
+        private void schedule(Duration delay, Runnable action) {
+            events.add(new Event(clock.instant().plus(delay), sequence++, action));
+        }
+
+        private Duration uniform(Duration window) {
+            return Duration.ofMillis((long) (random.nextDouble() * window.toMillis()));
+        }
+
+        private Duration exponential(Duration mean) {
+            return Duration.ofMillis(
+                (long) (-mean.toMillis() * Math.log(1 - random.nextDouble()))
+            );
+        }
+
+        private Duration matchDuration() {
+            var factor = Math.exp(params.matchDurationSigma() * random.nextGaussian());
+            return Duration.ofMillis((long) (params.medianMatchDuration().toMillis() * factor));
+        }
+    }
+
+    private static double minutes(Duration duration) {
+        return duration.toMillis() / 60_000.0;
+    }
+}
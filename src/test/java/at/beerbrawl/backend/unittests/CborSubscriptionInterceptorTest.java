@@ -0,0 +1,105 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import at.beerbrawl.backend.config.CborSubscriptionInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+public class CborSubscriptionInterceptorTest {
+
+    private static final byte[] JSON =
+        "{\"message\":\"Round 2 starts\",\"tournamentId\":7}".getBytes(StandardCharsets.UTF_8);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CborSubscriptionInterceptor interceptor = new CborSubscriptionInterceptor(
+        new ObjectMapper(),
+        meterRegistry
+    );
+
+    @Test
+    public void payloadIsConvertedOnceForAllCborSubscriptions() throws Exception {
+        subscribe("a", "sub-0", true);
+        subscribe("b", "sub-0", true);
+        subscribe("c", "sub-0", false);
+
+        var toA = interceptor.preSend(message("a", "sub-0"), null);
+        var toB = interceptor.preSend(message("b", "sub-0"), null);
+        var toC = interceptor.preSend(message("c", "sub-0"), null);
+
+        var headers = SimpMessageHeaderAccessor.wrap(toA);
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, headers.getContentType());
+        assertEquals(
+            CborSubscriptionInterceptor.CBOR,
+            headers.getFirstNativeHeader(CborSubscriptionInterceptor.ENCODING_HEADER)
+        );
+        assertEquals(
+            new ObjectMapper().readTree(JSON),
+            new CBORMapper().readTree((byte[]) toA.getPayload())
+        );
+        assertSame(toA.getPayload(), toB.getPayload());
+        assertSame(JSON, toC.getPayload());
+        assertEquals(1, meterRegistry.get("beerbrawl.websocket.encoding.ratio").summary().count());
+    }
+
+    @Test
+    public void unsubscribedAndDisconnectedSessionsGetJsonAgain() {
+        subscribe("a", "sub-0", true);
+        subscribe("a", "sub-1", true);
+
+        interceptor.preSend(control(SimpMessageType.UNSUBSCRIBE, "a", "sub-0"), null);
+        assertSame(JSON, interceptor.preSend(message("a", "sub-0"), null).getPayload());
+
+        interceptor.preSend(control(SimpMessageType.DISCONNECT, "a", null), null);
+        assertSame(JSON, interceptor.preSend(message("a", "sub-1"), null).getPayload());
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, boolean cbor) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination("/tournament/7/ko");
+        if (cbor) {
+            accessor.setNativeHeader(
+                CborSubscriptionInterceptor.ENCODING_HEADER,
+                CborSubscriptionInterceptor.CBOR
+            );
+        }
+        interceptor.preSend(
+            MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()),
+            null
+        );
+    }
+
+    private static Message<byte[]> control(
+        SimpMessageType type,
+        String sessionId,
+        String subscriptionId
+    ) {
+        var accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> message(String sessionId, String subscriptionId) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination("/tournament/7/ko");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        // the broker shares one payload between all subscribers
+        return MessageBuilder.createMessage(JSON, accessor.getMessageHeaders());
+    }
+}
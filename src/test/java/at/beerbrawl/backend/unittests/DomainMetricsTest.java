@@ -0,0 +1,114 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.config.DomainMetrics;
+import at.beerbrawl.backend.config.DomainMetrics.Phase;
+import at.beerbrawl.backend.service.models.TournamentClosedEvent;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class DomainMetricsTest {
+
+    private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(
+        PrometheusConfig.DEFAULT
+    );
+    private final DomainMetrics metrics = new DomainMetrics(meterRegistry);
+
+    @Test
+    public void tableLoadIsPublishedPerTournament() {
+        metrics.recordScheduling(Phase.QUALIFICATION, 1L, 5, 2, 4, 2, 6);
+        metrics.recordScheduling(Phase.KO, 2L, 1, 1, 3, 0, 0);
+        metrics.recordScheduling(Phase.QUALIFICATION, 1L, 3, 1, 4, 1, 4);
+
+        assertAll(
+            () -> assertEquals(1, tables("1", "free")),
+            () -> assertEquals(3, tables("1", "in_use")),
+            () -> assertEquals(0, tables("2", "free")),
+            () -> assertEquals(3, tables("2", "in_use")),
+            () ->
+                assertEquals(
+                    4,
+                    meterRegistry
+                        .get("beerbrawl.teams.waiting")
+                        .tag("tournament", "1")
+                        .gauge()
+                        .value()
+                ),
+            () ->
+                assertEquals(
+                    3,
+                    meterRegistry
+                        .get("beerbrawl.scheduling.assignments")
+                        .tag("phase", "qualification")
+                        .counter()
+                        .count()
+                ),
+            () ->
+                assertEquals(
+                    8,
+                    meterRegistry
+                        .get("beerbrawl.scheduling.queue")
+                        .tag("phase", "qualification")
+                        .summary()
+                        .totalAmount()
+                )
+        );
+    }
+
+    @Test
+    public void tableLoadOfAClosedTournamentIsRemoved() {
+        metrics.recordScheduling(Phase.QUALIFICATION, 1L, 5, 2, 4, 2, 6);
+        metrics.recordScheduling(Phase.KO, 2L, 1, 1, 3, 0, 0);
+
+        metrics.onTournamentClosed(new TournamentClosedEvent(1L));
+
+        assertAll(
+            () -> assertNull(meterRegistry.find("beerbrawl.tables").tag("tournament", "1").gauge()),
+            () ->
+                assertNull(
+                    meterRegistry.find("beerbrawl.teams.waiting").tag("tournament", "1").gauge()
+                ),
+            () -> assertEquals(3, tables("2", "in_use"))
+        );
+
+        metrics.recordScheduling(Phase.QUALIFICATION, 1L, 1, 1, 4, 3, 0);
+        assertEquals(3, tables("1", "free"));
+    }
+
+    @Test
+    public void metersAreScrapedByPrometheus() {
+        metrics.scheduling(Phase.KO).record(Duration.ofMillis(3));
+        metrics.recordImageSize(4_000_000, 600_000);
+        metrics.jwtVerification(false).record(Duration.ofNanos(500));
+
+        var scrape = meterRegistry.scrape();
+        assertAll(
+            () -> assertTrue(scrape.contains("beerbrawl_scheduling_seconds_count{phase=\"ko\"} 1")),
+            () -> assertTrue(scrape.contains("beerbrawl_media_size_bytes_sum{stage=\"stored\"}")),
+            () ->
+                assertTrue(
+                    scrape.contains(
+                        "beerbrawl_jwt_verification_seconds_count{outcome=\"invalid\"} 1"
+                    )
+                ),
+            () -> assertTrue(scrape.contains("beerbrawl_qualification_scores_seconds")),
+            () -> assertTrue(scrape.contains("beerbrawl_ko_tree_seconds"))
+        );
+    }
+
+    private double tables(String tournament, String state) {
+        return meterRegistry
+            .get("beerbrawl.tables")
+            .tags("tournament", tournament, "state", state)
+            .gauge()
+            .value();
+    }
+}
@@ -0,0 +1,120 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.util.ImageBufferPool;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the image buffer pool. The allocation of the JPEG encode step is compared in
+ * {@code ImageEncodeBenchmark}.
+ */
+public class ImageBufferPoolTest {
+
+    @Test
+    public void acquireRoundsUpToSizeClass() {
+        var pool = new ImageBufferPool();
+        assertEquals(ImageBufferPool.MIN_CLASS_SIZE, pool.acquire(1).length);
+        assertEquals(
+            ImageBufferPool.MIN_CLASS_SIZE * 2,
+            pool.acquire(ImageBufferPool.MIN_CLASS_SIZE + 1).length
+        );
+        assertEquals(
+            ImageBufferPool.MAX_CLASS_SIZE + 1,
+            pool.acquire(ImageBufferPool.MAX_CLASS_SIZE + 1).length
+        );
+    }
+
+    @Test
+    public void releasedBufferIsReused() {
+        var pool = new ImageBufferPool();
+        var buffer = pool.acquire(100_000);
+        pool.release(buffer);
+        assertEquals(buffer.length, pool.getRetainedBytes());
+        assertSame(buffer, pool.acquire(100_000));
+        assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void retainedBytesAreBounded() {
+        var pool = new ImageBufferPool(ImageBufferPool.MIN_CLASS_SIZE);
+        pool.release(pool.acquire(1));
+        pool.release(pool.acquire(1));
+        pool.release(new byte[12345]);
+        assertEquals(ImageBufferPool.MIN_CLASS_SIZE, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void outputGrowsAcrossSizeClassesAndKeepsContent() {
+        var pool = new ImageBufferPool();
+        var expected = new byte[ImageBufferPool.MIN_CLASS_SIZE * 3 + 7];
+        new Random(42).nextBytes(expected);
+
+        byte[] written;
+        try (var out = pool.newOutput(0)) {
+            out.write(expected[0]);
+            out.write(expected, 1, expected.length - 1);
+            written = out.toByteArray();
+        }
+
+        assertArrayEquals(expected, written);
+        // only the final buffer is kept, the smaller ones were handed back while growing
+        assertTrue(pool.getRetainedBytes() >= ImageBufferPool.MIN_CLASS_SIZE * 4L);
+    }
+
+    @Test
+    public void pooledEncodeMatchesUnpooledAndReturnsItsBuffers() throws Exception {
+        var image = noiseImage(320, 240);
+        var pool = new ImageBufferPool();
+        var unpooled = new ByteArrayOutputStream();
+        encode(image, unpooled);
+
+        byte[] pooled;
+        try (var out = pool.newOutput(ImageBufferPool.MIN_CLASS_SIZE)) {
+            encode(image, out);
+            pooled = out.toByteArray();
+        }
+
+        assertArrayEquals(unpooled.toByteArray(), pooled);
+        assertTrue(pool.getRetainedBytes() >= pooled.length);
+        var retained = pool.getRetainedBytes();
+        try (var out = pool.newOutput(ImageBufferPool.MIN_CLASS_SIZE)) {
+            encode(image, out);
+        }
+        // the second encode is served from the returned buffers and hands them back again
+        assertEquals(retained, pool.getRetainedBytes());
+    }
+
+    private static void encode(BufferedImage image, OutputStream out) throws IOException {
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (var imageOut = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage noiseImage(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var random = new Random(7);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,159 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.config.LogFilter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+public class LogFilterTest {
+
+    private static final String ROUTE = "/api/v1/tournaments/{tournamentId}/qualification-matches";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LogFilter filter = new LogFilter(meterRegistry, null);
+
+    @Test
+    public void requestsAreTimedPerRouteTemplate() throws Exception {
+        filter.doFilter(request(1), response(200), new MockFilterChain());
+        filter.doFilter(request(2), response(200), new MockFilterChain());
+        filter.doFilter(request(2), response(403), new MockFilterChain());
+
+        assertAll(
+            () -> assertEquals(2, timer("200").count()),
+            () -> assertEquals(1, timer("403").count()),
+            () -> assertEquals(2, meterRegistry.get("beerbrawl.http.requests").timers().size()),
+            () -> assertNull(MDC.get("r"))
+        );
+    }
+
+    @Test
+    public void requestsFailingWithAnExceptionAreTimedAsServerErrors() {
+        var failure = new ServletException("boom");
+        var chain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response)
+                throws ServletException {
+                throw failure;
+            }
+        };
+
+        var thrown = assertThrows(ServletException.class, () ->
+            filter.doFilter(request(1), response(200), chain)
+        );
+
+        assertSame(failure, thrown);
+        assertEquals(1, timer("500").count());
+    }
+
+    @Test
+    public void asyncRequestsAreTimedOnceTheyComplete() throws Exception {
+        var request = request(1);
+        request.setAsyncSupported(true);
+        var response = response(200);
+        var mdcOfDispatch = new String[1];
+
+        filter.doFilter(request, response, startingAsync());
+        var recordedBeforeCompletion = meterRegistry.find("beerbrawl.http.requests").timers();
+        // the handler's result is written by an async dispatch, e.g. for a DeferredResult
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(
+            request,
+            response,
+            new MockFilterChain() {
+                @Override
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                    mdcOfDispatch[0] = MDC.get("r");
+                    ((MockHttpServletResponse) response).setStatus(204);
+                }
+            }
+        );
+        request.getAsyncContext().complete();
+
+        assertAll(
+            () -> assertTrue(recordedBeforeCompletion.isEmpty()),
+            () -> assertNotNull(mdcOfDispatch[0]),
+            () -> assertEquals(1, timer("204").count()),
+            () -> assertEquals(1, meterRegistry.get("beerbrawl.http.requests").timers().size()),
+            () -> assertNull(MDC.get("r"))
+        );
+    }
+
+    @Test
+    public void asyncRequestsCompletedWithoutDispatchAreTimed() throws Exception {
+        var request = request(1);
+        request.setAsyncSupported(true);
+        var response = response(200);
+
+        // an event stream is completed by its emitter, without another dispatch
+        filter.doFilter(request, response, startingAsync());
+        Thread.sleep(5);
+        request.getAsyncContext().complete();
+
+        assertAll(
+            () -> assertEquals(1, timer("200").count()),
+            () -> assertTrue(timer("200").totalTime(TimeUnit.MILLISECONDS) >= 5)
+        );
+    }
+
+    @Test
+    public void unmappedRequestsShareOneTag() throws Exception {
+        var notFound = new MockHttpServletRequest("GET", "/nothing/here/42");
+        filter.doFilter(notFound, response(404), new MockFilterChain());
+
+        assertEquals(
+            1,
+            meterRegistry.get("beerbrawl.http.requests").tag("uri", "NOT_FOUND").timer().count()
+        );
+    }
+
+    private static MockFilterChain startingAsync() {
+        return new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                request.startAsync(request, response);
+            }
+        };
+    }
+
+    private static MockHttpServletRequest request(long tournamentId) {
+        var request = new MockHttpServletRequest(
+            "GET",
+            "/api/v1/tournaments/" + tournamentId + "/qualification-matches"
+        );
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, ROUTE);
+        return request;
+    }
+
+    private static MockHttpServletResponse response(int status) {
+        var response = new MockHttpServletResponse();
+        response.setStatus(status);
+        return response;
+    }
+
+    private Timer timer(String status) {
+        return meterRegistry
+            .get("beerbrawl.http.requests")
+            .tags("uri", ROUTE, "method", "GET", "status", status)
+            .timer();
+    }
+}
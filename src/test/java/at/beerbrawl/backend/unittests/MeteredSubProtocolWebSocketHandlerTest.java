@@ -0,0 +1,94 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import at.beerbrawl.backend.config.MeteredSubProtocolWebSocketHandler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+public class MeteredSubProtocolWebSocketHandlerTest {
+
+    private static final int MESSAGE_SIZE = 1_000;
+    private static final int BUFFER_LIMIT = 10 * MESSAGE_SIZE;
+
+    @Test
+    public void slowSessionIsDroppedOnceItsBufferExceedsTheLimit() throws Exception {
+        var sendReleased = new CountDownLatch(1);
+        var session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("slow");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sendReleased.await();
+            return null;
+        })
+            .when(session)
+            .sendMessage(any());
+
+        var handler = new MeteredSubProtocolWebSocketHandler(
+            new ExecutorSubscribableChannel(),
+            new ExecutorSubscribableChannel()
+        );
+        handler.addProtocolHandler(new StompSubProtocolHandler());
+        handler.setSendTimeLimit(60_000);
+        handler.setSendBufferSizeLimit(BUFFER_LIMIT);
+        handler.afterConnectionEstablished(session);
+
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            // the first message is stuck on the client's connection
+            var stuck = executor.submit(() -> handler.handleMessage(message()));
+            verify(session, timeout(5_000)).sendMessage(any());
+
+            for (int i = 0; i < 5; i++) {
+                handler.handleMessage(message());
+            }
+            var queuedBeforeLimit = handler.getQueuedBytes();
+            verify(session, never()).close(any());
+
+            for (int i = 0; i < 10; i++) {
+                handler.handleMessage(message());
+            }
+
+            sendReleased.countDown();
+            stuck.get();
+            assertAll(
+                () -> assertTrue(queuedBeforeLimit >= 5L * MESSAGE_SIZE),
+                () -> verify(session).close(CloseStatus.SESSION_NOT_RELIABLE),
+                () -> assertEquals(1, handler.getStats().getLimitExceededSessions())
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+
+        handler.afterConnectionClosed(session, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, handler.getQueuedBytes());
+    }
+
+    private static Message<byte[]> message() {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("slow");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/tournament/1/matches");
+        return MessageBuilder.createMessage(new byte[MESSAGE_SIZE], accessor.getMessageHeaders());
+    }
+}
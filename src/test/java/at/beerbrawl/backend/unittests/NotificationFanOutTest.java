@@ -0,0 +1,115 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import at.beerbrawl.backend.endpoint.NotificationEndpoint;
+import at.beerbrawl.backend.model.Notification;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Checking which sessions the simple broker delivers a notification to,
+ * with thousands of simulated sessions spread over many tournaments.
+ */
+public class NotificationFanOutTest {
+
+    private static final int TOURNAMENTS = 50;
+    private static final int SESSIONS_PER_TOURNAMENT = 100;
+    private static final String LEGACY_DESTINATION = "/partypics/notifications";
+
+    private final AtomicInteger delivered = new AtomicInteger();
+    private SimpleBrokerMessageHandler broker;
+
+    @BeforeEach
+    public void startBroker() {
+        var outbound = new ExecutorSubscribableChannel();
+        outbound.subscribe(message -> delivered.incrementAndGet());
+        broker = new SimpleBrokerMessageHandler(
+            new ExecutorSubscribableChannel(),
+            outbound,
+            new ExecutorSubscribableChannel(),
+            List.of("/partypics")
+        );
+        broker.start();
+
+        for (long tournamentId = 1; tournamentId <= TOURNAMENTS; tournamentId++) {
+            for (int i = 0; i < SESSIONS_PER_TOURNAMENT; i++) {
+                var sessionId = tournamentId + "-" + i;
+                connect(sessionId);
+                subscribe(sessionId, Notification.Companion.tournamentDestination(tournamentId));
+                // the same clients as they would have subscribed before notifications were routed
+                subscribe(sessionId, LEGACY_DESTINATION);
+            }
+        }
+    }
+
+    @AfterEach
+    public void stopBroker() {
+        broker.stop();
+    }
+
+    @Test
+    public void tournamentNotificationOnlyReachesItsSubscribers() {
+        var notification = new NotificationEndpoint().notify("<b>Next round</b>", 7L);
+        var destination = Notification.Companion.tournamentDestination(7L);
+
+        var routed = publish(destination, notification);
+        var broadcast = publish(LEGACY_DESTINATION, notification);
+
+        assertEquals(SESSIONS_PER_TOURNAMENT, routed);
+        assertEquals(TOURNAMENTS * SESSIONS_PER_TOURNAMENT, broadcast);
+        assertEquals("&lt;b&gt;Next round&lt;/b&gt;", notification.getMessage());
+    }
+
+    @Test
+    public void organizerNotificationDoesNotReachTournamentSubscribers() {
+        connect("organizer");
+        subscribe("organizer", Notification.Companion.organizerDestination("7"));
+
+        var routed = publish(
+            Notification.Companion.organizerDestination("7"),
+            new Notification("1 image(s) set to approved.", 7L)
+        );
+
+        // an organizer named like a tournament id must not reach the spectators of that tournament
+        assertEquals(1, routed);
+    }
+
+    private int publish(String destination, Notification notification) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        Message<Notification> message = MessageBuilder.createMessage(
+            notification,
+            accessor.getMessageHeaders()
+        );
+
+        delivered.set(0);
+        broker.handleMessage(message);
+        return delivered.get();
+    }
+
+    private void connect(String sessionId) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        accessor.setSessionId(sessionId);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void subscribe(String sessionId, String destination) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(destination);
+        accessor.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,64 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.config.diagnostics.QueryDiagnostics;
+import at.beerbrawl.backend.config.diagnostics.QueryDiagnostics.Kind;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class QueryDiagnosticsTest {
+
+    private final QueryDiagnostics diagnostics = new QueryDiagnostics(3);
+
+    @Test
+    public void onlyTheSlowestQueriesAreKept() {
+        for (var millis : new long[] { 12, 40, 7, 90, 25, 3 }) {
+            diagnostics.slowQuery("select * from team where id in (?,?,?)", millis);
+        }
+
+        var slowest = diagnostics.report().slowest();
+        assertAll(
+            () ->
+                assertEquals(
+                    List.of(90L, 40L, 25L),
+                    slowest.stream().map(QueryDiagnostics.SlowQuery::millis).toList()
+                ),
+            () -> assertEquals(3, slowest.get(0).parameters()),
+            () ->
+                assertEquals(
+                    "QueryDiagnosticsTest.onlyTheSlowestQueriesAreKept",
+                    slowest.get(0).method()
+                )
+        );
+    }
+
+    @Test
+    public void workIsAttributedToTheCallingMethod() {
+        loadTeams();
+        loadTeams();
+        diagnostics.queryExecuted(4);
+
+        var methods = diagnostics.report().methods();
+        var loadTeams = methods.get(0);
+        assertAll(
+            () -> assertEquals("QueryDiagnosticsTest.loadTeams", loadTeams.method()),
+            () -> assertEquals(2, loadTeams.statements()),
+            () -> assertEquals(2, loadTeams.collectionFetches()),
+            () -> assertEquals(0, loadTeams.queries()),
+            () -> assertTrue(methods.stream().anyMatch(m -> m.queryMillis() == 4))
+        );
+
+        diagnostics.reset();
+        assertTrue(diagnostics.report().methods().isEmpty());
+    }
+
+    private void loadTeams() {
+        diagnostics.record(Kind.STATEMENT);
+        diagnostics.record(Kind.COLLECTION_FETCH);
+    }
+}
@@ -0,0 +1,201 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import at.beerbrawl.backend.config.capture.CaptureFile;
+import at.beerbrawl.backend.config.capture.CapturedRequest;
+import at.beerbrawl.backend.config.capture.RequestCapture;
+import at.beerbrawl.backend.config.capture.RequestCaptureFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public class RequestCaptureFilterTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T18:30:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void secretsAreRedactedBeforeTheRequestIsWritten() throws Exception {
+        var file = directory.resolve("requests.capture");
+        SecurityContextHolder.getContext()
+            .setAuthentication(
+                new UsernamePasswordAuthenticationToken(
+                    "organizer",
+                    null,
+                    List.of(new SimpleGrantedAuthority("ROLE_USER"))
+                )
+            );
+        var request = new MockHttpServletRequest("POST", "/api/v1/tournaments/3/teams");
+        request.setQueryString("token=2b4c8d&notify=true");
+        request.addHeader("Authorization", "Bearer secret-jwt");
+        request.setContentType("application/json");
+        request.setContent(
+            "{\"name\":\"Pong Stars\",\"login\":{\"password\":\"hunter2\"}}".getBytes(
+                    StandardCharsets.UTF_8
+                )
+        );
+        var response = new MockHttpServletResponse();
+
+        try (var capture = new RequestCapture(file)) {
+            filter(capture).doFilter(
+                request,
+                response,
+                new MockFilterChain(new CreatingServlet("{\"id\":7,\"passwordHash\":\"x1\"}"))
+            );
+        }
+
+        var captured = readAll(file);
+        var content = Files.readString(file, StandardCharsets.ISO_8859_1);
+        var single = captured.get(0);
+        assertAll(
+            () -> assertEquals(1, captured.size()),
+            () -> assertEquals(NOW, single.startedAt()),
+            () -> assertEquals("/api/v1/tournaments/3/teams", single.path()),
+            () -> assertEquals("token=<redacted>&notify=true", single.query()),
+            () -> assertEquals("organizer", single.user()),
+            () -> assertEquals(List.of("ROLE_USER"), single.roles()),
+            () -> assertEquals(201, single.status()),
+            () ->
+                assertEquals(
+                    "<redacted>",
+                    objectMapper.readTree(single.body()).at("/login/password").asText()
+                ),
+            () -> assertEquals(7, objectMapper.readTree(single.response()).get("id").asInt()),
+            () -> assertFalse(content.contains("hunter2")),
+            () -> assertFalse(content.contains("secret-jwt")),
+            () -> assertFalse(content.contains("x1")),
+            () -> assertFalse(content.contains("2b4c8d")),
+            // the response still reached the client
+            () -> assertEquals(201, response.getStatus()),
+            () -> assertEquals("{\"id\":7,\"passwordHash\":\"x1\"}", response.getContentAsString())
+        );
+    }
+
+    @Test
+    public void readingRequestsAreNotCaptured() throws Exception {
+        var file = directory.resolve("requests.capture");
+
+        try (var capture = new RequestCapture(file)) {
+            filter(capture).doFilter(
+                new MockHttpServletRequest("GET", "/api/v1/tournaments/3"),
+                new MockHttpServletResponse(),
+                new MockFilterChain()
+            );
+        }
+
+        assertEquals(List.of(), readAll(file));
+    }
+
+    @Test
+    public void captureCutShortIsContinuedAfterTheLastCompleteRequest() throws Exception {
+        var file = directory.resolve("requests.capture");
+        try (var capture = new RequestCapture(file)) {
+            capture.append(request("/api/v1/beer-pong-tables"));
+            capture.append(request("/api/v1/beer-pong-tables"));
+        }
+        // a record announcing more bytes than were written before the crash
+        Files.write(file, new byte[] { 0, 0, 1, 0, 42, 42 }, StandardOpenOption.APPEND);
+
+        try (var capture = new RequestCapture(file)) {
+            capture.append(request("/api/v1/tournaments/3/qualification-matches"));
+        }
+
+        var captured = readAll(file);
+        assertAll(
+            () -> assertEquals(3, captured.size()),
+            () ->
+                assertEquals(
+                    "/api/v1/tournaments/3/qualification-matches",
+                    captured.get(2).path()
+                ),
+            () -> assertNull(captured.get(2).user())
+        );
+    }
+
+    private RequestCaptureFilter filter(RequestCapture capture) {
+        return new RequestCaptureFilter(capture, Clock.fixed(NOW, ZoneOffset.UTC), objectMapper);
+    }
+
+    private static CapturedRequest request(String path) {
+        return new CapturedRequest(
+            NOW,
+            1_000_000,
+            "POST",
+            path,
+            null,
+            null,
+            null,
+            List.of(),
+            201,
+            new byte[0],
+            List.of(),
+            new byte[0]
+        );
+    }
+
+    private static List<CapturedRequest> readAll(Path file) throws IOException {
+        var captured = new ArrayList<CapturedRequest>();
+        try (var reader = CaptureFile.read(file)) {
+            for (var next = reader.next(); next.isPresent(); next = reader.next()) {
+                captured.add(next.get());
+            }
+        }
+        return captured;
+    }
+
+    /**
+     * Reads the whole body like a controller would, and answers with a created resource.
+     */
+    private static class CreatingServlet extends HttpServlet {
+
+        private final String created;
+
+        CreatingServlet(String created) {
+            this.created = created;
+        }
+
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+            request.getInputStream().readAllBytes();
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            response.setContentType("application/json");
+            response.getWriter().write(created);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* SPDX-License-Identifier: AGPL-3.0-or-later */
+
+package at.beerbrawl.backend.unittests;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.beerbrawl.backend.endpoint.TeamNextMatchIndex;
+import at.beerbrawl.backend.endpoint.dto.LiveMatchDto;
+import at.beerbrawl.backend.endpoint.dto.TeamNextMatchDto;
+import at.beerbrawl.backend.entity.Match.MatchStatus;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TeamNextMatchIndexTest {
+
+    private static final Map<Long, String> TABLE_NAMES = Map.of(10L, "Table 1", 11L, "Table 2");
+
+    // ordered by expected start
+    private static final List<LiveMatchDto> MATCHES = List.of(
+        match(1L, MatchStatus.PLAYING, 10L, List.of(1L, 2L), List.of(1L, 2L)),
+        match(2L, MatchStatus.TEAMS_CHECKED_IN, null, List.of(1L, 3L), List.of()),
+        match(3L, MatchStatus.TEAMS_CHECKED_IN, null, List.of(3L, 4L), List.of()),
+        match(4L, MatchStatus.QUEUED_COLLECTING_DRINKS, 11L, List.of(5L, 6L), List.of(5L)),
+        match(5L, MatchStatus.TEAMS_CHECKED_IN, null, List.of(4L, 7L), List.of()),
+        match(6L, MatchStatus.FINISHED, null, List.of(8L, 9L), List.of(8L, 9L)),
+        match(7L, MatchStatus.NOT_CHECKED_IN_YET, null, List.of(9L, 2L), List.of())
+    );
+
+    @Test
+    public void nextMatchPrefersRunningThenQueuedMatches() {
+        var index = TeamNextMatchIndex.build(MATCHES, TABLE_NAMES);
+
+        var playing = index.get(1L);
+        var queued = index.get(3L);
+        var collectingDrinks = index.get(5L);
+        var opponentCollectedDrinks = index.get(6L);
+        assertAll(
+            () -> assertEquals(9, index.size()),
+            () -> assertEquals(1L, playing.matchId()),
+            () -> assertEquals("Table 1", playing.tableName()),
+            () -> assertEquals(List.of(2L), playing.opponentTeamIds()),
+            () -> assertNull(playing.queuePosition()),
+            // match 2 comes earlier but waits for team 1, so match 3 is played first
+            () -> assertEquals(3L, queued.matchId()),
+            () -> assertEquals(1, queued.queuePosition()),
+            () -> assertNull(queued.tableId()),
+            // team 4 is queued with match 3 already, match 5 has to wait
+            () -> assertEquals(3L, index.get(4L).matchId()),
+            () -> assertNull(index.get(7L).queuePosition()),
+            () -> assertEquals(5L, index.get(7L).matchId()),
+            () -> assertEquals("Table 2", collectingDrinks.tableName()),
+            () -> assertTrue(collectingDrinks.drinksCollected()),
+            () -> assertFalse(collectingDrinks.opponentDrinksCollected()),
+            () -> assertFalse(opponentCollectedDrinks.drinksCollected()),
+            () -> assertTrue(opponentCollectedDrinks.opponentDrinksCollected()),
+            () -> assertEquals(7L, index.get(9L).matchId()),
+            () -> assertEquals(TeamNextMatchDto.none(8L), index.get(8L))
+        );
+    }
+
+    @Test
+    public void changedContainsOnlyDifferingViews() {
+        var before = TeamNextMatchIndex.build(MATCHES, TABLE_NAMES);
+        var after = TeamNextMatchIndex.build(
+            MATCHES.stream()
+                .map(match ->
+                    match.id() == 4L
+                        ? match(4L, MatchStatus.PLAYING, 11L, List.of(5L, 6L), List.of(5L, 6L))
+                        : match
+                )
+                .toList(),
+            TABLE_NAMES
+        );
+
+        var changed = TeamNextMatchIndex.changed(before, after);
+        assertEquals(
+            List.of(5L, 6L),
+            changed.stream().map(TeamNextMatchDto::teamId).sorted().toList()
+        );
+    }
+
+    private static LiveMatchDto match(
+        Long id,
+        MatchStatus status,
+        Long tableId,
+        List<Long> teamIds,
+        List<Long> drinksCollectedTeamIds
+    ) {
+        return new LiveMatchDto(
+            id,
+            status,
+            null,
+            null,
+            tableId,
+            teamIds,
+            List.of(),
+            drinksCollectedTeamIds,
+            null,
+            null
+        );
+    }
+}